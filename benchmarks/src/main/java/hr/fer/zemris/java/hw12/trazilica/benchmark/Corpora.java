@@ -0,0 +1,136 @@
+package hr.fer.zemris.java.hw12.trazilica.benchmark;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@code Corpora} locates corpora on which benchmarks are run. Corpus is named
+ * by benchmark parameter: {@value #BUNDLED} is corpus bundled with Trazilica,
+ * while number of documents names synthetic corpus written by
+ * {@link CorpusGenerator}. Synthetic corpora are written once into temporary
+ * directory and reused by all later benchmark runs.
+ * <p>
+ * Bundled dictionary is expected in {@code ../dictionary}, i.e. benchmarks are
+ * run from their own directory, unless other location is given by system
+ * property {@value #DICTIONARY_PROPERTY}.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+final class Corpora {
+
+    /** Name of bundled corpus. */
+    public static final String BUNDLED = "clanci";
+    /** System property holding path of bundled dictionary directory. */
+    public static final String DICTIONARY_PROPERTY = "trazilica.dictionary";
+    /** Vocabulary size of synthetic corpora. */
+    public static final int VOCABULARY_SIZE = 50000;
+    /** Average number of words in synthetic document. */
+    public static final int DOCUMENT_LENGTH = 300;
+    /** Seed of synthetic corpora. */
+    public static final long SEED = 42;
+
+    /** Suffix of file marking that synthetic corpus is completely written. */
+    private static final String COMPLETE_SUFFIX = ".complete";
+
+    /**
+     * Disables creation of {@code Corpora} instances.
+     */
+    private Corpora() {
+    }
+
+    /**
+     * Returns root directory of corpus with specified name, generating it if
+     * it is synthetic corpus which does not exist yet.
+     * 
+     * @param corpus
+     *            Name of corpus, {@value #BUNDLED} or number of documents
+     * @return Root directory of corpus
+     * @throws IOException
+     *             If IO error occurs
+     * @throws IllegalArgumentException
+     *             If name of corpus is invalid
+     */
+    public static Path prepare(String corpus) throws IOException {
+        if (BUNDLED.equals(corpus)) {
+            return dictionaryDirectory().resolve(BUNDLED);
+        }
+
+        int documents;
+        try {
+            documents = Integer.parseInt(corpus);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid corpus: " + corpus, e);
+        }
+
+        Path directory = Paths.get(System.getProperty("java.io.tmpdir"),
+                "trazilica-corpus-" + documents);
+        Path marker = directory.resolveSibling(directory.getFileName()
+                + COMPLETE_SUFFIX);
+
+        if (!Files.exists(marker)) {
+            new CorpusGenerator(VOCABULARY_SIZE, SEED).generate(directory,
+                    documents, DOCUMENT_LENGTH);
+            Files.createFile(marker);
+        }
+
+        return directory;
+    }
+
+    /**
+     * Returns path of file holding stop-words of bundled dictionary.
+     * 
+     * @return Path of stop-words file
+     */
+    public static Path stopWords() {
+        return dictionaryDirectory().resolve("hrvatski_stoprijeci.txt");
+    }
+
+    /**
+     * Returns sorted paths of all documents of corpus with specified root
+     * directory.
+     * 
+     * @param rootDirectory
+     *            Root directory of corpus
+     * @return Paths of documents
+     * @throws IOException
+     *             If IO error occurs
+     */
+    public static List<Path> documents(Path rootDirectory) throws IOException {
+        List<Path> files = new ArrayList<>();
+
+        Files.walkFileTree(rootDirectory, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path file,
+                    BasicFileAttributes attrs) throws IOException {
+                files.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+        });
+
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Returns path of bundled dictionary directory.
+     * 
+     * @return Path of dictionary directory
+     */
+    private static Path dictionaryDirectory() {
+        return Paths.get(System.getProperty(DICTIONARY_PROPERTY,
+                "../dictionary"));
+    }
+
+}
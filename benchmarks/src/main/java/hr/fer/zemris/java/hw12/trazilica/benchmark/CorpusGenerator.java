@@ -0,0 +1,188 @@
+package hr.fer.zemris.java.hw12.trazilica.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * {@code CorpusGenerator} writes synthetic corpus of text documents, used for
+ * measuring how indexing and querying scale beyond size of bundled corpus.
+ * <p>
+ * Words are built from random syllables, including Croatian letters, and
+ * drawn by Zipf distribution, so few words are very frequent and most of them
+ * are rare, same as in natural language. Document lengths vary uniformly
+ * around specified average. Documents are placed into subdirectories of at
+ * most {@value #DOCUMENTS_PER_DIRECTORY} files. Generator is seeded, so the
+ * same parameters always produce the same corpus.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class CorpusGenerator {
+
+    /** Syllables from which words are built. */
+    private static final String[] SYLLABLES = { "ba", "be", "bi", "bo", "da",
+            "de", "di", "do", "ka", "ke", "ko", "la", "li", "lo", "ma", "me",
+            "mi", "na", "ne", "no", "ni", "pa", "po", "ra", "re", "ri", "sa",
+            "se", "si", "ta", "te", "ti", "va", "vi", "za", "ja", "ju", "ča",
+            "če", "ći", "ću", "đa", "đe", "ša", "še", "ži", "žu", "st", "nj",
+            "lj" };
+    /** Exponent of Zipf distribution of words. */
+    private static final double ZIPF_EXPONENT = 1.0;
+    /** Maximal number of documents inside one directory. */
+    private static final int DOCUMENTS_PER_DIRECTORY = 1000;
+    /** Number of words written in one line. */
+    private static final int WORDS_PER_LINE = 12;
+
+    /** Vocabulary words, ordered by their frequency rank. */
+    private String[] words;
+    /** Cumulative probabilities of words, ordered by rank. */
+    private double[] cumulative;
+    /** Seed of random generator. */
+    private long seed;
+
+    /**
+     * Creates new {@code CorpusGenerator} with vocabulary of specified size.
+     * 
+     * @param vocabularySize
+     *            Number of distinct words
+     * @param seed
+     *            Seed of random generator
+     * @throws IllegalArgumentException
+     *             If vocabulary size is not positive
+     */
+    public CorpusGenerator(int vocabularySize, long seed) {
+        if (vocabularySize < 1) {
+            throw new IllegalArgumentException(
+                    "Vocabulary size must be positive, was: " + vocabularySize);
+        }
+
+        this.seed = seed;
+        Random random = new Random(seed);
+
+        Set<String> distinct = new HashSet<>();
+        words = new String[vocabularySize];
+        for (int i = 0; i < vocabularySize; i++) {
+            String word;
+            do {
+                word = randomWord(random);
+            } while (!distinct.add(word));
+            words[i] = word;
+        }
+
+        cumulative = new double[vocabularySize];
+        double sum = 0;
+        for (int rank = 0; rank < vocabularySize; rank++) {
+            sum += 1 / Math.pow(rank + 1, ZIPF_EXPONENT);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < vocabularySize; rank++) {
+            cumulative[rank] /= sum;
+        }
+    }
+
+    /**
+     * Writes specified number of documents into specified directory, which is
+     * created if it does not exist.
+     * 
+     * @param directory
+     *            Root directory of corpus
+     * @param documents
+     *            Number of documents
+     * @param averageLength
+     *            Average number of words in document
+     * @throws IOException
+     *             If IO error occurs
+     */
+    public void generate(Path directory, int documents, int averageLength)
+            throws IOException {
+        Random random = new Random(seed);
+
+        for (int document = 0; document < documents; document++) {
+            Path parent = directory.resolve(String.format("%04d", document
+                    / DOCUMENTS_PER_DIRECTORY));
+            Files.createDirectories(parent);
+
+            int length = averageLength / 2 + random.nextInt(averageLength + 1);
+            try (BufferedWriter writer = Files.newBufferedWriter(
+                    parent.resolve(String.format("doc-%06d.txt", document)),
+                    StandardCharsets.UTF_8)) {
+                for (int i = 0; i < length; i++) {
+                    writer.write(nextWord(random));
+                    writer.write(i % WORDS_PER_LINE == WORDS_PER_LINE - 1 ? ".\n"
+                            : " ");
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns random word drawn by Zipf distribution.
+     * 
+     * @param random
+     *            Random generator
+     * @return Random word
+     */
+    private String nextWord(Random random) {
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+        if (rank < 0) {
+            rank = Math.min(-rank - 1, words.length - 1);
+        }
+
+        return words[rank];
+    }
+
+    /**
+     * Builds random word of two to four syllables.
+     * 
+     * @param random
+     *            Random generator
+     * @return Random word
+     */
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+
+        int syllables = 2 + random.nextInt(3);
+        for (int i = 0; i < syllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+
+        return word.toString();
+    }
+
+    /**
+     * Generates corpus from command line. Expected arguments are root
+     * directory of corpus and number of documents, optionally followed by
+     * vocabulary size and average document length.
+     * 
+     * @param args
+     *            Command line arguments
+     * @throws IOException
+     *             If IO error occurs
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 4) {
+            System.err.println("Expected arguments: directory documents"
+                    + " [vocabulary] [length]");
+            System.exit(1);
+        }
+
+        int documents = Integer.parseInt(args[1]);
+        int vocabulary = args.length > 2 ? Integer.parseInt(args[2])
+                : Corpora.VOCABULARY_SIZE;
+        int length = args.length > 3 ? Integer.parseInt(args[3])
+                : Corpora.DOCUMENT_LENGTH;
+
+        new CorpusGenerator(vocabulary, Corpora.SEED).generate(
+                Paths.get(args[0]), documents, length);
+    }
+
+}
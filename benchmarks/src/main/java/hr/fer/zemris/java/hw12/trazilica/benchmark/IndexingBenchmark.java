@@ -0,0 +1,129 @@
+package hr.fer.zemris.java.hw12.trazilica.benchmark;
+
+import hr.fer.zemris.java.hw12.trazilica.Dictionary;
+import hr.fer.zemris.java.hw12.trazilica.tfidf.TfIdfVector;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@code IndexingBenchmark} measures time needed for creating whole
+ * {@link Dictionary} of corpus, sequentially and by multiple threads, with
+ * document vectors created eagerly or lazily, and time needed only for
+ * creating {@link TfIdfVector}s of all documents once their words and
+ * statistics are known.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IndexingBenchmark {
+
+    /**
+     * Number of threads used for creating dictionary, kept in separate state
+     * so it multiplies only runs of {@link IndexingBenchmark#createDictionary}.
+     * 
+     * @author Domagoj Penic
+     * @version 2.6.2015.
+     *
+     */
+    @State(Scope.Benchmark)
+    public static class ThreadCount {
+
+        /** Number of threads. */
+        @Param({ "1", "4" })
+        public int threads;
+
+    }
+
+    /** Name of corpus, see {@link Corpora#prepare(String)}. */
+    @Param({ Corpora.BUNDLED, "10000" })
+    public String corpus;
+
+    /** Root directory of corpus. */
+    private Path rootDirectory;
+    /** Dictionary of corpus, used for creating vectors. */
+    private Dictionary dictionary;
+
+    /**
+     * Prepares corpus and its dictionary.
+     * 
+     * @throws IOException
+     *             If IO error occurs
+     */
+    @Setup
+    public void setup() throws IOException {
+        rootDirectory = Corpora.prepare(corpus);
+        dictionary = new Dictionary(rootDirectory.toString(), Corpora
+                .stopWords().toString());
+    }
+
+    /**
+     * Creates dictionary of corpus.
+     * 
+     * @param threads
+     *            Number of threads used for creating dictionary
+     * @return Created dictionary
+     * @throws IOException
+     *             If IO error occurs
+     */
+    @Benchmark
+    public Dictionary createDictionary(ThreadCount threads) throws IOException {
+        return new Dictionary(rootDirectory.toString(), Corpora.stopWords()
+                .toString(), threads.threads);
+    }
+
+    /**
+     * Creates dictionary of corpus with document vectors created lazily, so
+     * only vocabulary, statistics and index are created.
+     * 
+     * @param threads
+     *            Number of threads used for creating dictionary
+     * @return Created dictionary
+     * @throws IOException
+     *             If IO error occurs
+     */
+    @Benchmark
+    public Dictionary createLazyDictionary(ThreadCount threads)
+            throws IOException {
+        return new Dictionary(rootDirectory.toString(), Corpora.stopWords()
+                .toString(), threads.threads, 1, false, true, null);
+    }
+
+    /**
+     * Creates vectors of all documents on calling thread.
+     * 
+     * @param blackhole
+     *            Consumer of created vectors
+     */
+    @Benchmark
+    public void createVectors(Blackhole blackhole) {
+        int vocabularySize = dictionary.getVocabulary().size();
+
+        for (int[] words : dictionary.getDocuments().values()) {
+            blackhole.consume(new TfIdfVector(words, vocabularySize,
+                    dictionary.getStatistics()));
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+package hr.fer.zemris.java.hw12.trazilica.benchmark;
+
+import hr.fer.zemris.java.hw12.trazilica.Dictionary;
+import hr.fer.zemris.java.hw12.trazilica.SearchResults;
+import hr.fer.zemris.java.hw12.trazilica.index.TermDictionary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@code QueryBenchmark} measures latency of single query and throughput of
+ * batch of queries, executed by one thread and by several threads searching
+ * the same dictionary at once. Queries are executed by
+ * {@link Dictionary#search(String, int)}, the same way as by query command.
+ * <p>
+ * Queries are built from random vocabulary words which occur in at least two
+ * documents, so every query has some results. Random generator is seeded, so
+ * the same queries are used by every run.
+ * <p>
+ * Results of repeated queries are normally answered by result cache of
+ * dictionary, so benchmarks are run both with cache disabled, which measures
+ * scoring itself, and with cache enabled. Dictionary is created both with
+ * single index and with sharded index, which scores every query by several
+ * threads, and with index and vectors both on heap and moved off heap, in
+ * which case shards are merged into single index.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QueryBenchmark {
+
+    /** Number of queries in batch. */
+    private static final int QUERIES = 256;
+    /** Maximal number of words in query. */
+    private static final int MAX_QUERY_WORDS = 4;
+    /** Number of results kept for every query. */
+    private static final int RESULTS = 10;
+    /** Number of threads executing queries concurrently. */
+    private static final int CONCURRENT_THREADS = 4;
+
+    /** Name of corpus, see {@link Corpora#prepare(String)}. */
+    @Param({ Corpora.BUNDLED, "10000" })
+    public String corpus;
+
+    /** Whether result cache of dictionary is enabled. */
+    @Param({ "false", "true" })
+    public boolean cached;
+
+    /** Number of shards of index of dictionary. */
+    @Param({ "1", "4" })
+    public int shards;
+
+    /** Whether dictionary is moved off heap. */
+    @Param({ "false", "true" })
+    public boolean offHeap;
+
+    /** Dictionary of corpus. */
+    private Dictionary dictionary;
+    /** Texts of queries. */
+    private String[] queries;
+    /** Position of next query used for measuring latency. */
+    private int next;
+
+    /**
+     * Prepares corpus, its dictionary and queries.
+     * 
+     * @throws IOException
+     *             If IO error occurs
+     */
+    @Setup
+    public void setup() throws IOException {
+        dictionary = new Dictionary(Corpora.prepare(corpus).toString(),
+                Corpora.stopWords().toString(), Runtime.getRuntime()
+                        .availableProcessors(), shards);
+        dictionary.getResultCache().setEnabled(cached);
+        if (offHeap) {
+            dictionary.moveOffHeap();
+        }
+
+        TermDictionary vocabulary = dictionary.getVocabulary();
+        List<String> candidates = new ArrayList<>();
+        for (int term = 0; term < vocabulary.size(); term++) {
+            if (dictionary.getStatistics().getDocumentFrequency(term) >= 2) {
+                candidates.add(vocabulary.getTerm(term));
+            }
+        }
+
+        Random random = new Random(Corpora.SEED);
+        queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            StringBuilder query = new StringBuilder();
+
+            int words = 1 + random.nextInt(MAX_QUERY_WORDS);
+            for (int j = 0; j < words; j++) {
+                query.append(candidates.get(random.nextInt(candidates.size())))
+                        .append(' ');
+            }
+
+            queries[i] = query.toString();
+        }
+    }
+
+    /**
+     * Executes single query, cycling trough all queries.
+     * 
+     * @return Results of query
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public SearchResults queryLatency() {
+        String query = queries[next];
+        next = (next + 1) % QUERIES;
+
+        return execute(query);
+    }
+
+    /**
+     * Executes all queries one after another.
+     * 
+     * @param blackhole
+     *            Consumer of query results
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(QUERIES)
+    public void queryThroughput(Blackhole blackhole) {
+        for (String query : queries) {
+            blackhole.consume(execute(query));
+        }
+    }
+
+    /**
+     * Executes all queries one after another, by several threads at once.
+     * 
+     * @param blackhole
+     *            Consumer of query results
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(QUERIES)
+    @Threads(CONCURRENT_THREADS)
+    public void concurrentQueryThroughput(Blackhole blackhole) {
+        for (String query : queries) {
+            blackhole.consume(execute(query));
+        }
+    }
+
+    /**
+     * Executes specified query and returns its best results.
+     * 
+     * @param query
+     *            Text of query
+     * @return Results of query
+     */
+    private SearchResults execute(String query) {
+        return dictionary.search(query, RESULTS);
+    }
+
+}
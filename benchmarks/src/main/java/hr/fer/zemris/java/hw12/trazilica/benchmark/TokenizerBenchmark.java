@@ -0,0 +1,157 @@
+package hr.fer.zemris.java.hw12.trazilica.benchmark;
+
+import hr.fer.zemris.java.hw12.trazilica.analysis.Analyzer;
+import hr.fer.zemris.java.hw12.trazilica.analysis.CachingFilter;
+import hr.fer.zemris.java.hw12.trazilica.analysis.CroatianStemmer;
+import hr.fer.zemris.java.hw12.trazilica.analysis.Tokenizer;
+import hr.fer.zemris.java.hw12.trazilica.index.TermDictionary;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@code TokenizerBenchmark} measures time needed for reading and tokenizing
+ * all documents of corpus, alone and together with interning of words into
+ * {@link TermDictionary}, which is the first phase of indexing, and time
+ * needed for stemming words, with and without remembering stems.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TokenizerBenchmark {
+
+    /** Name of corpus, see {@link Corpora#prepare(String)}. */
+    @Param({ Corpora.BUNDLED, "10000" })
+    public String corpus;
+
+    /** Documents of corpus. */
+    private List<Path> documents;
+    /** Tokenizer reused by all invocations. */
+    private Tokenizer tokenizer;
+    /** Analyzer stemming every word. */
+    private Analyzer stemmer;
+
+    /**
+     * Prepares corpus and tokenizer.
+     * 
+     * @throws IOException
+     *             If IO error occurs
+     */
+    @Setup
+    public void setup() throws IOException {
+        documents = Corpora.documents(Corpora.prepare(corpus));
+        tokenizer = new Tokenizer();
+        stemmer = new Analyzer(new CroatianStemmer());
+    }
+
+    /**
+     * Tokenizes all documents.
+     * 
+     * @param blackhole
+     *            Consumer of token lengths
+     * @throws IOException
+     *             If IO error occurs
+     */
+    @Benchmark
+    public void tokenize(Blackhole blackhole) throws IOException {
+        for (Path document : documents) {
+            try (FileChannel channel = FileChannel.open(document)) {
+                tokenizer.tokenize(channel,
+                        (buffer, length) -> blackhole.consume(length));
+            }
+        }
+    }
+
+    /**
+     * Tokenizes all documents and interns their words.
+     * 
+     * @return Dictionary of all words
+     * @throws IOException
+     *             If IO error occurs
+     */
+    @Benchmark
+    public TermDictionary tokenizeAndIntern() throws IOException {
+        TermDictionary terms = new TermDictionary();
+
+        for (Path document : documents) {
+            try (FileChannel channel = FileChannel.open(document)) {
+                tokenizer.tokenize(channel,
+                        (buffer, length) -> terms.add(buffer, 0, length));
+            }
+        }
+
+        return terms;
+    }
+
+    /**
+     * Tokenizes all documents and stems every word.
+     * 
+     * @param blackhole
+     *            Consumer of stem lengths
+     * @throws IOException
+     *             If IO error occurs
+     */
+    @Benchmark
+    public void stem(Blackhole blackhole) throws IOException {
+        analyze(stemmer, blackhole);
+    }
+
+    /**
+     * Tokenizes all documents and stems every word, remembering stems of
+     * words seen before, as done while indexing.
+     * 
+     * @param blackhole
+     *            Consumer of stem lengths
+     * @throws IOException
+     *             If IO error occurs
+     */
+    @Benchmark
+    public void stemCached(Blackhole blackhole) throws IOException {
+        analyze(new Analyzer(new CachingFilter(new CroatianStemmer(),
+                1 << 16)), blackhole);
+    }
+
+    /**
+     * Analyzes all documents by specified analyzer.
+     * 
+     * @param analyzer
+     *            Analyzer of documents
+     * @param blackhole
+     *            Consumer of word lengths
+     * @throws IOException
+     *             If IO error occurs
+     */
+    private void analyze(Analyzer analyzer, Blackhole blackhole)
+            throws IOException {
+        for (Path document : documents) {
+            try (FileChannel channel = FileChannel.open(document)) {
+                analyzer.analyze(channel,
+                        (buffer, length) -> blackhole.consume(length));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+package hr.fer.zemris.java.hw12.trazilica.benchmark;
+
+import hr.fer.zemris.java.hw12.trazilica.Dictionary;
+import hr.fer.zemris.java.hw12.trazilica.tfidf.TfIdfVector;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code VectorBenchmark} measures comparing document vectors directly, as
+ * done by re-ranking or clustering: cosine similarity of every pair of
+ * documents, of vectors as they are and of normalized vectors, and scalar
+ * product of every document with dense centroid of all documents.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VectorBenchmark {
+
+    /** Maximal number of compared documents. */
+    private static final int MAX_DOCUMENTS = 200;
+
+    /** Name of corpus, see {@link Corpora#prepare(String)}. */
+    @Param({ Corpora.BUNDLED, "10000" })
+    public String corpus;
+
+    /** Vectors of compared documents. */
+    private TfIdfVector[] vectors;
+    /** Normalized vectors of compared documents. */
+    private TfIdfVector[] normalizedVectors;
+    /** Centroid of normalized vectors of all documents. */
+    private double[] centroid;
+
+    /**
+     * Prepares vectors of documents and their centroid.
+     * 
+     * @throws IOException
+     *             If IO error occurs
+     */
+    @Setup
+    public void setup() throws IOException {
+        Dictionary dictionary = new Dictionary(Corpora.prepare(corpus)
+                .toString(), Corpora.stopWords().toString());
+
+        vectors = dictionary.getVectors().values().stream()
+                .limit(MAX_DOCUMENTS).toArray(TfIdfVector[]::new);
+        normalizedVectors = new TfIdfVector[vectors.length];
+        centroid = new double[dictionary.getVocabulary().size()];
+
+        for (int i = 0; i < vectors.length; i++) {
+            TfIdfVector normalized = vectors[i].normalized();
+            normalizedVectors[i] = normalized;
+
+            for (int j = 0; j < normalized.nonZeroCount(); j++) {
+                centroid[normalized.indexAt(j)] += normalized.valueAt(j)
+                        / vectors.length;
+            }
+        }
+    }
+
+    /**
+     * Calculates cosine similarity of every pair of documents.
+     * 
+     * @return Sum of similarities
+     */
+    @Benchmark
+    public double pairwiseCosine() {
+        return pairwise(vectors);
+    }
+
+    /**
+     * Calculates cosine similarity of every pair of normalized documents.
+     * 
+     * @return Sum of similarities
+     */
+    @Benchmark
+    public double pairwiseNormalizedCosine() {
+        return pairwise(normalizedVectors);
+    }
+
+    /**
+     * Calculates scalar product of every normalized document and centroid.
+     * 
+     * @return Sum of products
+     */
+    @Benchmark
+    public double centroidProduct() {
+        double sum = 0;
+
+        for (TfIdfVector vector : normalizedVectors) {
+            sum += vector.scalarMultiply(centroid);
+        }
+
+        return sum;
+    }
+
+    /**
+     * Calculates cosine similarity of every pair of specified vectors.
+     * 
+     * @param compared
+     *            Compared vectors
+     * @return Sum of similarities
+     */
+    private static double pairwise(TfIdfVector[] compared) {
+        double sum = 0;
+
+        for (int i = 0; i < compared.length; i++) {
+            for (int j = i + 1; j < compared.length; j++) {
+                sum += compared[i].cosineSimilarity(compared[j]);
+            }
+        }
+
+        return sum;
+    }
+
+}
@@ -1,29 +1,95 @@
 package hr.fer.zemris.java.hw12.trazilica;
 
+import hr.fer.zemris.java.hw12.trazilica.SearchMetrics.Stage;
+import hr.fer.zemris.java.hw12.trazilica.analysis.Analyzer;
+import hr.fer.zemris.java.hw12.trazilica.analysis.CachingFilter;
+import hr.fer.zemris.java.hw12.trazilica.analysis.CroatianStemmer;
+import hr.fer.zemris.java.hw12.trazilica.analysis.StopFilter;
+import hr.fer.zemris.java.hw12.trazilica.index.HeapSize;
+import hr.fer.zemris.java.hw12.trazilica.index.IndexFile;
+import hr.fer.zemris.java.hw12.trazilica.index.InvertedIndex;
+import hr.fer.zemris.java.hw12.trazilica.index.MappedIndex;
+import hr.fer.zemris.java.hw12.trazilica.index.MemoryIndex;
+import hr.fer.zemris.java.hw12.trazilica.index.MutableIndex;
+import hr.fer.zemris.java.hw12.trazilica.index.PositionIndex;
+import hr.fer.zemris.java.hw12.trazilica.index.ShardedIndex;
+import hr.fer.zemris.java.hw12.trazilica.index.TermDictionary;
+import hr.fer.zemris.java.hw12.trazilica.index.TopKCollector;
+import hr.fer.zemris.java.hw12.trazilica.tfidf.CorpusStatistics;
+import hr.fer.zemris.java.hw12.trazilica.tfidf.TermCounts;
 import hr.fer.zemris.java.hw12.trazilica.tfidf.TfIdfVector;
+import hr.fer.zemris.java.hw12.trazilica.tfidf.VectorStore;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.FileVisitResult;
-import java.nio.file.FileVisitor;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * {@code Dictionary} represents dictionary which hold all defined words trough
  * all provided documents. When this object is created, {@link TfIdfVector}s for
  * all documents are being created and stored for further using. This dictionary
  * also holds stop-words for current language.
+ * <p>
+ * Documents can be added, replaced and removed after {@code Dictionary} is
+ * created, without creating it again. Document frequencies and index are
+ * updated immediately, while document vectors and norms, which depend on IDF
+ * values of all words, are calculated again only when they are needed.
+ * <p>
+ * {@code Dictionary} can be searched by many threads at the same time, every
+ * search returns its own immutable {@link SearchResults}. Searches share read
+ * lock, while changes of documents hold write lock only for updating index,
+ * documents are read before lock is acquired. Vocabulary, documents,
+ * statistics and index returned by getters are not guarded by that lock, so
+ * they should be used directly only while documents are not being changed.
+ * <p>
+ * Documents can be partitioned among several shards of {@link ShardedIndex},
+ * which are searched in parallel, so single query is scored by several
+ * threads. Results are the same as without shards.
+ * <p>
+ * Durations of phases of creating {@code Dictionary} and of stages of every
+ * query are recorded by {@link SearchMetrics}, together with number of
+ * documents scored by queries.
+ * <p>
+ * Large dictionaries can be {@linkplain #moveOffHeap() moved off heap}: index
+ * and document vectors are then held in direct buffers, so heap and pauses of
+ * garbage collector stay small regardless of number of documents.
+ * <p>
+ * Documents and queries are split into words by the same {@link Analyzer},
+ * which drops stop-words and, if requested, reduces words to their stems by
+ * {@link CroatianStemmer}, so different forms of the same word are one
+ * vocabulary word.
+ * <p>
+ * Queries can contain phrases, which are found by {@link PositionIndex}
+ * created by the first query with phrase, see {@link #search(String, int)}.
+ * <p>
+ * Searches need only index, so document vectors can be created lazily: then
+ * vector of document is created when it is first asked for, by
+ * {@link #getVector(Path)} or {@link #getVectors()}, and kept until documents
+ * change. Vectors and norms can be created ahead of use by
+ * {@linkplain #startWarmUp() warm-up} running in background.
  * 
  * @author Domagoj Penic
  * @version 2.6.2015.
@@ -32,116 +98,1001 @@ import java.util.TreeMap;
 public class Dictionary {
 
     /**
-     * {@code FileVisitor} used for filling this {@code Dictionary} with
-     * vocabulary words defined by documents specified by root file path.
+     * Growable list of term identifiers, filled while document is tokenized.
      * 
      * @author Domagoj Penic
      * @version 2.6.2015.
      *
      */
-    private static class VocabularyCreator implements FileVisitor<Path> {
+    private static class TermList {
 
-        /** Vocabulary collection. */
-        private Set<String> vocabulary;
-        /** Collection of stop-words of current language. */
-        private Set<String> stopWords;
-        /** Collection of paths associated with its words. */
-        private Map<Path, List<String>> documents;
+        /** Initial capacity of list. */
+        private static final int INITIAL_CAPACITY = 256;
+
+        /** Term identifiers. */
+        private int[] terms = new int[INITIAL_CAPACITY];
+        /** Number of term identifiers. */
+        private int size;
+
+        /**
+         * Appends specified term identifier to this list.
+         * 
+         * @param term
+         *            Term identifier
+         */
+        public void add(int term) {
+            if (size == terms.length) {
+                terms = Arrays.copyOf(terms, size * 2);
+            }
+            terms[size++] = term;
+        }
 
         /**
-         * Creates new {@code VocabularyCreator} with specified collection of
-         * vocabulary to be filled when some file is being visited.
+         * Returns all term identifiers of this list.
          * 
-         * @param vocabulary
-         *            Collection of vocabulary words to be filled
-         * @param stopWords
-         *            Collection of stop-words
-         * @param documents
-         *            Paths associated with document words to be filled
+         * @return Array of term identifiers
          */
-        public VocabularyCreator(Set<String> vocabulary, Set<String> stopWords,
-                Map<Path, List<String>> documents) {
-            this.vocabulary = vocabulary;
-            this.stopWords = stopWords;
-            this.documents = documents;
+        public int[] toArray() {
+            return Arrays.copyOf(terms, size);
+        }
+
+    }
+
+    /** Number of queries scored together by batch search. */
+    private static final int BATCH_SIZE = 64;
+    /** Maximal number of results kept by result cache. */
+    private static final int RESULT_CACHE_CAPACITY = 1024;
+    /** Maximal number of bytes of documents kept by document store. */
+    private static final long DOCUMENT_CACHE_CAPACITY = 32 << 20;
+    /** Maximal size of single document kept by document store. */
+    private static final int MAX_CACHED_DOCUMENT = 1 << 20;
+    /** Estimated size of entry of hash map, together with its table slot. */
+    private static final long MAP_ENTRY_SIZE = HeapSize.object(3
+            * HeapSize.REFERENCE + Integer.BYTES) + HeapSize.REFERENCE;
+
+    /**
+     * Phrase inside query text, optionally followed by maximal number of
+     * other words between phrase words.
+     */
+    private static final Pattern PHRASE = Pattern
+            .compile("\"([^\"]*)\"(?:~(\\d{1,9}))?");
+
+    /** Maximal number of words which stems are remembered by analyzer. */
+    private static final int STEM_CACHE_CAPACITY = 1 << 16;
+
+    /** Root path of all text files. */
+    private Path rootDirectory;
+    /** Vocabulary words identified by their indexes inside vectors. */
+    private TermDictionary vocabulary;
+    /** Stop-words of current language. */
+    private TermDictionary stopWords;
+    /** Path of file which contains stop-words. */
+    private Path stopWordsFile;
+    /** Whether words are reduced to their stems. */
+    private boolean stemming;
+    /** Analyzers used for reading documents and queries, one per thread. */
+    private final ThreadLocal<Analyzer> analyzers = ThreadLocal
+            .withInitial(this::createAnalyzer);
+
+    /** Paths associated with identifiers of all document words. */
+    private Map<Path, int[]> documents;
+    /** Statistics of all documents. */
+    private CorpusStatistics statistics;
+    /** Paths associated with file vectors created since documents changed. */
+    private Map<Path, TfIdfVector> vectors;
+    /** Whether vectors are created only when they are first needed. */
+    private boolean lazyVectors;
+    /** Vectors outside of heap by document identifiers, null if on heap. */
+    private VectorStore vectorStore;
+    /** Paths of documents indexed by their identifiers, null if removed. */
+    private List<Path> documentPaths;
+    /** Paths of documents associated with their identifiers. */
+    private Map<Path, Integer> documentIds;
+    /** Inverted index of all document vectors. */
+    private InvertedIndex index;
+    /** Positions of words inside documents, null until phrase is searched. */
+    private volatile PositionIndex positions;
+    /** Lock shared by searches and held exclusively by changes of documents. */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Version of documents, changed by every change of documents. */
+    private long version;
+    /** Cache of results of recent queries. */
+    private final ResultCache resultCache = new ResultCache(
+            RESULT_CACHE_CAPACITY);
+    /** Store providing content of documents. */
+    private final DocumentStore documentStore = new DocumentStore(
+            DOCUMENT_CACHE_CAPACITY, MAX_CACHED_DOCUMENT);
+    /** Metrics of creating this dictionary and of queries. */
+    private final SearchMetrics metrics = new SearchMetrics();
+
+    /**
+     * Creates new {@code Dictionary} by specified language which is defined by
+     * all files which root file is provided root directory path. As a part of
+     * {@code Dictionary}, language stop-words have to be also provided.
+     * 
+     * @param rootDirectoryPath
+     *            Root path of all text files
+     * @param stopWordsPath
+     *            Path of file which contains language stop-words
+     * @throws IllegalArgumentException
+     *             If one of paths is invalid
+     * @throws IOException
+     *             If IO error occurs
+     */
+    public Dictionary(String rootDirectoryPath, String stopWordsPath)
+            throws IllegalArgumentException, IOException {
+        this(rootDirectoryPath, stopWordsPath, 1);
+    }
+
+    /**
+     * Creates new {@code Dictionary} same as
+     * {@link #Dictionary(String, String)}, but with files being analyzed and
+     * vectors being created by specified number of worker threads. Files are
+     * always discovered and read by their own threads, see
+     * {@link IngestionPipeline}, and if only one thread is requested, vectors
+     * are created on calling thread.
+     * 
+     * @param rootDirectoryPath
+     *            Root path of all text files
+     * @param stopWordsPath
+     *            Path of file which contains language stop-words
+     * @param threads
+     *            Number of worker threads used for indexing
+     * @throws IllegalArgumentException
+     *             If one of paths is invalid or number of threads is not
+     *             positive
+     * @throws IOException
+     *             If IO error occurs
+     */
+    public Dictionary(String rootDirectoryPath, String stopWordsPath,
+            int threads) throws IllegalArgumentException, IOException {
+        this(rootDirectoryPath, stopWordsPath, threads, 1);
+    }
+
+    /**
+     * Creates new {@code Dictionary} same as
+     * {@link #Dictionary(String, String, int)}, but with documents partitioned
+     * among specified number of shards of {@link ShardedIndex}. If only one
+     * shard is requested, documents are kept in single {@link MemoryIndex}.
+     * 
+     * @param rootDirectoryPath
+     *            Root path of all text files
+     * @param stopWordsPath
+     *            Path of file which contains language stop-words
+     * @param threads
+     *            Number of worker threads used for indexing
+     * @param shards
+     *            Number of shards of index
+     * @throws IllegalArgumentException
+     *             If one of paths is invalid or number of threads or shards is
+     *             not positive
+     * @throws IOException
+     *             If IO error occurs
+     */
+    public Dictionary(String rootDirectoryPath, String stopWordsPath,
+            int threads, int shards) throws IllegalArgumentException,
+            IOException {
+        this(rootDirectoryPath, stopWordsPath, threads, shards, false);
+    }
+
+    /**
+     * Creates new {@code Dictionary} same as
+     * {@link #Dictionary(String, String, int, int)}, but with words of
+     * documents and queries optionally reduced to their stems by
+     * {@link CroatianStemmer}.
+     * 
+     * @param rootDirectoryPath
+     *            Root path of all text files
+     * @param stopWordsPath
+     *            Path of file which contains language stop-words
+     * @param threads
+     *            Number of worker threads used for indexing
+     * @param shards
+     *            Number of shards of index
+     * @param stemming
+     *            Whether words are reduced to their stems
+     * @throws IllegalArgumentException
+     *             If one of paths is invalid or number of threads or shards is
+     *             not positive
+     * @throws IOException
+     *             If IO error occurs
+     */
+    public Dictionary(String rootDirectoryPath, String stopWordsPath,
+            int threads, int shards, boolean stemming)
+            throws IllegalArgumentException, IOException {
+        this(rootDirectoryPath, stopWordsPath, threads, shards, stemming, null);
+    }
+
+    /**
+     * Creates new {@code Dictionary} same as
+     * {@link #Dictionary(String, String, int, int, boolean)}, reporting
+     * progress of reading documents to specified listener. Listener is called
+     * by calling thread about every second, and once all documents are read.
+     * 
+     * @param rootDirectoryPath
+     *            Root path of all text files
+     * @param stopWordsPath
+     *            Path of file which contains language stop-words
+     * @param threads
+     *            Number of worker threads used for indexing
+     * @param shards
+     *            Number of shards of index
+     * @param stemming
+     *            Whether words are reduced to their stems
+     * @param progress
+     *            Listener notified about progress of reading documents,
+     *            {@code null} if progress is not reported
+     * @throws IllegalArgumentException
+     *             If one of paths is invalid or number of threads or shards is
+     *             not positive
+     * @throws IOException
+     *             If IO error occurs
+     */
+    public Dictionary(String rootDirectoryPath, String stopWordsPath,
+            int threads, int shards, boolean stemming,
+            Consumer<IngestionProgress> progress)
+            throws IllegalArgumentException, IOException {
+        this(rootDirectoryPath, stopWordsPath, threads, shards, stemming,
+                false, progress);
+    }
+
+    /**
+     * Creates new {@code Dictionary} same as
+     * {@link #Dictionary(String, String, int, int, boolean, Consumer)}, but
+     * with document vectors optionally created only when they are first
+     * needed. Only vocabulary, statistics and index are then created before
+     * constructor returns, which is enough for searching.
+     * 
+     * @param rootDirectoryPath
+     *            Root path of all text files
+     * @param stopWordsPath
+     *            Path of file which contains language stop-words
+     * @param threads
+     *            Number of worker threads used for indexing
+     * @param shards
+     *            Number of shards of index
+     * @param stemming
+     *            Whether words are reduced to their stems
+     * @param lazyVectors
+     *            Whether document vectors are created when first needed
+     * @param progress
+     *            Listener notified about progress of reading documents,
+     *            {@code null} if progress is not reported
+     * @throws IllegalArgumentException
+     *             If one of paths is invalid or number of threads or shards is
+     *             not positive
+     * @throws IOException
+     *             If IO error occurs
+     */
+    public Dictionary(String rootDirectoryPath, String stopWordsPath,
+            int threads, int shards, boolean stemming, boolean lazyVectors,
+            Consumer<IngestionProgress> progress)
+            throws IllegalArgumentException, IOException {
+        if (shards < 1) {
+            throw new IllegalArgumentException(
+                    "Number of shards must be positive, was: " + shards);
+        }
+
+        this.rootDirectory = toRootDirectory(rootDirectoryPath);
+        this.stopWords = readStopWords(stopWordsPath);
+        this.stopWordsFile = Paths.get(stopWordsPath);
+        this.stemming = stemming;
+        this.lazyVectors = lazyVectors;
+        this.vocabulary = new TermDictionary();
+        this.documents = new HashMap<>();
+        this.vectors = new ConcurrentHashMap<>();
+
+        create(rootDirectory, threads, progress);
+
+        // Create inverted index
+        long start = System.nanoTime();
+        MutableIndex mutableIndex = shards == 1 ? new MemoryIndex()
+                : new ShardedIndex(shards);
+        for (Path file : documentPaths) {
+            indexDocument(mutableIndex, documents.get(file));
+        }
+        mutableIndex.compress();
+        this.index = mutableIndex;
+        recordPhase("index", start);
+    }
+
+    /**
+     * Creates new {@code Dictionary} from specified opened index file. Since
+     * index file holds only vocabulary, statistics and index, collections of
+     * document words and document vectors of created {@code Dictionary} are
+     * empty, and documents can not be changed.
+     * 
+     * @param rootDirectory
+     *            Root path of all text files
+     * @param stopWords
+     *            Stop-words of current language
+     * @param stopWordsFile
+     *            Path of file which contains stop-words
+     * @param indexFile
+     *            Opened index file
+     */
+    private Dictionary(Path rootDirectory, TermDictionary stopWords,
+            Path stopWordsFile, IndexFile indexFile) {
+        this.rootDirectory = rootDirectory;
+        this.stopWords = stopWords;
+        this.stopWordsFile = stopWordsFile;
+        this.stemming = indexFile.isStemmed();
+        this.vocabulary = indexFile.getTerms();
+        this.documents = new HashMap<>();
+        this.vectors = new ConcurrentHashMap<>();
+
+        this.statistics = indexFile.getStatistics();
+        this.documentPaths = indexFile.getDocuments(rootDirectory);
+        this.index = indexFile.getIndex();
+
+        this.documentIds = new HashMap<>();
+        for (Path file : documentPaths) {
+            documentIds.put(file, documentIds.size());
+        }
+    }
+
+    /**
+     * Adds document with specified path to this {@code Dictionary}. If
+     * document is already part of this {@code Dictionary}, its previous
+     * version is replaced. New words found in document are added to
+     * vocabulary.
+     * 
+     * @param file
+     *            Path of document
+     * @throws IOException
+     *             If document can not be read
+     * @throws UnsupportedOperationException
+     *             If this {@code Dictionary} is opened from index file
+     */
+    public void addDocument(Path file) throws IOException {
+        MutableIndex mutableIndex = getMutableIndex();
+
+        // Document is read into its own vocabulary without holding lock
+        TermDictionary documentVocabulary = new TermDictionary();
+        int[] words = extractWords(file, analyzers.get(), documentVocabulary);
+
+        lock.writeLock().lock();
+        try {
+            int[] mapping = new int[documentVocabulary.size()];
+            for (int word = 0; word < mapping.length; word++) {
+                mapping[word] = vocabulary.add(documentVocabulary, word);
+            }
+            for (int i = 0; i < words.length; i++) {
+                words[i] = mapping[words[i]];
+            }
+
+            if (documentIds.containsKey(file)) {
+                removeDocument(file);
+            }
+
+            documents.put(file, words);
+            statistics.addDocument(words);
+            int document = indexDocument(mutableIndex, words);
+            documentIds.put(file, document);
+            documentPaths.add(file);
+            if (positions != null) {
+                positions.addDocument(document, words);
+            }
+            vectors.clear();
+            version++;
+        } finally {
+            lock.writeLock().unlock();
         }
+    }
 
-        @Override
-        public FileVisitResult preVisitDirectory(Path dir,
-                BasicFileAttributes attrs) throws IOException {
-            return FileVisitResult.CONTINUE;
+    /**
+     * Replaces document with specified path by its current content. Same as
+     * {@link #addDocument(Path)}, but document must already be part of this
+     * {@code Dictionary}.
+     * 
+     * @param file
+     *            Path of document
+     * @throws IOException
+     *             If document can not be read
+     * @throws IllegalArgumentException
+     *             If document is not part of this {@code Dictionary}
+     * @throws UnsupportedOperationException
+     *             If this {@code Dictionary} is opened from index file
+     */
+    public void replaceDocument(Path file) throws IOException {
+        lock.readLock().lock();
+        try {
+            if (!documentIds.containsKey(file)) {
+                throw new IllegalArgumentException("Document does not exist: "
+                        + file);
+            }
+        } finally {
+            lock.readLock().unlock();
         }
 
-        @Override
-        public FileVisitResult postVisitDirectory(Path dir, IOException exc)
-                throws IOException {
-            return FileVisitResult.CONTINUE;
+        addDocument(file);
+    }
+
+    /**
+     * Removes document with specified path from this {@code Dictionary}. Words
+     * which no longer occur in any document stay in vocabulary.
+     * 
+     * @param file
+     *            Path of document
+     * @return {@code true} if document was removed, {@code false} if it was
+     *         not part of this {@code Dictionary}
+     * @throws UnsupportedOperationException
+     *             If this {@code Dictionary} is opened from index file
+     */
+    public boolean removeDocument(Path file) {
+        MutableIndex mutableIndex = getMutableIndex();
+
+        lock.writeLock().lock();
+        try {
+            Integer document = documentIds.remove(file);
+
+            if (document == null) {
+                return false;
+            }
+
+            statistics.removeDocument(documents.remove(file));
+            mutableIndex.removeDocument(document);
+            documentPaths.set(document, null);
+            if (positions != null) {
+                positions.removeDocument(document);
+            }
+            vectors.clear();
+            version++;
+
+            return true;
+        } finally {
+            lock.writeLock().unlock();
         }
+    }
 
-        @Override
-        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
-                throws IOException {
-            // Read text from file
-            String text = new String(Files.readAllBytes(file),
-                    StandardCharsets.UTF_8);
-            text = text.toLowerCase();
+    /**
+     * Removes all documents which paths satisfy specified filter from this
+     * {@code Dictionary}. Filter is tested without holding lock, so it may
+     * check files on disk without holding back searches. Selected documents
+     * are then removed at once, so no search can see only some of them
+     * removed.
+     * 
+     * @param filter
+     *            Filter of paths of documents to be removed
+     * @return Number of removed documents
+     * @throws UnsupportedOperationException
+     *             If this {@code Dictionary} is opened from index file
+     */
+    public int removeDocuments(Predicate<Path> filter) {
+        getMutableIndex();
 
-            // Extract words from file
-            String[] words = text.replaceAll("[^a-zA-ZšđžčćŠĐŽČĆ]", " ").split(
-                    "\\s+");
-            List<String> documentWords = new ArrayList<>();
+        List<Path> files;
+        lock.readLock().lock();
+        try {
+            files = new ArrayList<>(documentIds.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+        files.removeIf(filter.negate());
 
-            for (String word : words) {
-                word = word.trim();
+        lock.writeLock().lock();
+        try {
+            int removed = 0;
+            for (Path file : files) {
+                // Document might have been removed in the meantime
+                if (removeDocument(file)) {
+                    removed++;
+                }
+            }
+
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Searches this {@code Dictionary} for documents the most similar to
+     * specified query. Query words are extracted the same way as words of
+     * documents, and words which are not part of vocabulary are ignored.
+     * Documents are ordered by cosine similarity of their vectors with query
+     * vector, only documents with positive similarity are returned.
+     * <p>
+     * Results are kept by {@link ResultCache}, so query with the same words,
+     * in any order, and the same number of results is not scored again until
+     * some document is added or removed.
+     * <p>
+     * Words enclosed in quotes form phrase, such as {@code "nogometni savez"},
+     * and only documents containing all phrases of query are returned.
+     * Phrase words must occur in document in the same order, one after
+     * another, with stop-words ignored. Phrase followed by {@code ~N}, such as
+     * {@code "nogometni savez"~2}, allows at most N other words between every
+     * two consecutive phrase words. Phrase words are also query words, so
+     * found documents are ordered the same way as other results. Results of
+     * queries with phrases are not cached.
+     * 
+     * @param queryText
+     *            Text of query
+     * @param count
+     *            Maximal number of returned documents
+     * @return Results of query
+     * @throws IllegalArgumentException
+     *             If count is not positive
+     */
+    public SearchResults search(String queryText, int count) {
+        long start = System.nanoTime();
+        TopKCollector collector = new TopKCollector(count);
+
+        lock.readLock().lock();
+        try {
+            List<String> queryWords = new ArrayList<>();
+            Analyzer analyzer = analyzers.get();
+            int[] queryTerms = extractQueryTerms(analyzer, queryText,
+                    queryWords);
+            BitSet phraseDocuments = findPhrases(analyzer, queryText);
+
+            SearchResults cached = phraseDocuments == null ? resultCache.get(
+                    queryTerms, count, version) : null;
+            long parsed = System.nanoTime();
+            metrics.recordStage(Stage.PARSE, parsed - start);
+
+            if (cached != null) {
+                metrics.recordQuery(parsed - start, 0, true);
+                return cached.getQuery().equals(queryWords) ? cached : cached
+                        .withQuery(queryWords);
+            }
+
+            TfIdfVector queryVector = new TfIdfVector(queryTerms,
+                    vocabulary.size(), statistics);
+            if (phraseDocuments == null) {
+                index.scoreTopK(queryVector, collector);
+            } else {
+                index.score(queryVector, (document, similarity) -> {
+                    if (phraseDocuments.get(document)) {
+                        collector.collect(document, similarity);
+                    }
+                });
+            }
+            long scored = System.nanoTime();
+            metrics.recordStage(Stage.SCORE, scored - parsed);
+
+            SearchResults results = createResults(queryWords, collector);
+            if (phraseDocuments == null) {
+                resultCache.put(queryTerms, count, version, results);
+            }
+            long ranked = System.nanoTime();
+            metrics.recordStage(Stage.RANK, ranked - scored);
+            metrics.recordQuery(ranked - start, collector.getScoredCount(),
+                    false);
+
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
 
-                if (!word.isEmpty() && !stopWords.contains(word)) {
-                    vocabulary.add(word);
-                    documentWords.add(word);
+    /**
+     * Searches this {@code Dictionary} for documents the most similar to every
+     * of specified queries. Results are equal to results of searching every
+     * query by {@link #search(String, int)}, but queries are divided into
+     * batches of {@value #BATCH_SIZE} which are scored together, so posting
+     * list of word shared by several queries of batch is walked only once.
+     * Batches are scored in parallel by specified number of threads. Queries
+     * with phrases are searched one by one before batches.
+     * 
+     * @param queryTexts
+     *            Texts of queries
+     * @param count
+     *            Maximal number of documents returned for every query
+     * @param threads
+     *            Number of threads scoring batches
+     * @return Results of queries, in the same order as queries
+     * @throws IllegalArgumentException
+     *             If count or number of threads is not positive
+     */
+    public List<SearchResults> search(List<String> queryTexts, int count,
+            int threads) {
+        if (count < 1 || threads < 1) {
+            throw new IllegalArgumentException(
+                    "Number of results and threads must be positive.");
+        }
+
+        int size = queryTexts.size();
+        SearchResults[] results = new SearchResults[size];
+
+        lock.readLock().lock();
+        try {
+            List<List<String>> queryWords = new ArrayList<>(size);
+            TfIdfVector[] vectors = new TfIdfVector[size];
+            Analyzer analyzer = analyzers.get();
+            for (int i = 0; i < size; i++) {
+                queryWords.add(new ArrayList<>());
+
+                // Phrase query gets empty vector, which batch does not score
+                if (PHRASE.matcher(queryTexts.get(i)).find()) {
+                    results[i] = search(queryTexts.get(i), count);
+                    vectors[i] = new TfIdfVector(new int[0],
+                            vocabulary.size(), statistics);
+                    continue;
                 }
+
+                vectors[i] = new TfIdfVector(extractQueryTerms(analyzer,
+                        queryTexts.get(i), queryWords.get(i)),
+                        vocabulary.size(), statistics);
             }
 
-            documents.put(file, documentWords);
+            // Batches only read index, which is guarded by lock of this thread
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                List<Callable<Void>> tasks = new ArrayList<>();
+                for (int start = 0; start < size; start += BATCH_SIZE) {
+                    int from = start;
+                    int to = Math.min(size, start + BATCH_SIZE);
 
-            return FileVisitResult.CONTINUE;
+                    tasks.add(() -> {
+                        TopKCollector[] collectors = new TopKCollector[to
+                                - from];
+                        for (int i = 0; i < collectors.length; i++) {
+                            collectors[i] = new TopKCollector(count);
+                        }
+
+                        index.score(Arrays.copyOfRange(vectors, from, to),
+                                collectors);
+
+                        for (int i = 0; i < collectors.length; i++) {
+                            if (results[from + i] == null) {
+                                results[from + i] = createResults(
+                                        queryWords.get(from + i),
+                                        collectors[i]);
+                            }
+                        }
+                        return null;
+                    });
+                }
+
+                for (Future<Void> future : pool.invokeAll(tasks)) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Search was interrupted.", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search failed.", e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        } finally {
+            lock.readLock().unlock();
         }
 
-        @Override
-        public FileVisitResult visitFileFailed(Path file, IOException exc)
-                throws IOException {
-            return FileVisitResult.CONTINUE;
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Extracts vocabulary indexes of words of specified query text. Query
+     * words are extracted the same way as words of documents, words which are
+     * not part of vocabulary are ignored. Must be called while read lock is
+     * held.
+     * 
+     * @param analyzer
+     *            Analyzer used for extracting words
+     * @param queryText
+     *            Text of query
+     * @param queryWords
+     *            List to which recognized query words are added
+     * @return Vocabulary indexes of query words
+     */
+    private int[] extractQueryTerms(Analyzer analyzer, String queryText,
+            List<String> queryWords) {
+        TermList queryTerms = new TermList();
+
+        analyzer.analyze(queryText, (buffer, length) -> {
+            int term = vocabulary.find(buffer, 0, length);
+
+            if (term >= 0) {
+                queryWords.add(vocabulary.getTerm(term));
+                queryTerms.add(term);
+            }
+        });
+
+        return queryTerms.toArray();
+    }
+
+    /**
+     * Finds documents containing all phrases of specified query text. Phrase
+     * with word which is not part of vocabulary is not contained by any
+     * document, while phrase made only of stop-words is ignored. Must be
+     * called while read lock is held.
+     * 
+     * @param analyzer
+     *            Analyzer used for extracting words
+     * @param queryText
+     *            Text of query
+     * @return Identifiers of documents containing all phrases, {@code null}
+     *         if query has no phrases
+     */
+    private BitSet findPhrases(Analyzer analyzer, String queryText) {
+        BitSet found = null;
+
+        Matcher matcher = PHRASE.matcher(queryText);
+        while (matcher.find()) {
+            TermList phraseTerms = new TermList();
+            boolean[] unknown = new boolean[1];
+
+            analyzer.analyze(matcher.group(1), (buffer, length) -> {
+                int term = vocabulary.find(buffer, 0, length);
+                unknown[0] |= term < 0;
+                phraseTerms.add(term);
+            });
+
+            int[] terms = phraseTerms.toArray();
+            if (terms.length == 0) {
+                continue;
+            }
+
+            int slop = matcher.group(2) == null ? 0 : Integer
+                    .parseInt(matcher.group(2));
+            BitSet documents = unknown[0] ? new BitSet() : getPositions()
+                    .findPhrase(terms, slop);
+
+            if (found == null) {
+                found = documents;
+            } else {
+                found.and(documents);
+            }
         }
 
+        return found;
     }
 
-    /** Vocabulary collection of all words found. */
-    private Set<String> vocabulary;
-    /** Stop-words of current language. */
-    private Set<String> stopWords;
+    /**
+     * Returns positions of words inside documents, creating them if they were
+     * not needed before. Documents of {@code Dictionary} opened from index
+     * file are read again, since their words are not kept. Must be called
+     * while read lock is held.
+     * 
+     * @return Positions of words inside documents
+     */
+    private PositionIndex getPositions() {
+        PositionIndex current = positions;
 
-    /** Paths associated with all document words. */
-    private Map<Path, List<String>> documents;
-    /** Paths associated with file vectors. */
-    private Map<Path, TfIdfVector> vectors;
+        if (current == null) {
+            synchronized (lock) {
+                current = positions;
+
+                if (current == null) {
+                    current = createPositions();
+                    positions = current;
+                }
+            }
+        }
 
-    /** Results of last query specified by user. */
-    private Map<Double, Path> currentResults;
+        return current;
+    }
 
     /**
-     * Creates new {@code Dictionary} by specified language which is defined by
-     * all files which root file is provided root directory path. As a part of
-     * {@code Dictionary}, language stop-words have to be also provided.
+     * Creates positions of words inside all documents. Must be called while
+     * read lock is held.
+     * 
+     * @return Positions of words inside documents
+     */
+    private PositionIndex createPositions() {
+        long start = System.nanoTime();
+        PositionIndex created = new PositionIndex();
+
+        for (int document = 0; document < documentPaths.size(); document++) {
+            Path file = documentPaths.get(document);
+            if (file == null) {
+                continue;
+            }
+
+            int[] words = documents.get(file);
+            if (words == null) {
+                try {
+                    words = findWords(file);
+                } catch (IOException e) {
+                    // Document which can not be read contains no phrase
+                    continue;
+                }
+            }
+
+            created.addDocument(document, words);
+        }
+
+        created.trim();
+        recordPhase("positions", start);
+
+        return created;
+    }
+
+    /**
+     * Reads specified file and finds identifiers of its words inside
+     * vocabulary, which is not changed. Stop-words are skipped, and words
+     * which are not part of vocabulary get negative identifiers.
+     * 
+     * @param file
+     *            File which words are found
+     * @return Identifiers of words of file
+     * @throws IOException
+     *             If file can not be read
+     */
+    private int[] findWords(Path file) throws IOException {
+        TermList documentWords = new TermList();
+
+        try (FileChannel channel = FileChannel.open(file)) {
+            analyzers.get().analyze(channel, (buffer, length) -> {
+                documentWords.add(vocabulary.find(buffer, 0, length));
+            });
+        }
+
+        return documentWords.toArray();
+    }
+
+    /**
+     * Creates results of query from documents kept by specified collector.
+     * Must be called while read lock is held.
+     * 
+     * @param queryWords
+     *            Recognized query words
+     * @param collector
+     *            Collector of the most similar documents
+     * @return Results of query
+     */
+    private SearchResults createResults(List<String> queryWords,
+            TopKCollector collector) {
+        int[] found = collector.getDocuments();
+        Path[] paths = new Path[found.length];
+        for (int i = 0; i < found.length; i++) {
+            paths[i] = documentPaths.get(found[i]);
+        }
+
+        return new SearchResults(queryWords, paths,
+                collector.getSimilarities());
+    }
+
+    /**
+     * Returns index of this {@code Dictionary} if it can be changed.
+     * 
+     * @return Index which can be changed
+     * @throws UnsupportedOperationException
+     *             If this {@code Dictionary} is opened from index file
+     */
+    private MutableIndex getMutableIndex() {
+        if (!(index instanceof MutableIndex)) {
+            throw new UnsupportedOperationException("Dictionary opened from"
+                    + " index file or moved off heap can not be changed.");
+        }
+
+        return (MutableIndex) index;
+    }
+
+    /**
+     * Adds document with specified words to specified index. All words must
+     * already be part of vocabulary.
+     * 
+     * @param mutableIndex
+     *            Index to which document is added
+     * @param words
+     *            Identifiers of document words
+     * @return Identifier of document inside index
+     */
+    private int indexDocument(MutableIndex mutableIndex, int[] words) {
+        TermCounts counts = new TermCounts(words);
+        return mutableIndex.addDocument(counts.getTerms(), counts.getCounts());
+    }
+
+    /**
+     * Opens {@code Dictionary} from index file with specified path, if that
+     * file exists and is still valid for files under root directory and for
+     * stop-words file. Otherwise, {@code Dictionary} is created from files as
+     * by {@link #Dictionary(String, String, int)} and written into index file,
+     * so it can be opened next time.
      * 
      * @param rootDirectoryPath
      *            Root path of all text files
      * @param stopWordsPath
      *            Path of file which contains language stop-words
+     * @param threads
+     *            Number of worker threads used if indexing is needed
+     * @param indexFilePath
+     *            Path of index file
+     * @return Opened or created {@code Dictionary}
      * @throws IllegalArgumentException
-     *             If one of paths is invalid
+     *             If one of paths is invalid or number of threads is not
+     *             positive
      * @throws IOException
      *             If IO error occurs
      */
-    public Dictionary(String rootDirectoryPath, String stopWordsPath)
+    public static Dictionary open(String rootDirectoryPath,
+            String stopWordsPath, int threads, String indexFilePath)
             throws IllegalArgumentException, IOException {
+        return open(rootDirectoryPath, stopWordsPath, threads, indexFilePath,
+                false);
+    }
+
+    /**
+     * Opens {@code Dictionary} same as
+     * {@link #open(String, String, int, String)}, but with words optionally
+     * reduced to their stems. Index file written with different setting is
+     * not valid and is created again.
+     * 
+     * @param rootDirectoryPath
+     *            Root path of all text files
+     * @param stopWordsPath
+     *            Path of file which contains language stop-words
+     * @param threads
+     *            Number of worker threads used if indexing is needed
+     * @param indexFilePath
+     *            Path of index file
+     * @param stemming
+     *            Whether words are reduced to their stems
+     * @return Opened or created {@code Dictionary}
+     * @throws IllegalArgumentException
+     *             If one of paths is invalid or number of threads is not
+     *             positive
+     * @throws IOException
+     *             If IO error occurs
+     */
+    public static Dictionary open(String rootDirectoryPath,
+            String stopWordsPath, int threads, String indexFilePath,
+            boolean stemming) throws IllegalArgumentException, IOException {
+        Path rootDirectory = toRootDirectory(rootDirectoryPath);
+        Path indexFile = Paths.get(indexFilePath);
+
+        if (Files.exists(indexFile)) {
+            try {
+                long start = System.nanoTime();
+                IndexFile file = IndexFile.open(indexFile);
+
+                Path stopWordsFile = Paths.get(stopWordsPath);
+
+                if (file.isValidFor(rootDirectory, stopWordsFile)
+                        && file.isStemmed() == stemming) {
+                    Dictionary dictionary = new Dictionary(rootDirectory,
+                            readStopWords(stopWordsPath), stopWordsFile, file);
+                    dictionary.recordPhase("open", start);
+
+                    return dictionary;
+                }
+            } catch (IOException e) {
+                // Damaged or outdated index file is simply created again
+            }
+        }
+
+        Dictionary dictionary = new Dictionary(rootDirectoryPath,
+                stopWordsPath, threads, 1, stemming);
+        long start = System.nanoTime();
+        dictionary.save(indexFile);
+        dictionary.recordPhase("save", start);
+
+        return dictionary;
+    }
+
+    /**
+     * Writes this {@code Dictionary} into index file with specified path, from
+     * which it can later be opened by
+     * {@link #open(String, String, int, String)}.
+     * 
+     * @param indexFile
+     *            Path of index file
+     * @throws IOException
+     *             If IO error occurs
+     */
+    public void save(Path indexFile) throws IOException {
+        lock.readLock().lock();
+        try {
+            IndexFile.write(indexFile, rootDirectory, documentPaths,
+                    vocabulary, statistics, index, stemming, stopWordsFile);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns path of specified root directory, checking that it exists.
+     * 
+     * @param rootDirectoryPath
+     *            Root path of all text files
+     * @return Root directory path
+     * @throws IllegalArgumentException
+     *             If directory does not exist
+     */
+    private static Path toRootDirectory(String rootDirectoryPath) {
         Path rootDirectory = Paths.get(rootDirectoryPath);
 
         if (!Files.exists(rootDirectory) || !Files.isDirectory(rootDirectory)) {
@@ -150,70 +1101,553 @@ public class Dictionary {
                     rootDirectory));
         }
 
+        return rootDirectory;
+    }
+
+    /**
+     * Reads stop-words from file with specified path.
+     * 
+     * @param stopWordsPath
+     *            Path of file which contains language stop-words
+     * @return Collection of stop-words
+     * @throws IllegalArgumentException
+     *             If file does not exist
+     * @throws IOException
+     *             If IO error occurs
+     */
+    private static TermDictionary readStopWords(String stopWordsPath)
+            throws IOException {
         Path stopWords = Paths.get(stopWordsPath);
 
-        if (!Files.exists(rootDirectory) || !Files.isReadable(rootDirectory)) {
+        if (!Files.exists(stopWords) || !Files.isReadable(stopWords)) {
             throw new IllegalArgumentException(String.format(
                     "File with specified path " + "does not exists: %s.",
                     stopWords));
         }
 
-        this.vocabulary = new HashSet<>();
-        this.stopWords = new HashSet<>(Files.readAllLines(stopWords));
-        this.documents = new HashMap<>();
-        this.vectors = new HashMap<>();
-        this.currentResults = new TreeMap<>(Collections.reverseOrder());
+        TermDictionary words = new TermDictionary();
+        for (String word : Files.readAllLines(stopWords)) {
+            words.add(word);
+        }
 
-        // Create vocabulary
-        VocabularyCreator visitor = new VocabularyCreator(this.vocabulary,
-                this.stopWords, documents);
-        Files.walkFileTree(rootDirectory, visitor);
+        return words;
+    }
 
-        // Create vectors
-        for (Path file : documents.keySet()) {
-            vectors.put(file, new TfIdfVector(documents.get(file), vocabulary,
-                    this.documents));
+    /**
+     * Creates vocabulary, statistics and document vectors. Documents are read
+     * by {@link IngestionPipeline}, vectors are created by
+     * {@link ParallelIndexer} if more than one thread is requested, or not at
+     * all if they are created lazily.
+     * 
+     * @param rootDirectory
+     *            Root path of all text files
+     * @param threads
+     *            Number of worker threads
+     * @param progress
+     *            Listener notified about progress of reading documents,
+     *            {@code null} if progress is not reported
+     * @throws IllegalArgumentException
+     *             If number of threads is not positive
+     * @throws IOException
+     *             If IO error occurs
+     */
+    private void create(Path rootDirectory, int threads,
+            Consumer<IngestionProgress> progress) throws IOException {
+        long start = System.nanoTime();
+        IngestionPipeline pipeline = new IngestionPipeline(threads,
+                analyzers::get, progress);
+        this.statistics = pipeline.ingest(rootDirectory, vocabulary,
+                documents);
+        start = recordPhase("ingest", start);
+
+        // Stages overlap, so their busy times are recorded on their own
+        IngestionProgress ingested = pipeline.progress();
+        metrics.recordBuildPhase("discover", ingested.getDiscoverNanos());
+        metrics.recordBuildPhase("read", ingested.getReadNanos());
+        metrics.recordBuildPhase("analyze", ingested.getAnalyzeNanos());
+        metrics.recordBuildPhase("merge", ingested.getMergeNanos());
+
+        createDocumentPaths();
+        vocabulary.trim();
+        start = recordPhase("vocabulary", start);
+
+        if (lazyVectors) {
+            return;
+        }
+
+        // Create vectors, documents are identified by sorted order of paths
+        if (threads == 1) {
+            for (Path file : documentPaths) {
+                vectors.put(file, new TfIdfVector(documents.get(file),
+                        vocabulary.size(), statistics));
+            }
+        } else {
+            try (ParallelIndexer indexer = new ParallelIndexer(threads)) {
+                List<TfIdfVector> documentVectors = indexer.createVectors(
+                        documentPaths, documents, vocabulary.size(),
+                        statistics);
+                for (int i = 0; i < documentPaths.size(); i++) {
+                    vectors.put(documentPaths.get(i), documentVectors.get(i));
+                }
+            }
+        }
+        recordPhase("vectors", start);
+    }
+
+    /**
+     * Records duration of specified phase of creating this
+     * {@code Dictionary}, which started at specified time.
+     * 
+     * @param phase
+     *            Name of phase
+     * @param start
+     *            Time when phase started, in nanoseconds
+     * @return Time when phase ended, in nanoseconds
+     */
+    private long recordPhase(String phase, long start) {
+        long end = System.nanoTime();
+        metrics.recordBuildPhase(phase, end - start);
+
+        return end;
+    }
+
+    /**
+     * Assigns identifiers to documents by sorted order of their paths.
+     */
+    private void createDocumentPaths() {
+        this.documentPaths = new ArrayList<>(documents.keySet());
+        Collections.sort(documentPaths);
+
+        this.documentIds = new HashMap<>();
+        for (Path file : documentPaths) {
+            documentIds.put(file, documentIds.size());
+        }
+    }
+
+    /**
+     * Reads specified file and extracts all its words, in order in which they
+     * appear. Words are analyzed by specified analyzer and added to specified
+     * vocabulary, so they are returned as their identifiers. No string is
+     * created for words already in vocabulary.
+     * 
+     * @param file
+     *            File which words are extracted
+     * @param analyzer
+     *            Analyzer used for extracting words
+     * @param vocabulary
+     *            Vocabulary to which words are added
+     * @return Identifiers of words of file
+     * @throws IOException
+     *             If file can not be read
+     */
+    static int[] extractWords(Path file, Analyzer analyzer,
+            TermDictionary vocabulary) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            return extractWords(channel, analyzer, vocabulary);
         }
+    }
 
+    /**
+     * Extracts all words of document read from specified channel, same as
+     * {@link #extractWords(Path, Analyzer, TermDictionary)}. Channel is not
+     * closed.
+     * 
+     * @param channel
+     *            Channel from which document is read
+     * @param analyzer
+     *            Analyzer used for extracting words
+     * @param vocabulary
+     *            Vocabulary to which words are added
+     * @return Identifiers of words of document
+     * @throws IOException
+     *             If document can not be read
+     */
+    static int[] extractWords(ReadableByteChannel channel, Analyzer analyzer,
+            TermDictionary vocabulary) throws IOException {
+        TermList documentWords = new TermList();
+
+        analyzer.analyze(channel, (buffer, length) -> {
+            documentWords.add(vocabulary.add(buffer, 0, length));
+        });
+
+        return documentWords.toArray();
     }
 
     /**
-     * Returns vocabulary collection of this {@code Dictionary}.
+     * Creates analyzer which extracts words of documents and queries: it skips
+     * stop-words and, if stemming is used, reduces other words to their stems,
+     * remembering stems of words seen before.
+     * 
+     * @return New analyzer
+     */
+    private Analyzer createAnalyzer() {
+        if (!stemming) {
+            return new Analyzer(new StopFilter(stopWords));
+        }
+
+        return new Analyzer(new StopFilter(stopWords), new CachingFilter(
+                new CroatianStemmer(), STEM_CACHE_CAPACITY));
+    }
+
+    /**
+     * Returns root path of all text files of this {@code Dictionary}.
+     * 
+     * @return Root directory path
+     */
+    public Path getRootDirectory() {
+        return rootDirectory;
+    }
+
+    /**
+     * Returns vocabulary of this {@code Dictionary}, which identifies words by
+     * their indexes inside {@link TfIdfVector}s.
      * 
      * @return This {@code Dictionary} vocabulary
      */
-    public Set<String> getVocabulary() {
+    public TermDictionary getVocabulary() {
         return vocabulary;
     }
 
     /**
-     * Returns all {@code Paths} associated with its collection of words.
+     * Returns all {@code Paths} associated with identifiers of their words.
+     * This collection is empty if {@code Dictionary} is opened from index file.
      * 
      * @return Collection of all documents
      */
-    public Map<Path, List<String>> getDocuments() {
+    public Map<Path, int[]> getDocuments() {
         return documents;
     }
 
+    /**
+     * Returns {@link CorpusStatistics} of all documents of this
+     * {@code Dictionary}.
+     * 
+     * @return Statistics of all documents
+     */
+    public CorpusStatistics getStatistics() {
+        return statistics;
+    }
+
     /**
      * Returns all {@code Paths} associated with its {@code TfIdfVector}s
-     * created when this {@code Dictionary} is being instanced.
+     * created when this {@code Dictionary} is being instanced. This collection
+     * is empty if {@code Dictionary} is opened from index file. Vectors which
+     * were not created yet, either because documents were changed since
+     * vectors were last returned or because vectors are created lazily, are
+     * created with current IDF values. If {@code Dictionary} is moved off heap,
+     * vectors are copied to heap by every call, so returned collection should
+     * not be kept longer than needed.
      * 
      * @return Collection of all file vectors
      */
     public Map<Path, TfIdfVector> getVectors() {
-        return vectors;
+        lock.writeLock().lock();
+        try {
+            if (vectorStore != null) {
+                Map<Path, TfIdfVector> copies = new HashMap<>();
+                int document = 0;
+                for (Path file : documentPaths) {
+                    if (file != null) {
+                        copies.put(file, vectorStore.get(document));
+                    }
+                    document++;
+                }
+
+                return copies;
+            }
+
+            updateVectors();
+            return vectors;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves index and document vectors of this {@code Dictionary} off heap.
+     * Index is copied into direct buffer read by {@link MappedIndex}, vectors
+     * into {@link VectorStore}, and heap copies of both are released together
+     * with words of documents. Results of searches stay the same, but
+     * documents can no longer be changed. {@code Dictionary} opened from index
+     * file already reads index from outside of heap, so it is left as it is.
+     * <p>
+     * Sharded index is merged into single index, so queries are then scored
+     * by single thread.
+     */
+    public void moveOffHeap() {
+        lock.writeLock().lock();
+        try {
+            if (!(index instanceof MutableIndex)) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            updateVectors();
+            List<TfIdfVector> documentVectors = new ArrayList<>();
+            for (Path file : documentPaths) {
+                documentVectors.add(file == null ? null : vectors.get(file));
+            }
+            vectorStore = new VectorStore(documentVectors, vocabulary.size());
+            index = MappedIndex.copyOf(index);
+
+            vectors = new ConcurrentHashMap<>();
+            documents = new HashMap<>();
+            recordPhase("offheap", start);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns number of bytes of index and vectors of this {@code Dictionary}
+     * which are held outside of heap, either in direct buffers or in mapped
+     * index file.
+     * 
+     * @return Size of structures outside of heap
+     */
+    public long getOffHeapSize() {
+        lock.readLock().lock();
+        try {
+            long size = 0;
+            if (index instanceof MappedIndex) {
+                size += ((MappedIndex) index).getBufferSize();
+            }
+            if (vectorStore != null) {
+                size += vectorStore.getBufferSize();
+            }
+
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns {@code TfIdfVector} of document with specified path. Vector is
+     * created with current IDF values if it was not created since documents
+     * were last changed, and kept for later calls. Unlike
+     * {@link #getVectors()}, only read lock is held, so vectors of single
+     * documents can be asked for while searching.
+     * 
+     * @param file
+     *            Path of document
+     * @return Vector of document, {@code null} if document is not part of this
+     *         {@code Dictionary} or {@code Dictionary} is opened from index
+     *         file
+     */
+    public TfIdfVector getVector(Path file) {
+        lock.readLock().lock();
+        try {
+            Integer document = documentIds.get(file);
+            if (document == null) {
+                return null;
+            }
+            if (vectorStore != null) {
+                return vectorStore.get(document);
+            }
+
+            int[] words = documents.get(file);
+            if (words == null) {
+                return null;
+            }
+
+            return vectors.computeIfAbsent(file, path -> new TfIdfVector(
+                    words, vocabulary.size(), statistics));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Starts warm-up of this {@code Dictionary} on separate daemon thread.
+     * Warm-up calculates norms and maximal weights of index, see
+     * {@link InvertedIndex#warmUp()}, which is otherwise done by the first
+     * search, and creates vectors of all documents which do not have one yet,
+     * one document at a time, so searches and changes of documents are not
+     * held back by it. Vectors outdated by changes of documents during
+     * warm-up are created again when they are next needed.
+     * 
+     * @return Started thread, which can be interrupted to stop warm-up
+     */
+    public Thread startWarmUp() {
+        Thread thread = new Thread(this::warmUp, "dictionary-warmup");
+        thread.setDaemon(true);
+        thread.start();
+
+        return thread;
+    }
+
+    /**
+     * Calculates norms of index and creates vectors of all documents, until
+     * done or current thread is interrupted.
+     */
+    private void warmUp() {
+        long start = System.nanoTime();
+
+        List<Path> files;
+        lock.readLock().lock();
+        try {
+            index.warmUp();
+            files = new ArrayList<>(documents.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        for (Path file : files) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            getVector(file);
+        }
+
+        recordPhase("warmup", start);
+    }
+
+    /**
+     * Creates vectors of all documents which were not created since documents
+     * were last changed. Must be called while write lock is held.
+     */
+    private void updateVectors() {
+        for (Path file : documents.keySet()) {
+            vectors.computeIfAbsent(file, path -> new TfIdfVector(documents
+                    .get(path), vocabulary.size(), statistics));
+        }
+    }
+
+    /**
+     * Returns whether words of documents and queries are reduced to their
+     * stems.
+     * 
+     * @return {@code true} if words are stemmed, {@code false} otherwise
+     */
+    public boolean isStemming() {
+        return stemming;
+    }
+
+    /**
+     * Returns number of documents of this {@code Dictionary}.
+     * 
+     * @return Number of documents
+     */
+    public int getDocumentCount() {
+        lock.readLock().lock();
+        try {
+            return index.getDocumentCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns path of document with specified identifier. Identifiers are
+     * assigned by sorted order of document paths, from 0 to number of
+     * documents, and documents added later get next free identifier.
+     * 
+     * @param document
+     *            Document identifier
+     * @return Path of document, {@code null} if document is removed
+     */
+    public Path getDocumentPath(int document) {
+        lock.readLock().lock();
+        try {
+            return documentPaths.get(document);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns {@link InvertedIndex} of all documents of this
+     * {@code Dictionary}.
+     * 
+     * @return Inverted index of documents
+     */
+    public InvertedIndex getIndex() {
+        return index;
     }
 
     /**
-     * Returns similarities associated with file paths as a result of last
-     * query. If this call is made before query command, this collection will be
-     * empty.
+     * Returns version of documents of this {@code Dictionary}. Version is
+     * changed every time some document is added or removed.
      * 
-     * @return Collection of current results
+     * @return Version of documents
      */
-    public Map<Double, Path> getCurrentResults() {
-        return currentResults;
+    public long getVersion() {
+        lock.readLock().lock();
+        try {
+            return version;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns {@link ResultCache} which keeps results of recent queries.
+     * 
+     * @return Cache of query results
+     */
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Returns {@link DocumentStore} which provides content of documents.
+     * 
+     * @return Store of document contents
+     */
+    public DocumentStore getDocumentStore() {
+        return documentStore;
+    }
+
+    /**
+     * Returns {@link SearchMetrics} of this {@code Dictionary}.
+     * 
+     * @return Metrics of creating dictionary and of queries
+     */
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns estimated number of bytes taken on heap by every structure of
+     * this {@code Dictionary}. Entries of maps are counted, while paths of
+     * documents, which are shared by several maps, are not.
+     * 
+     * @return Names of structures associated with their estimated sizes
+     */
+    public Map<String, Long> getHeapFootprint() {
+        Map<String, Long> footprint = new LinkedHashMap<>();
+
+        lock.readLock().lock();
+        try {
+            footprint.put("vocabulary", vocabulary.estimateHeapSize()
+                    + stopWords.estimateHeapSize());
+
+            long documentsSize = 0;
+            for (int[] words : documents.values()) {
+                documentsSize += MAP_ENTRY_SIZE
+                        + HeapSize.array(words.length, Integer.BYTES);
+            }
+            footprint.put("documents", documentsSize);
+            footprint.put("statistics", statistics.estimateHeapSize());
+
+            long vectorsSize = 0;
+            for (TfIdfVector vector : vectors.values()) {
+                vectorsSize += MAP_ENTRY_SIZE + vector.estimateHeapSize();
+            }
+            footprint.put("vectors", vectorsSize);
+            footprint.put("index", index.estimateHeapSize());
+
+            PositionIndex current = positions;
+            if (current != null) {
+                footprint.put("positions", current.estimateHeapSize());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        footprint.put("documentCache", documentStore.size());
+        return footprint;
     }
 
 }
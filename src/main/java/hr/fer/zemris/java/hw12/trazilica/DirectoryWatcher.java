@@ -0,0 +1,224 @@
+package hr.fer.zemris.java.hw12.trazilica;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code DirectoryWatcher} follows changes of files under root directory of
+ * {@link Dictionary} and applies them to dictionary as they happen. Created and
+ * modified files are added to dictionary, while deleted ones are removed from
+ * it. Changes are watched on separate daemon thread, started by
+ * {@link #start()}, and every change is applied atomically by dictionary, so
+ * searches running at the same time never see partially applied change.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class DirectoryWatcher implements AutoCloseable {
+
+    /** Dictionary to which changes are applied. */
+    private Dictionary dictionary;
+    /** Service which reports changes of directories. */
+    private WatchService watchService;
+    /** Watched directories associated with their keys. */
+    private Map<WatchKey, Path> directories;
+    /** Thread on which changes are watched. */
+    private Thread thread;
+
+    /**
+     * Creates new {@code DirectoryWatcher} which follows changes of all
+     * directories under root directory of specified {@code Dictionary}.
+     * 
+     * @param dictionary
+     *            Dictionary to which changes are applied
+     * @throws IOException
+     *             If directories can not be watched
+     */
+    public DirectoryWatcher(Dictionary dictionary) throws IOException {
+        this.dictionary = dictionary;
+        this.watchService = dictionary.getRootDirectory().getFileSystem()
+                .newWatchService();
+        this.directories = new HashMap<>();
+
+        register(dictionary.getRootDirectory());
+    }
+
+    /**
+     * Starts watching changes on separate daemon thread.
+     */
+    public void start() {
+        thread = new Thread(this::watch, "directory-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching changes.
+     * 
+     * @throws IOException
+     *             If IO error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Waits for changes and applies them to dictionary until this watcher is
+     * closed.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = directories.get(key);
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        synchronize();
+                    } else if (directory != null) {
+                        apply(event.kind(),
+                                directory.resolve((Path) event.context()));
+                    }
+                }
+
+                if (!key.reset()) {
+                    directories.remove(key);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Watcher is closed
+        }
+    }
+
+    /**
+     * Applies change of specified kind of file with specified path to
+     * dictionary.
+     * 
+     * @param kind
+     *            Kind of change
+     * @param file
+     *            Path of changed file or directory
+     */
+    private void apply(WatchEvent.Kind<?> kind, Path file) {
+        try {
+            if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+                remove(file);
+            } else if (Files.isDirectory(file)) {
+                if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+                    register(file);
+                    addAll(file);
+                }
+            } else if (Files.isRegularFile(file)) {
+                dictionary.addDocument(file);
+            }
+        } catch (IOException e) {
+            // File changed again before it was read, next event applies it
+        }
+    }
+
+    /**
+     * Removes document with specified path from dictionary. If path
+     * represents directory, all documents under it are removed.
+     * 
+     * @param file
+     *            Path of removed file or directory
+     */
+    private void remove(Path file) {
+        if (!dictionary.removeDocument(file)) {
+            dictionary.removeDocuments(document -> document.startsWith(file));
+        }
+    }
+
+    /**
+     * Adds all files under specified directory to dictionary. Files and
+     * directories which can not be read are skipped.
+     * 
+     * @param directory
+     *            Directory which files are added
+     * @throws IOException
+     *             If directory can not be walked
+     */
+    private void addAll(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path file,
+                    BasicFileAttributes attrs) throws IOException {
+                try {
+                    dictionary.addDocument(file);
+                } catch (IOException e) {
+                    // File changed again before it was read, next event
+                    // applies it
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc)
+                    throws IOException {
+                return FileVisitResult.CONTINUE;
+            }
+
+        });
+    }
+
+    /**
+     * Brings dictionary in line with files under root directory after some
+     * changes were lost: documents which no longer exist are removed and all
+     * existing files are added again.
+     */
+    private void synchronize() {
+        dictionary.removeDocuments(document -> !Files.exists(document));
+
+        try {
+            addAll(dictionary.getRootDirectory());
+        } catch (IOException e) {
+            // Root directory can not be walked, next event synchronizes again
+        }
+    }
+
+    /**
+     * Registers specified directory and all directories under it with watch
+     * service.
+     * 
+     * @param rootDirectory
+     *            Root of directories to be registered
+     * @throws IOException
+     *             If IO error occurs
+     */
+    private void register(Path rootDirectory) throws IOException {
+        Files.walkFileTree(rootDirectory, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir,
+                    BasicFileAttributes attrs) throws IOException {
+                directories.put(dir.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE), dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc)
+                    throws IOException {
+                return FileVisitResult.CONTINUE;
+            }
+
+        });
+    }
+
+}
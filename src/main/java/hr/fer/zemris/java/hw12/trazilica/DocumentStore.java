@@ -0,0 +1,294 @@
+package hr.fer.zemris.java.hw12.trazilica;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code DocumentStore} provides content of documents, keeping content of
+ * recently read documents in memory. Cache is bounded by total number of
+ * bytes, the least recently used documents are evicted first. Only documents
+ * not larger than specified limit are cached, larger ones are read from file
+ * every time, so few large documents can not evict all others.
+ * <p>
+ * Documents can be written directly to channel, in which case large documents
+ * are transferred from file to channel by {@link FileChannel#transferTo(long,
+ * long, WritableByteChannel)}, without their content passing through heap.
+ * Cached content is valid as long as size and modification time of file stay
+ * the same, so documents changed after they were cached are read again.
+ * {@code DocumentStore} can be used by many threads at the same time.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class DocumentStore {
+
+    /**
+     * Cached content of document, together with attributes of file from which
+     * it was read.
+     * 
+     * @author Domagoj Penic
+     * @version 2.6.2015.
+     *
+     */
+    private static final class Entry {
+
+        /** Content of document. */
+        private final ByteBuffer content;
+        /** Size of file when it was read. */
+        private final long size;
+        /** Modification time of file when it was read. */
+        private final FileTime modified;
+
+        /**
+         * Creates new {@code Entry} with specified content of file with
+         * specified attributes.
+         * 
+         * @param content
+         *            Content of document
+         * @param attributes
+         *            Attributes of file read before content
+         */
+        public Entry(ByteBuffer content, BasicFileAttributes attributes) {
+            this.content = content;
+            this.size = attributes.size();
+            this.modified = attributes.lastModifiedTime();
+        }
+
+        /**
+         * Checks whether this content belongs to file with specified
+         * attributes.
+         * 
+         * @param attributes
+         *            Current attributes of file
+         * @return {@code true} if content is still valid
+         */
+        public boolean isValid(BasicFileAttributes attributes) {
+            return size == attributes.size()
+                    && modified.equals(attributes.lastModifiedTime());
+        }
+
+    }
+
+    /** Maximal total number of cached bytes. */
+    private final long capacity;
+    /** Maximal size of single cached document. */
+    private final int maxDocumentSize;
+    /** Cached documents associated with their paths, in order of use. */
+    private final Map<Path, Entry> entries;
+    /** Total number of cached bytes. */
+    private long size;
+
+    /** Number of documents provided from cache. */
+    private long hits;
+    /** Number of documents read from file. */
+    private long misses;
+
+    /**
+     * Creates new {@code DocumentStore} which caches at most specified number
+     * of bytes.
+     * 
+     * @param capacity
+     *            Maximal total number of cached bytes
+     * @param maxDocumentSize
+     *            Maximal size of single cached document
+     * @throws IllegalArgumentException
+     *             If limits are negative or document limit is greater than
+     *             capacity
+     */
+    public DocumentStore(long capacity, int maxDocumentSize) {
+        if (maxDocumentSize < 0 || capacity < maxDocumentSize) {
+            throw new IllegalArgumentException("Invalid limits of cache.");
+        }
+
+        this.capacity = capacity;
+        this.maxDocumentSize = maxDocumentSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns content of specified document as read-only buffer.
+     * 
+     * @param document
+     *            Path of document
+     * @return Content of document
+     * @throws IOException
+     *             If document can not be read
+     */
+    public ByteBuffer read(Path document) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(document,
+                BasicFileAttributes.class);
+
+        ByteBuffer cached = getCached(document, attributes);
+        if (cached != null) {
+            return cached;
+        }
+
+        return load(document, attributes);
+    }
+
+    /**
+     * Writes content of specified document to specified channel. Documents
+     * which are too large to be cached are transferred directly from file.
+     * If such document becomes shorter while it is transferred, or nothing
+     * more can be transferred, transfer stops and is reported as failed.
+     * 
+     * @param document
+     *            Path of document
+     * @param target
+     *            Channel to which content is written
+     * @throws IOException
+     *             If document can not be read completely or channel can not be
+     *             written
+     */
+    public void transferTo(Path document, WritableByteChannel target)
+            throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(document,
+                BasicFileAttributes.class);
+
+        ByteBuffer content = getCached(document, attributes);
+        if (content == null && attributes.size() <= maxDocumentSize) {
+            content = load(document, attributes);
+        }
+
+        if (content != null) {
+            while (content.hasRemaining()) {
+                target.write(content);
+            }
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(document)) {
+            long position = 0;
+            long length = channel.size();
+            while (position < length) {
+                long transferred = channel.transferTo(position, length
+                        - position, target);
+                // Nothing is transferred once position is past end of file
+                if (transferred == 0) {
+                    throw new IOException("Document was shortened while it"
+                            + " was read, " + position + " of " + length
+                            + " bytes written: " + document);
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * Returns number of documents provided from cache.
+     * 
+     * @return Number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns number of documents read from file.
+     * 
+     * @return Number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns total number of currently cached bytes.
+     * 
+     * @return Number of cached bytes
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Returns cached content of specified document if it is still valid.
+     * 
+     * @param document
+     *            Path of document
+     * @param attributes
+     *            Current attributes of file
+     * @return Read-only view of cached content, {@code null} if there is none
+     */
+    private synchronized ByteBuffer getCached(Path document,
+            BasicFileAttributes attributes) {
+        Entry entry = entries.get(document);
+
+        if (entry == null || !entry.isValid(attributes)) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entry.content.asReadOnlyBuffer();
+    }
+
+    /**
+     * Reads content of specified document from file and caches it if it is
+     * small enough.
+     * 
+     * @param document
+     *            Path of document
+     * @param attributes
+     *            Attributes of file read before content
+     * @return Read-only view of content
+     * @throws IOException
+     *             If document can not be read
+     */
+    private ByteBuffer load(Path document, BasicFileAttributes attributes)
+            throws IOException {
+        ByteBuffer content;
+        try (FileChannel channel = FileChannel.open(document)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Document is too large: " + document);
+            }
+
+            content = ByteBuffer.allocate((int) length);
+            while (content.hasRemaining() && channel.read(content) >= 0) {
+                // Read until whole document is read
+            }
+            content.flip();
+        }
+
+        if (content.limit() <= maxDocumentSize) {
+            put(document, new Entry(content, attributes));
+        }
+
+        return content.asReadOnlyBuffer();
+    }
+
+    /**
+     * Caches specified content of document, evicting the least recently used
+     * documents until total size fits capacity.
+     * 
+     * @param document
+     *            Path of document
+     * @param entry
+     *            Content of document
+     */
+    private synchronized void put(Path document, Entry entry) {
+        Entry previous = entries.put(document, entry);
+        if (previous != null) {
+            size -= previous.content.limit();
+        }
+        size += entry.content.limit();
+
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (size > capacity && iterator.hasNext()) {
+            size -= iterator.next().content.limit();
+            iterator.remove();
+        }
+    }
+
+}
@@ -0,0 +1,664 @@
+package hr.fer.zemris.java.hw12.trazilica;
+
+import hr.fer.zemris.java.hw12.trazilica.analysis.Analyzer;
+import hr.fer.zemris.java.hw12.trazilica.index.TermDictionary;
+import hr.fer.zemris.java.hw12.trazilica.tfidf.CorpusStatistics;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * {@code IngestionPipeline} reads all documents under root directory into
+ * vocabulary, document words and statistics of {@link Dictionary}. Work is
+ * split into stages, every stage running on its own threads and handing
+ * documents to the next one through bounded queue:
+ * <ol>
+ * <li>discovery walks directory tree and finds files</li>
+ * <li>reading loads content of files from disk, in chunks of fixed size</li>
+ * <li>analysis splits content into words by {@link Analyzer}, on several
+ * worker threads, every worker into its own vocabulary and statistics</li>
+ * <li>merging, on calling thread, maps words of every document from
+ * vocabulary of its worker to shared vocabulary</li>
+ * </ol>
+ * So files are found while first ones are already read, and disk is read while
+ * other documents are analyzed.
+ * <p>
+ * Stage which is faster than the next one blocks once its queue is full. At
+ * most {@value #MAX_IN_FLIGHT} documents are between discovery and merging at
+ * any time, and at most {@value #MAX_READ_BYTES} bytes of read content wait
+ * for analysis, so memory taken by ingestion does not depend on size of
+ * directory. Document is passed to analysis before it is read, and analysis
+ * takes every chunk of {@value #CHUNK_SIZE} bytes as soon as it is read, so no
+ * file is ever held in memory whole, however large it is. Files which can not
+ * be read, e.g. because they were deleted after discovery, are skipped same
+ * as files which discovery can not visit.
+ * <p>
+ * Documents are merged in order in which they were discovered, regardless of
+ * which worker analyzed them, so vocabulary is the same as if all documents
+ * were read one after another. Every worker takes documents in order of
+ * discovery, so words first found by worker come with the first of its
+ * documents to be merged, and are added to shared vocabulary only once.
+ * Statistics of workers are merged after all documents.
+ * <p>
+ * Progress of stages can be reported to listener, which is called by merging
+ * thread about every {@value #REPORT_INTERVAL_MILLIS} milliseconds and once
+ * all documents are merged. Progress also tells how long every stage was
+ * busy, i.e. working on documents rather than waiting for previous or next
+ * stage, so stage which holds others back can be found.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+class IngestionPipeline {
+
+    /** Capacity of queues between stages. */
+    private static final int QUEUE_CAPACITY = 64;
+    /** Maximal number of documents discovered but not yet merged. */
+    private static final int MAX_IN_FLIGHT = 1024;
+    /** Maximal number of bytes of read content waiting for analysis. */
+    private static final int MAX_READ_BYTES = 32 << 20;
+    /** Maximal number of bytes read from file at once. */
+    private static final int CHUNK_SIZE = 64 << 10;
+    /** Interval between progress reports, in milliseconds. */
+    private static final long REPORT_INTERVAL_MILLIS = 1000;
+    /** Marks end of content of document, passed after its last chunk. */
+    private static final ByteBuffer END_OF_CONTENT = ByteBuffer.allocate(0);
+    /** Marks failure to read document, passed instead of its next chunk. */
+    private static final ByteBuffer READ_FAILED = ByteBuffer.allocate(0);
+
+    /**
+     * Document passed between stages. Every stage fills fields it produces and
+     * releases ones which are no longer needed.
+     * 
+     * @author Domagoj Penic
+     * @version 2.6.2015.
+     *
+     */
+    private static class Item {
+
+        /** Marks end of documents, passed after the last one. */
+        private static final Item END = new Item(-1, null);
+
+        /** Position of document in order of discovery. */
+        private final long sequence;
+        /** Path of document. */
+        private final Path file;
+        /** Read chunks of content of document, until it is analyzed. */
+        private BlockingQueue<ByteBuffer> chunks;
+        /** Index of worker which analyzed document. */
+        private int worker;
+        /**
+         * Identifiers of document words inside vocabulary of worker,
+         * {@code null} if document could not be read.
+         */
+        private int[] words;
+        /** Identifier of first word added to vocabulary of worker. */
+        private int firstNewWord;
+        /** Words added to vocabulary of worker by this document. */
+        private String[] newWords;
+        /** Statistics of worker, passed once worker finishes. */
+        private CorpusStatistics statistics;
+
+        /**
+         * Creates new {@code Item} of discovered document.
+         * 
+         * @param sequence
+         *            Position of document in order of discovery
+         * @param file
+         *            Path of document
+         */
+        public Item(long sequence, Path file) {
+            this.sequence = sequence;
+            this.file = file;
+        }
+
+    }
+
+    /**
+     * Channel which reads content of document from chunks passed by reading
+     * stage, waiting for chunks which are not read yet. Permits of read bytes
+     * are released as soon as chunk is taken.
+     * 
+     * @author Domagoj Penic
+     * @version 2.6.2015.
+     *
+     */
+    private class ChunkChannel implements ReadableByteChannel {
+
+        /** Chunks of content of document. */
+        private final BlockingQueue<ByteBuffer> chunks;
+        /** Chunk which is being read, {@code null} before the first one. */
+        private ByteBuffer chunk;
+
+        /**
+         * Creates new {@code ChunkChannel} which reads specified chunks.
+         * 
+         * @param chunks
+         *            Chunks of content of document
+         */
+        public ChunkChannel(BlockingQueue<ByteBuffer> chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        public int read(ByteBuffer destination) throws IOException {
+            while (chunk == null || !chunk.hasRemaining()) {
+                if (chunk == END_OF_CONTENT) {
+                    return -1;
+                }
+
+                try {
+                    chunk = chunks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+                if (chunk == READ_FAILED) {
+                    throw new IOException("Document could not be read.");
+                }
+                readBytes.release(chunk.limit());
+            }
+
+            int length = Math.min(destination.remaining(), chunk.remaining());
+            ByteBuffer part = chunk.duplicate();
+            part.limit(part.position() + length);
+            destination.put(part);
+            chunk.position(part.position());
+
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+    /** Number of analysis workers. */
+    private final int threads;
+    /** Supplier of analyzer of calling thread. */
+    private final Supplier<Analyzer> analyzers;
+    /** Listener notified about progress, {@code null} if there is none. */
+    private final Consumer<IngestionProgress> listener;
+
+    /** Discovered documents waiting to be read. */
+    private final BlockingQueue<Item> discovered = new ArrayBlockingQueue<>(
+            QUEUE_CAPACITY);
+    /** Read documents waiting to be analyzed. */
+    private final BlockingQueue<Item> read = new ArrayBlockingQueue<>(
+            QUEUE_CAPACITY);
+    /** Analyzed documents waiting to be merged. */
+    private final BlockingQueue<Item> analyzed = new ArrayBlockingQueue<>(
+            QUEUE_CAPACITY);
+    /** Permits for documents between discovery and merging. */
+    private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+    /** Permits for bytes of read content waiting for analysis. */
+    private final Semaphore readBytes = new Semaphore(MAX_READ_BYTES);
+
+    /** Number of discovered documents. */
+    private final AtomicLong discoveredCount = new AtomicLong();
+    /** Whether all documents were discovered. */
+    private volatile boolean discoveryDone;
+    /** Number of read documents. */
+    private final AtomicLong readCount = new AtomicLong();
+    /** Number of read bytes. */
+    private final AtomicLong readByteCount = new AtomicLong();
+    /** Number of analyzed documents. */
+    private final AtomicLong analyzedCount = new AtomicLong();
+    /** Number of merged documents. */
+    private long mergedCount;
+    /** Time discovery was busy, in nanoseconds. */
+    private final AtomicLong discoverNanos = new AtomicLong();
+    /** Time when discovery last stopped waiting, in nanoseconds. */
+    private long discoverResumed;
+    /** Time reading was busy, in nanoseconds. */
+    private final AtomicLong readNanos = new AtomicLong();
+    /** Time all analysis workers together were busy, in nanoseconds. */
+    private final AtomicLong analyzeNanos = new AtomicLong();
+    /** Time merging was busy, in nanoseconds. */
+    private long mergeNanos;
+    /** Time when ingestion started, in nanoseconds. */
+    private long startTime;
+
+    /**
+     * Creates new {@code IngestionPipeline} which analyzes documents by
+     * specified number of workers.
+     * 
+     * @param threads
+     *            Number of analysis workers
+     * @param analyzers
+     *            Supplier of analyzer of calling thread
+     * @param listener
+     *            Listener notified about progress, {@code null} if progress
+     *            is not reported
+     * @throws IllegalArgumentException
+     *             If number of threads is not positive
+     */
+    public IngestionPipeline(int threads, Supplier<Analyzer> analyzers,
+            Consumer<IngestionProgress> listener) {
+        if (threads < 1) {
+            throw new IllegalArgumentException(
+                    "Number of threads must be positive, was: " + threads);
+        }
+
+        this.threads = threads;
+        this.analyzers = analyzers;
+        this.listener = listener;
+    }
+
+    /**
+     * Reads all files under specified root directory and fills provided
+     * vocabulary and documents collections. Returns once all documents are
+     * merged, or as soon as some stage fails, in which case all other stages
+     * are stopped.
+     * 
+     * @param rootDirectory
+     *            Root path of all text files
+     * @param vocabulary
+     *            Vocabulary to be filled
+     * @param documents
+     *            Paths associated with identifiers of document words to be
+     *            filled
+     * @return Statistics of all documents
+     * @throws IOException
+     *             If some file can not be read or work is interrupted
+     */
+    public CorpusStatistics ingest(Path rootDirectory,
+            TermDictionary vocabulary, Map<Path, int[]> documents)
+            throws IOException {
+        startTime = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 2);
+
+        try {
+            List<Future<?>> stages = new ArrayList<>();
+            stages.add(pool.submit(() -> {
+                discover(rootDirectory);
+                return null;
+            }));
+            stages.add(pool.submit(() -> {
+                read();
+                return null;
+            }));
+            for (int i = 0; i < threads; i++) {
+                int worker = i;
+                stages.add(pool.submit(() -> {
+                    analyze(worker);
+                    return null;
+                }));
+            }
+
+            return merge(vocabulary, documents, stages);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Indexing was interrupted.", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns current progress of all stages. Once {@link #ingest(Path,
+     * TermDictionary, Map)} returns, it is the final progress of ingestion.
+     * Must be called by thread which called {@code ingest}.
+     * 
+     * @return Snapshot of progress
+     */
+    public IngestionProgress progress() {
+        return new IngestionProgress(discoveredCount.get(), discoveryDone,
+                readCount.get(), readByteCount.get(), analyzedCount.get(),
+                mergedCount, System.nanoTime() - startTime,
+                discoverNanos.get(), readNanos.get(), analyzeNanos.get(),
+                mergeNanos);
+    }
+
+    /**
+     * Walks directory tree under specified root directory and passes every
+     * file to reading stage, in order of walk. Files which can not be visited
+     * are skipped.
+     * 
+     * @param rootDirectory
+     *            Root path of all text files
+     * @throws IOException
+     *             If directory tree can not be walked
+     * @throws InterruptedException
+     *             If ingestion is stopped
+     */
+    private void discover(Path rootDirectory) throws IOException,
+            InterruptedException {
+        discoverResumed = System.nanoTime();
+        try {
+            Files.walkFileTree(rootDirectory, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult visitFile(Path file,
+                        BasicFileAttributes attrs) throws IOException {
+                    discoverNanos.addAndGet(System.nanoTime()
+                            - discoverResumed);
+                    try {
+                        inFlight.acquire();
+                        discovered.put(new Item(discoveredCount.get(), file));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return FileVisitResult.TERMINATE;
+                    }
+                    discoverResumed = System.nanoTime();
+                    discoveredCount.incrementAndGet();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file,
+                        IOException exc) throws IOException {
+                    return FileVisitResult.CONTINUE;
+                }
+
+            });
+        } finally {
+            discoverNanos.addAndGet(System.nanoTime() - discoverResumed);
+            discoveryDone = true;
+        }
+
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        discovered.put(Item.END);
+    }
+
+    /**
+     * Passes discovered documents to analysis stage and reads their content
+     * in chunks, which are passed to analysis one by one. Reading waits while
+     * too many bytes wait for analysis. If document can not be read, analysis
+     * is told so instead of getting its next chunk.
+     * 
+     * @throws InterruptedException
+     *             If ingestion is stopped
+     */
+    private void read() throws InterruptedException {
+        while (true) {
+            Item item = discovered.take();
+            if (item == Item.END) {
+                read.put(Item.END);
+                return;
+            }
+
+            item.chunks = new LinkedBlockingQueue<>();
+            read.put(item);
+
+            long start = System.nanoTime();
+            try (FileChannel channel = FileChannel.open(item.file)) {
+                long remaining = channel.size();
+                while (remaining > 0) {
+                    int capacity = (int) Math.min(remaining, CHUNK_SIZE);
+                    long waiting = System.nanoTime();
+                    readBytes.acquire(capacity);
+                    start += System.nanoTime() - waiting;
+
+                    ByteBuffer chunk = ByteBuffer.allocate(capacity);
+                    boolean more = fill(channel, chunk);
+                    readBytes.release(chunk.remaining());
+                    chunk.flip();
+                    if (chunk.hasRemaining()) {
+                        item.chunks.add(chunk);
+                        readByteCount.addAndGet(chunk.limit());
+                    }
+                    remaining = more ? remaining - chunk.limit() : 0;
+                }
+                item.chunks.add(END_OF_CONTENT);
+            } catch (ClosedByInterruptException e) {
+                throw new InterruptedException();
+            } catch (IOException e) {
+                // File was deleted or can not be read, it is skipped
+                item.chunks.add(READ_FAILED);
+            }
+
+            readNanos.addAndGet(System.nanoTime() - start);
+            readCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Reads from specified channel until specified chunk is full or end of
+     * channel is reached.
+     * 
+     * @param channel
+     *            Channel which is read
+     * @param chunk
+     *            Buffer into which bytes are read
+     * @return {@code false} if end of channel was reached
+     * @throws IOException
+     *             If channel can not be read
+     */
+    private static boolean fill(ReadableByteChannel channel, ByteBuffer chunk)
+            throws IOException {
+        while (chunk.hasRemaining()) {
+            if (channel.read(chunk) < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Analyzes content of read documents into words and passes them to
+     * merging stage. Words are identified inside vocabulary of this worker,
+     * and words which were not found before are passed together with the
+     * document. Once there are no more documents, statistics of this worker are
+     * passed to merging stage, and end of documents is passed on to other
+     * workers.
+     * 
+     * @param worker
+     *            Index of this worker
+     * @throws InterruptedException
+     *             If ingestion is stopped
+     */
+    private void analyze(int worker) throws InterruptedException {
+        Analyzer analyzer = analyzers.get();
+        TermDictionary vocabulary = new TermDictionary();
+        CorpusStatistics statistics = new CorpusStatistics();
+
+        while (true) {
+            Item item = read.take();
+            if (item == Item.END) {
+                read.put(Item.END);
+
+                Item done = new Item(-1, null);
+                done.worker = worker;
+                done.statistics = statistics;
+                analyzed.put(done);
+                return;
+            }
+
+            long start = System.nanoTime();
+            item.worker = worker;
+            item.firstNewWord = vocabulary.size();
+            try {
+                item.words = Dictionary.extractWords(new ChunkChannel(
+                        item.chunks), analyzer, vocabulary);
+            } catch (InterruptedIOException e) {
+                throw new InterruptedException();
+            } catch (IOException e) {
+                // Reading has failed, document is skipped
+                item.words = null;
+            }
+            item.chunks = null;
+
+            item.newWords = new String[vocabulary.size() - item.firstNewWord];
+            for (int i = 0; i < item.newWords.length; i++) {
+                item.newWords[i] = vocabulary.getTerm(item.firstNewWord + i);
+            }
+            if (item.words != null) {
+                statistics.addDocument(item.words);
+            }
+
+            analyzeNanos.addAndGet(System.nanoTime() - start);
+            analyzedCount.incrementAndGet();
+            analyzed.put(item);
+        }
+    }
+
+    /**
+     * Merges analyzed documents into specified vocabulary and documents, in
+     * order of discovery, until every analysis worker finishes. Documents
+     * analyzed before their predecessors wait until predecessors are merged.
+     * Every worker has its own mapping of its word identifiers to identifiers
+     * of shared vocabulary, extended by words passed with documents.
+     * 
+     * @param vocabulary
+     *            Vocabulary to be filled
+     * @param documents
+     *            Paths associated with identifiers of document words to be
+     *            filled
+     * @param stages
+     *            Results of other stages, checked for failures
+     * @return Statistics of all documents
+     * @throws IOException
+     *             If some stage failed
+     * @throws InterruptedException
+     *             If calling thread is interrupted
+     */
+    private CorpusStatistics merge(TermDictionary vocabulary,
+            Map<Path, int[]> documents, List<Future<?>> stages)
+            throws IOException, InterruptedException {
+        int[][] mappings = new int[threads][0];
+        CorpusStatistics[] workerStatistics = new CorpusStatistics[threads];
+        Map<Long, Item> waiting = new HashMap<>();
+        int finished = 0;
+        long nextReport = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(REPORT_INTERVAL_MILLIS);
+
+        while (finished < threads) {
+            Item item = analyzed.poll(REPORT_INTERVAL_MILLIS,
+                    TimeUnit.MILLISECONDS);
+
+            if (item == null) {
+                checkFailures(stages);
+            } else if (item.statistics != null) {
+                workerStatistics[item.worker] = item.statistics;
+                finished++;
+            } else {
+                waiting.put(item.sequence, item);
+            }
+
+            long start = System.nanoTime();
+            for (Item next; (next = waiting.remove(mergedCount)) != null;) {
+                // Words are added in order of their occurrence, same as if
+                // documents were read one after another
+                int[] mapping = mappings[next.worker];
+                if (next.newWords.length > 0) {
+                    mapping = Arrays.copyOf(mapping, next.firstNewWord
+                            + next.newWords.length);
+                    Arrays.fill(mapping, next.firstNewWord, mapping.length, -1);
+                    mappings[next.worker] = mapping;
+                }
+
+                int[] words = next.words;
+                if (words == null) {
+                    // Document was skipped, but words from its part which was
+                    // read can occur in later documents of the same worker
+                    for (int i = 0; i < next.newWords.length; i++) {
+                        mapping[next.firstNewWord + i] = vocabulary
+                                .add(next.newWords[i]);
+                    }
+                } else {
+                    for (int i = 0; i < words.length; i++) {
+                        int word = mapping[words[i]];
+                        if (word < 0) {
+                            word = vocabulary.add(next.newWords[words[i]
+                                    - next.firstNewWord]);
+                            mapping[words[i]] = word;
+                        }
+                        words[i] = word;
+                    }
+                    documents.put(next.file, words);
+                }
+                mergedCount++;
+                inFlight.release();
+            }
+            mergeNanos += System.nanoTime() - start;
+
+            if (listener != null && System.nanoTime() >= nextReport) {
+                listener.accept(progress());
+                nextReport = System.nanoTime()
+                        + TimeUnit.MILLISECONDS.toNanos(REPORT_INTERVAL_MILLIS);
+            }
+        }
+
+        // Every stage has finished, but discovery might have failed
+        checkFailures(stages);
+
+        long start = System.nanoTime();
+        CorpusStatistics statistics = new CorpusStatistics();
+        for (int worker = 0; worker < threads; worker++) {
+            statistics.merge(workerStatistics[worker], mappings[worker]);
+        }
+        mergeNanos += System.nanoTime() - start;
+
+        if (listener != null) {
+            listener.accept(progress());
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Throws failure of first stage which has failed, if there is one.
+     * 
+     * @param stages
+     *            Results of stages
+     * @throws IOException
+     *             If some stage failed
+     * @throws InterruptedException
+     *             If calling thread is interrupted
+     */
+    private static void checkFailures(List<Future<?>> stages)
+            throws IOException, InterruptedException {
+        for (Future<?> stage : stages) {
+            if (!stage.isDone()) {
+                continue;
+            }
+
+            try {
+                stage.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+
+}
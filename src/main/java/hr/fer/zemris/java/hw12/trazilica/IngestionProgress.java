@@ -0,0 +1,195 @@
+package hr.fer.zemris.java.hw12.trazilica;
+
+/**
+ * {@code IngestionProgress} is a snapshot of progress of reading documents
+ * while {@link Dictionary} is being created. It tells how many files every
+ * stage of ingestion has passed on: how many were discovered under root
+ * directory, read from disk, analyzed into words and merged into vocabulary.
+ * Differences between consecutive stages are files waiting for or being
+ * processed by the later stage, so they show which stage holds others back.
+ * Busy times of stages, i.e. times spent working on files rather than waiting
+ * for other stages, show the same from the other side. Busy time of analysis
+ * is summed over all its workers.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class IngestionProgress {
+
+    /** Number of discovered files. */
+    private final long discovered;
+    /** Whether all files were discovered. */
+    private final boolean discoveryDone;
+    /** Number of files read from disk. */
+    private final long read;
+    /** Number of bytes read from disk. */
+    private final long readBytes;
+    /** Number of analyzed files. */
+    private final long analyzed;
+    /** Number of files merged into vocabulary. */
+    private final long merged;
+    /** Time elapsed since ingestion started, in nanoseconds. */
+    private final long elapsedNanos;
+    /** Time discovery was busy, in nanoseconds. */
+    private final long discoverNanos;
+    /** Time reading was busy, in nanoseconds. */
+    private final long readNanos;
+    /** Time analysis was busy, in nanoseconds. */
+    private final long analyzeNanos;
+    /** Time merging was busy, in nanoseconds. */
+    private final long mergeNanos;
+
+    /**
+     * Creates new {@code IngestionProgress} with specified numbers of files
+     * passed on by every stage.
+     * 
+     * @param discovered
+     *            Number of discovered files
+     * @param discoveryDone
+     *            Whether all files were discovered
+     * @param read
+     *            Number of files read from disk
+     * @param readBytes
+     *            Number of bytes read from disk
+     * @param analyzed
+     *            Number of analyzed files
+     * @param merged
+     *            Number of files merged into vocabulary
+     * @param elapsedNanos
+     *            Time elapsed since ingestion started, in nanoseconds
+     * @param discoverNanos
+     *            Time discovery was busy, in nanoseconds
+     * @param readNanos
+     *            Time reading was busy, in nanoseconds
+     * @param analyzeNanos
+     *            Time analysis was busy, in nanoseconds
+     * @param mergeNanos
+     *            Time merging was busy, in nanoseconds
+     */
+    public IngestionProgress(long discovered, boolean discoveryDone,
+            long read, long readBytes, long analyzed, long merged,
+            long elapsedNanos, long discoverNanos, long readNanos,
+            long analyzeNanos, long mergeNanos) {
+        this.discovered = discovered;
+        this.discoveryDone = discoveryDone;
+        this.read = read;
+        this.readBytes = readBytes;
+        this.analyzed = analyzed;
+        this.merged = merged;
+        this.elapsedNanos = elapsedNanos;
+        this.discoverNanos = discoverNanos;
+        this.readNanos = readNanos;
+        this.analyzeNanos = analyzeNanos;
+        this.mergeNanos = mergeNanos;
+    }
+
+    /**
+     * Returns number of files discovered under root directory.
+     * 
+     * @return Number of discovered files
+     */
+    public long getDiscovered() {
+        return discovered;
+    }
+
+    /**
+     * Checks whether all files under root directory were discovered, i.e.
+     * whether {@link #getDiscovered()} is the total number of files.
+     * 
+     * @return {@code true} if discovery is done
+     */
+    public boolean isDiscoveryDone() {
+        return discoveryDone;
+    }
+
+    /**
+     * Returns number of files read from disk.
+     * 
+     * @return Number of read files
+     */
+    public long getRead() {
+        return read;
+    }
+
+    /**
+     * Returns number of bytes read from disk.
+     * 
+     * @return Number of read bytes
+     */
+    public long getReadBytes() {
+        return readBytes;
+    }
+
+    /**
+     * Returns number of files analyzed into words.
+     * 
+     * @return Number of analyzed files
+     */
+    public long getAnalyzed() {
+        return analyzed;
+    }
+
+    /**
+     * Returns number of files merged into vocabulary.
+     * 
+     * @return Number of merged files
+     */
+    public long getMerged() {
+        return merged;
+    }
+
+    /**
+     * Returns time elapsed since ingestion started.
+     * 
+     * @return Elapsed time, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns time discovery of files was busy.
+     * 
+     * @return Busy time of discovery, in nanoseconds
+     */
+    public long getDiscoverNanos() {
+        return discoverNanos;
+    }
+
+    /**
+     * Returns time reading of files was busy.
+     * 
+     * @return Busy time of reading, in nanoseconds
+     */
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    /**
+     * Returns time analysis of files was busy, summed over all workers.
+     * 
+     * @return Busy time of analysis, in nanoseconds
+     */
+    public long getAnalyzeNanos() {
+        return analyzeNanos;
+    }
+
+    /**
+     * Returns time merging of files was busy.
+     * 
+     * @return Busy time of merging, in nanoseconds
+     */
+    public long getMergeNanos() {
+        return mergeNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("discovered %d%s, read %d (%d kB), analyzed %d,"
+                + " merged %d files in %d ms", discovered, discoveryDone ? ""
+                : "+", read, readBytes / 1024, analyzed, merged,
+                elapsedNanos / 1_000_000);
+    }
+
+}
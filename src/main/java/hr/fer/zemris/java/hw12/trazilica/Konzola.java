@@ -1,23 +1,59 @@
 package hr.fer.zemris.java.hw12.trazilica;
 
+import hr.fer.zemris.java.hw12.trazilica.management.Monitoring;
+import hr.fer.zemris.java.hw12.trazilica.naredbe.BatchCommand;
 import hr.fer.zemris.java.hw12.trazilica.naredbe.Command;
 import hr.fer.zemris.java.hw12.trazilica.naredbe.ExitCommand;
 import hr.fer.zemris.java.hw12.trazilica.naredbe.QueryCommand;
 import hr.fer.zemris.java.hw12.trazilica.naredbe.ResultsCommand;
+import hr.fer.zemris.java.hw12.trazilica.naredbe.StatsCommand;
 import hr.fer.zemris.java.hw12.trazilica.naredbe.TypeCommand;
+import hr.fer.zemris.java.hw12.trazilica.server.SearchServer;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * This class is command line application which communicates with user trough
  * simple shell. It provides several commands which can be requested by user,
- * such as query and type commands. This application accepts only one command
- * line argument, path to the root file which contains text files which define
- * language vocabulary. If some error occurs, appropriate message will be
- * printed and program will be terminated.
+ * such as query and type commands. This application accepts path to the root
+ * file which contains text files which define language vocabulary as its first
+ * command line argument, optionally followed by options in form
+ * {@code --name=value}:
+ * <ul>
+ * <li>{@code --threads=N} - number of worker threads used for indexing</li>
+ * <li>{@code --shards=N} - number of shards among which documents are
+ * partitioned, every query is scored by all shards in parallel</li>
+ * <li>{@code --index=FILE} - index file from which dictionary is opened, it is
+ * created if it does not exist or is no longer valid</li>
+ * <li>{@code --stem=true} - words of documents and queries are reduced to
+ * their stems, so different forms of the same word are matched</li>
+ * <li>{@code --offheap=true} - index and document vectors are moved off heap
+ * once dictionary is created, see {@link Dictionary#moveOffHeap()}</li>
+ * <li>{@code --lazy=true} - document vectors are created only when they are
+ * first needed, so prompt appears as soon as index is created, can not be
+ * used together with {@code --index} or {@code --offheap}</li>
+ * <li>{@code --warmup=true} - norms and document vectors are created in
+ * background once dictionary is created, see
+ * {@link Dictionary#startWarmUp()}</li>
+ * <li>{@code --progress=true} - progress of reading documents is printed on
+ * {@code System.err} while dictionary is created</li>
+ * <li>{@code --watch=true} - changes of files under root directory are applied
+ * to dictionary while application is running</li>
+ * <li>{@code --http=PORT} - dictionary is also searchable trough HTTP on
+ * specified port while application is running, see {@link SearchServer}</li>
+ * </ul>
+ * Metrics of dictionary are printed by command {@code stats}, and are also
+ * exposed as management beans, see {@link Monitoring}.
+ * <p>
+ * If some error occurs, appropriate message will be printed and program will
+ * be terminated.
  * 
  * @author Domagoj Penic
  * @version 2.6.2015.
@@ -30,13 +66,22 @@ public class Konzola {
      */
     private static Map<String, Command> commands;
 
+    /**
+     * Names of options which can be provided trough command line arguments.
+     */
+    private static final Set<String> OPTIONS = new HashSet<>(
+            Arrays.asList("threads", "shards", "index", "watch", "http",
+                    "stem", "offheap", "progress", "lazy", "warmup"));
+
     // Initialize available commands
     static {
         commands = new HashMap<>();
 
         commands.put("query", new QueryCommand());
+        commands.put("batch", new BatchCommand());
         commands.put("type", new TypeCommand());
         commands.put("results", new ResultsCommand());
+        commands.put("stats", new StatsCommand());
         commands.put("exit", new ExitCommand());
     }
 
@@ -47,9 +92,9 @@ public class Konzola {
      *            Command line arguments
      */
     public static void main(String[] args) {
-        if (args.length != 1) {
+        if (args.length < 1) {
             terminate(String.format("Illegal number of arguments: %d.%n"
-                    + "Expected only 1, path to the directory"
+                    + "Expected path to the directory"
                     + " with text files.", args.length));
         }
 
@@ -57,8 +102,76 @@ public class Konzola {
         final String stopWords = "dictionary/hrvatski_stoprijeci.txt";
 
         Dictionary dictionary = null;
+        DirectoryWatcher watcher = null;
+        SearchServer server = null;
         try {
-            dictionary = new Dictionary(rootDirectory, stopWords);
+            Map<String, String> options = extractOptions(args);
+            int threads = Integer.parseInt(options.getOrDefault("threads",
+                    "1"));
+            int shards = Integer.parseInt(options.getOrDefault("shards", "1"));
+            boolean watch = Boolean.parseBoolean(options.get("watch"));
+            boolean stem = Boolean.parseBoolean(options.get("stem"));
+            boolean offHeap = Boolean.parseBoolean(options.get("offheap"));
+            boolean lazy = Boolean.parseBoolean(options.get("lazy"));
+            Consumer<IngestionProgress> progress = Boolean
+                    .parseBoolean(options.get("progress")) ? System.err::println
+                    : null;
+
+            String indexFile = options.get("index");
+
+            if (watch && indexFile != null) {
+                throw new IllegalArgumentException("Dictionary opened from"
+                        + " index file can not be watched for changes.");
+            }
+            if (shards != 1 && indexFile != null) {
+                throw new IllegalArgumentException("Dictionary opened from"
+                        + " index file can not be sharded.");
+            }
+            if (offHeap && watch) {
+                throw new IllegalArgumentException("Dictionary moved off heap"
+                        + " can not be watched for changes.");
+            }
+            if (offHeap && shards != 1) {
+                throw new IllegalArgumentException("Dictionary moved off heap"
+                        + " can not be sharded.");
+            }
+            if (lazy && indexFile != null) {
+                throw new IllegalArgumentException("Dictionary opened from"
+                        + " index file can not create vectors lazily.");
+            }
+            if (lazy && offHeap) {
+                throw new IllegalArgumentException("Dictionary moved off heap"
+                        + " can not create vectors lazily.");
+            }
+
+            if (indexFile == null) {
+                dictionary = new Dictionary(rootDirectory, stopWords, threads,
+                        shards, stem, lazy, progress);
+            } else {
+                dictionary = Dictionary.open(rootDirectory, stopWords,
+                        threads, indexFile, stem);
+            }
+            if (offHeap) {
+                dictionary.moveOffHeap();
+            }
+            if (Boolean.parseBoolean(options.get("warmup"))) {
+                dictionary.startWarmUp();
+            }
+
+            Monitoring.register(dictionary);
+
+            if (watch) {
+                watcher = new DirectoryWatcher(dictionary);
+                watcher.start();
+            }
+
+            if (options.containsKey("http")) {
+                server = new SearchServer(dictionary,
+                        Integer.parseInt(options.get("http")));
+                server.start();
+                System.out.println("HTTP server listens on port "
+                        + server.getPort());
+            }
         } catch (IllegalArgumentException | IOException e) {
             terminate(e.getMessage());
         }
@@ -67,6 +180,7 @@ public class Konzola {
                 + dictionary.getVocabulary().size() + " riječi");
         System.out.println();
 
+        Session session = new Session(dictionary);
         Scanner scanner = new Scanner(System.in);
 
         while (true) {
@@ -92,7 +206,7 @@ public class Konzola {
                 continue;
             }
 
-            if (command.execute(dictionary, commandArgument) == Status.TERMINATE) {
+            if (command.execute(session, commandArgument) == Status.TERMINATE) {
                 break;
             }
         }
@@ -100,6 +214,18 @@ public class Konzola {
         System.out.println();
         System.out.println("Thank you and goodbye!");
         scanner.close();
+
+        if (server != null) {
+            server.close();
+        }
+
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                // Application is terminating anyway
+            }
+        }
     }
 
     /**
@@ -115,6 +241,34 @@ public class Konzola {
         System.exit(-1);
     }
 
+    /**
+     * Extracts options from specified command line arguments. All arguments
+     * after the first one must be in form {@code --name=value}.
+     * 
+     * @param args
+     *            Command line arguments
+     * @return Option names associated with their values
+     * @throws IllegalArgumentException
+     *             If some argument is not valid option
+     */
+    private static Map<String, String> extractOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+
+        for (int i = 1; i < args.length; i++) {
+            String[] elements = args[i].split("=", 2);
+
+            if (!elements[0].startsWith("--") || elements.length != 2
+                    || !OPTIONS.contains(elements[0].substring(2))) {
+                throw new IllegalArgumentException("Invalid option: "
+                        + args[i]);
+            }
+
+            options.put(elements[0].substring(2), elements[1]);
+        }
+
+        return options;
+    }
+
     /**
      * Extracts command name from specified line. Name and arguments should be
      * separated with one or more white-spaces.
@@ -0,0 +1,146 @@
+package hr.fer.zemris.java.hw12.trazilica;
+
+import hr.fer.zemris.java.hw12.trazilica.tfidf.CorpusStatistics;
+import hr.fer.zemris.java.hw12.trazilica.tfidf.TfIdfVector;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * {@code ParallelIndexer} creates document vectors of {@link Dictionary} on
+ * pool of worker threads, once all documents are read by
+ * {@link IngestionPipeline}. Documents are divided into parts, and vectors of
+ * every part are created by one worker.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+class ParallelIndexer implements AutoCloseable {
+
+    /** Number of parts given to each worker, used for balancing work. */
+    private static final int PARTS_PER_WORKER = 4;
+
+    /** Number of workers. */
+    private int threads;
+    /** Pool of worker threads. */
+    private ExecutorService pool;
+
+    /**
+     * Creates new {@code ParallelIndexer} with specified number of worker
+     * threads.
+     * 
+     * @param threads
+     *            Number of worker threads
+     * @throws IllegalArgumentException
+     *             If number of threads is not positive
+     */
+    public ParallelIndexer(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException(
+                    "Number of threads must be positive, was: " + threads);
+        }
+
+        this.threads = threads;
+        this.pool = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Creates vectors of specified documents in parallel.
+     * 
+     * @param paths
+     *            Paths of documents which vectors are created
+     * @param documents
+     *            Paths associated with identifiers of document words
+     * @param vocabularySize
+     *            Number of vocabulary words
+     * @param statistics
+     *            Statistics of all documents
+     * @return Vectors in the same order as specified paths
+     * @throws IOException
+     *             If work is interrupted
+     */
+    public List<TfIdfVector> createVectors(List<Path> paths,
+            Map<Path, int[]> documents, int vocabularySize,
+            CorpusStatistics statistics) throws IOException {
+        TfIdfVector[] vectors = new TfIdfVector[paths.size()];
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        int partSize = partSize(paths.size());
+        for (int start = 0; start < paths.size(); start += partSize) {
+            int from = start;
+            int to = Math.min(paths.size(), start + partSize);
+
+            tasks.add(() -> {
+                for (int i = from; i < to; i++) {
+                    vectors[i] = new TfIdfVector(documents.get(paths.get(i)),
+                            vocabularySize, statistics);
+                }
+                return null;
+            });
+        }
+
+        invokeAll(tasks);
+        return Arrays.asList(vectors);
+    }
+
+    /**
+     * Shuts down worker threads.
+     */
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Returns number of elements in each part for specified total number of
+     * elements.
+     * 
+     * @param size
+     *            Total number of elements
+     * @return Number of elements in one part
+     */
+    private int partSize(int size) {
+        return Math.max(1, (size + threads * PARTS_PER_WORKER - 1)
+                / (threads * PARTS_PER_WORKER));
+    }
+
+    /**
+     * Executes all specified tasks and waits for their results.
+     * 
+     * @param tasks
+     *            Tasks to be executed
+     * @return Results of tasks
+     * @throws IOException
+     *             If some task failed or work is interrupted
+     */
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) throws IOException {
+        List<T> results = new ArrayList<>();
+
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Indexing was interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+
+        return results;
+    }
+
+}
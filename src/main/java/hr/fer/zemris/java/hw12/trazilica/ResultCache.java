@@ -0,0 +1,285 @@
+package hr.fer.zemris.java.hw12.trazilica;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code ResultCache} keeps {@link SearchResults} of recent queries, so
+ * repeated query is answered without being scored again. Query is identified
+ * by vocabulary indexes of its words, sorted so that order of words does not
+ * matter, and by number of requested results. When cache is full, the least
+ * recently used results are evicted.
+ * <p>
+ * Results are valid only for version of {@link Dictionary} for which they were
+ * calculated. Whenever cache is used with newer version, all kept results are
+ * invalidated at once, so results calculated before some document was added or
+ * removed are never returned. Cache counts hits, misses, evictions and
+ * invalidations, and can be used by many threads at the same time.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class ResultCache {
+
+    /**
+     * Key of cached results, i.e. sorted vocabulary indexes of query words and
+     * number of requested results.
+     * 
+     * @author Domagoj Penic
+     * @version 2.6.2015.
+     *
+     */
+    private static final class Key {
+
+        /** Sorted vocabulary indexes of query words. */
+        private final int[] terms;
+        /** Number of requested results. */
+        private final int count;
+        /** Hash code of key, calculated once key is created. */
+        private final int hash;
+
+        /**
+         * Creates new {@code Key} of specified query.
+         * 
+         * @param terms
+         *            Vocabulary indexes of query words, in any order
+         * @param count
+         *            Number of requested results
+         */
+        public Key(int[] terms, int count) {
+            this.terms = terms.clone();
+            this.count = count;
+
+            Arrays.sort(this.terms);
+            this.hash = 31 * Arrays.hashCode(this.terms) + count;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) obj;
+            return count == other.count && Arrays.equals(terms, other.terms);
+        }
+
+    }
+
+    /** Maximal number of kept results. */
+    private final int capacity;
+    /** Kept results associated with their keys, in order of use. */
+    private final Map<Key, SearchResults> results;
+    /** Version of dictionary for which kept results are valid. */
+    private long version;
+    /** Whether results are kept and returned. */
+    private boolean enabled = true;
+
+    /** Number of queries answered from cache. */
+    private long hits;
+    /** Number of queries which were not found in cache. */
+    private long misses;
+    /** Number of results evicted since cache was full. */
+    private long evictions;
+    /** Number of results dropped since dictionary was changed. */
+    private long invalidations;
+
+    /**
+     * Creates new {@code ResultCache} which keeps at most specified number of
+     * results.
+     * 
+     * @param capacity
+     *            Maximal number of kept results
+     * @throws IllegalArgumentException
+     *             If capacity is not positive
+     */
+    public ResultCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(
+                    "Capacity of cache must be positive, was: " + capacity);
+        }
+
+        this.capacity = capacity;
+        this.results = new LinkedHashMap<Key, SearchResults>(16, 0.75f,
+                true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Key, SearchResults> eldest) {
+                if (size() > ResultCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+
+                return false;
+            }
+
+        };
+    }
+
+    /**
+     * Returns results of query with specified words and number of results, if
+     * they are kept and valid for specified version of dictionary.
+     * 
+     * @param terms
+     *            Vocabulary indexes of query words
+     * @param count
+     *            Number of requested results
+     * @param version
+     *            Current version of dictionary
+     * @return Kept results, or {@code null} if there are none or cache is
+     *         disabled
+     */
+    public synchronized SearchResults get(int[] terms, int count,
+            long version) {
+        if (!enabled) {
+            return null;
+        }
+        updateVersion(version);
+
+        SearchResults cached = results.get(new Key(terms, count));
+        if (cached == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+
+        return cached;
+    }
+
+    /**
+     * Keeps results of query with specified words and number of results,
+     * calculated for specified version of dictionary.
+     * 
+     * @param terms
+     *            Vocabulary indexes of query words
+     * @param count
+     *            Number of requested results
+     * @param version
+     *            Version of dictionary for which results were calculated
+     * @param searchResults
+     *            Results of query
+     */
+    public synchronized void put(int[] terms, int count, long version,
+            SearchResults searchResults) {
+        if (!enabled) {
+            return;
+        }
+        updateVersion(version);
+
+        // Results of older version may arrive after newer version was seen
+        if (version == this.version) {
+            results.put(new Key(terms, count), searchResults);
+        }
+    }
+
+    /**
+     * Drops all kept results.
+     */
+    public synchronized void clear() {
+        invalidations += results.size();
+        results.clear();
+    }
+
+    /**
+     * Enables or disables this cache. Disabled cache drops all kept results
+     * and neither keeps nor returns any results, which is useful for
+     * measuring cost of scoring.
+     * 
+     * @param enabled
+     *            Whether cache should be enabled
+     */
+    public synchronized void setEnabled(boolean enabled) {
+        if (!enabled) {
+            clear();
+        }
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns whether this cache is enabled.
+     * 
+     * @return {@code true} if results are kept, {@code false} otherwise
+     */
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns maximal number of kept results.
+     * 
+     * @return Capacity of cache
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns number of currently kept results.
+     * 
+     * @return Number of kept results
+     */
+    public synchronized int size() {
+        return results.size();
+    }
+
+    /**
+     * Returns number of queries answered from cache.
+     * 
+     * @return Number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns number of queries which were not found in cache.
+     * 
+     * @return Number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns number of results evicted since cache was full.
+     * 
+     * @return Number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns number of results dropped since dictionary was changed.
+     * 
+     * @return Number of invalidations
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Drops all kept results if specified version is newer than version for
+     * which they were calculated.
+     * 
+     * @param version
+     *            Current version of dictionary
+     */
+    private void updateVersion(long version) {
+        if (version > this.version) {
+            clear();
+            this.version = version;
+        }
+    }
+
+}
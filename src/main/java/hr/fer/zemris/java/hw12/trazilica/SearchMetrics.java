@@ -0,0 +1,223 @@
+package hr.fer.zemris.java.hw12.trazilica;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code SearchMetrics} records where time of {@link Dictionary} goes: how
+ * long every phase of creating dictionary took, and how long every stage of
+ * queries takes on average. Besides timings, number of documents scored by
+ * queries and number of queries answered by result cache are counted.
+ * <p>
+ * Queries are recorded by many threads at once, so their metrics are kept in
+ * {@link LongAdder}s, which do not contend when updated concurrently, and can
+ * be reset without affecting build phases.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class SearchMetrics {
+
+    /**
+     * Stages of query which are timed separately.
+     * 
+     * @author Domagoj Penic
+     * @version 2.6.2015.
+     *
+     */
+    public enum Stage {
+
+        /** Extracting query words and looking up result cache. */
+        PARSE,
+        /** Scoring documents by index. */
+        SCORE,
+        /** Ordering the best documents and creating results. */
+        RANK,
+        /** Printing results to user. */
+        PRINT
+
+    }
+
+    /** Durations of build phases in nanoseconds, in order of phases. */
+    private final Map<String, Long> buildPhases = new LinkedHashMap<>();
+
+    /** Number of queries. */
+    private final LongAdder queries = new LongAdder();
+    /** Number of queries answered by result cache. */
+    private final LongAdder cachedQueries = new LongAdder();
+    /** Total duration of queries in nanoseconds. */
+    private final LongAdder queryNanos = new LongAdder();
+    /** Duration of the slowest query in nanoseconds. */
+    private final LongAccumulator maxQueryNanos = new LongAccumulator(
+            Math::max, 0);
+    /** Total number of documents scored by queries. */
+    private final LongAdder scoredDocuments = new LongAdder();
+    /** Total durations of stages in nanoseconds, associated with stages. */
+    private final LongAdder[] stageNanos = new LongAdder[Stage.values().length];
+    /** Number of times every stage was recorded. */
+    private final LongAdder[] stageCounts = new LongAdder[stageNanos.length];
+
+    /**
+     * Creates new {@code SearchMetrics} with nothing recorded.
+     */
+    public SearchMetrics() {
+        for (int i = 0; i < stageNanos.length; i++) {
+            stageNanos[i] = new LongAdder();
+            stageCounts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records duration of specified phase of creating dictionary. Durations of
+     * phase recorded several times are summed.
+     * 
+     * @param phase
+     *            Name of phase
+     * @param nanos
+     *            Duration in nanoseconds
+     */
+    public synchronized void recordBuildPhase(String phase, long nanos) {
+        buildPhases.merge(phase, nanos, Long::sum);
+    }
+
+    /**
+     * Records duration of specified stage of single query.
+     * 
+     * @param stage
+     *            Stage of query
+     * @param nanos
+     *            Duration in nanoseconds
+     */
+    public void recordStage(Stage stage, long nanos) {
+        stageNanos[stage.ordinal()].add(nanos);
+        stageCounts[stage.ordinal()].increment();
+    }
+
+    /**
+     * Records finished query.
+     * 
+     * @param nanos
+     *            Duration of query in nanoseconds, without printing
+     * @param scored
+     *            Number of documents scored by query
+     * @param cached
+     *            Whether query was answered by result cache
+     */
+    public void recordQuery(long nanos, long scored, boolean cached) {
+        queries.increment();
+        queryNanos.add(nanos);
+        maxQueryNanos.accumulate(nanos);
+        scoredDocuments.add(scored);
+
+        if (cached) {
+            cachedQueries.increment();
+        }
+    }
+
+    /**
+     * Forgets all recorded queries. Build phases are kept.
+     */
+    public void reset() {
+        queries.reset();
+        cachedQueries.reset();
+        queryNanos.reset();
+        maxQueryNanos.reset();
+        scoredDocuments.reset();
+
+        for (int i = 0; i < stageNanos.length; i++) {
+            stageNanos[i].reset();
+            stageCounts[i].reset();
+        }
+    }
+
+    /**
+     * Returns durations of build phases in milliseconds, in order in which
+     * phases were first recorded.
+     * 
+     * @return Phases associated with their durations
+     */
+    public synchronized Map<String, Long> getBuildPhaseMillis() {
+        Map<String, Long> millis = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> phase : buildPhases.entrySet()) {
+            millis.put(phase.getKey(),
+                    TimeUnit.NANOSECONDS.toMillis(phase.getValue()));
+        }
+
+        return millis;
+    }
+
+    /**
+     * Returns number of recorded queries.
+     * 
+     * @return Number of queries
+     */
+    public long getQueryCount() {
+        return queries.sum();
+    }
+
+    /**
+     * Returns number of recorded queries answered by result cache.
+     * 
+     * @return Number of cached queries
+     */
+    public long getCachedQueryCount() {
+        return cachedQueries.sum();
+    }
+
+    /**
+     * Returns average duration of query in microseconds.
+     * 
+     * @return Average duration of query, 0 if there are no queries
+     */
+    public double getAverageQueryMicros() {
+        return average(queryNanos.sum(), queries.sum()) / 1000;
+    }
+
+    /**
+     * Returns duration of the slowest query in microseconds.
+     * 
+     * @return Maximal duration of query
+     */
+    public double getMaxQueryMicros() {
+        return maxQueryNanos.get() / 1000.0;
+    }
+
+    /**
+     * Returns average duration of specified stage of query in microseconds.
+     * 
+     * @param stage
+     *            Stage of query
+     * @return Average duration of stage, 0 if stage was not recorded
+     */
+    public double getAverageStageMicros(Stage stage) {
+        return average(stageNanos[stage.ordinal()].sum(),
+                stageCounts[stage.ordinal()].sum()) / 1000;
+    }
+
+    /**
+     * Returns average number of documents scored by query.
+     * 
+     * @return Average number of scored documents, 0 if there are no queries
+     */
+    public double getAverageScoredDocuments() {
+        return average(scoredDocuments.sum(), queries.sum());
+    }
+
+    /**
+     * Divides specified total by specified count.
+     * 
+     * @param total
+     *            Total value
+     * @param count
+     *            Number of values
+     * @return Average value, 0 if count is 0
+     */
+    private static double average(long total, long count) {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+}
@@ -0,0 +1,112 @@
+package hr.fer.zemris.java.hw12.trazilica;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@code SearchResults} holds documents found by single query, ordered from the
+ * most similar one, together with their similarities with query and words of
+ * query which were found in vocabulary. Results are immutable, so they can be
+ * shared between threads, and every result can be accessed by its rank in
+ * constant time.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class SearchResults {
+
+    /** Results containing no documents. */
+    public static final SearchResults EMPTY = new SearchResults(
+            Collections.emptyList(), new Path[0], new double[0]);
+
+    /** Words of query found in vocabulary. */
+    private final List<String> query;
+    /** Paths of found documents. */
+    private final Path[] documents;
+    /** Similarities of found documents. */
+    private final double[] similarities;
+
+    /**
+     * Creates new {@code SearchResults} of query with specified words, with
+     * specified documents and their similarities, both ordered from the most
+     * similar document.
+     * 
+     * @param query
+     *            Words of query found in vocabulary
+     * @param documents
+     *            Paths of found documents
+     * @param similarities
+     *            Similarities of found documents
+     * @throws IllegalArgumentException
+     *             If arrays are not of the same length
+     */
+    public SearchResults(List<String> query, Path[] documents,
+            double[] similarities) {
+        if (documents.length != similarities.length) {
+            throw new IllegalArgumentException(
+                    "Every document must have its similarity.");
+        }
+
+        this.query = Collections.unmodifiableList(new ArrayList<>(query));
+        this.documents = documents.clone();
+        this.similarities = similarities.clone();
+    }
+
+    /**
+     * Returns words of query found in vocabulary, in order in which they were
+     * given.
+     * 
+     * @return Unmodifiable list of query words
+     */
+    public List<String> getQuery() {
+        return query;
+    }
+
+    /**
+     * Returns {@code SearchResults} with the same documents as these, but of
+     * query with specified words. Used when the same documents are found for
+     * the same words given in different order.
+     * 
+     * @param query
+     *            Words of query found in vocabulary
+     * @return Results of query with specified words
+     */
+    public SearchResults withQuery(List<String> query) {
+        return new SearchResults(query, documents, similarities);
+    }
+
+    /**
+     * Returns number of found documents.
+     * 
+     * @return Number of documents
+     */
+    public int size() {
+        return documents.length;
+    }
+
+    /**
+     * Returns path of document with specified rank.
+     * 
+     * @param rank
+     *            Rank of document, 0 for the most similar one
+     * @return Path of document
+     */
+    public Path getDocument(int rank) {
+        return documents[rank];
+    }
+
+    /**
+     * Returns similarity of document with specified rank.
+     * 
+     * @param rank
+     *            Rank of document, 0 for the most similar one
+     * @return Similarity of document
+     */
+    public double getSimilarity(int rank) {
+        return similarities[rank];
+    }
+
+}
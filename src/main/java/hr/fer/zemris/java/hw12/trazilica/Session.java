@@ -0,0 +1,60 @@
+package hr.fer.zemris.java.hw12.trazilica;
+
+/**
+ * {@code Session} holds state of single user searching some {@link Dictionary},
+ * i.e. results of last query made by user, which are referred to by later
+ * commands. Dictionary itself is shared by all sessions, so many users can
+ * search it at the same time, each one trough its own {@code Session}.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class Session {
+
+    /** Dictionary searched by user. */
+    private final Dictionary dictionary;
+    /** Results of last query specified by user. */
+    private volatile SearchResults currentResults;
+
+    /**
+     * Creates new {@code Session} searching specified {@code Dictionary}.
+     * 
+     * @param dictionary
+     *            Dictionary searched by user
+     */
+    public Session(Dictionary dictionary) {
+        this.dictionary = dictionary;
+        this.currentResults = SearchResults.EMPTY;
+    }
+
+    /**
+     * Returns {@link Dictionary} searched by user.
+     * 
+     * @return Searched dictionary
+     */
+    public Dictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Returns documents and their similarities as a result of last query. If
+     * this call is made before query command, results will be empty.
+     * 
+     * @return Current results
+     */
+    public SearchResults getCurrentResults() {
+        return currentResults;
+    }
+
+    /**
+     * Sets results of last query.
+     * 
+     * @param currentResults
+     *            Results of last query
+     */
+    public void setCurrentResults(SearchResults currentResults) {
+        this.currentResults = currentResults;
+    }
+
+}
@@ -0,0 +1,96 @@
+package hr.fer.zemris.java.hw12.trazilica.analysis;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * {@code Analyzer} turns text into words which are indexed and searched. Text
+ * is split into lower case words by {@link Tokenizer}, and every word then
+ * passes trough {@link TokenFilter}s in order in which they are given, such
+ * as {@link StopFilter} and {@link CroatianStemmer}. Word dropped by some
+ * filter is not passed to following filters. Documents and queries must be
+ * analyzed by analyzers with the same filters, so their words match.
+ * <p>
+ * Like {@code Tokenizer}, {@code Analyzer} reuses its buffers and filters may
+ * keep state, so it should be used for many texts, but only by one thread at
+ * a time.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class Analyzer {
+
+    /** Tokenizer splitting text into words. */
+    private final Tokenizer tokenizer = new Tokenizer();
+    /** Filters applied to every word, in order. */
+    private final TokenFilter[] filters;
+
+    /**
+     * Creates new {@code Analyzer} applying specified filters.
+     * 
+     * @param filters
+     *            Filters applied to every word, in order
+     */
+    public Analyzer(TokenFilter... filters) {
+        this.filters = Arrays.copyOf(filters, filters.length);
+    }
+
+    /**
+     * Reads UTF-8 text from specified channel until its end and passes every
+     * word which is not dropped by filters to specified consumer. Channel is
+     * not closed.
+     * 
+     * @param channel
+     *            Channel providing text
+     * @param consumer
+     *            Consumer of filtered words
+     * @throws IOException
+     *             If IO error occurs
+     */
+    public void analyze(ReadableByteChannel channel, TokenConsumer consumer)
+            throws IOException {
+        tokenizer.tokenize(channel, filtered(consumer));
+    }
+
+    /**
+     * Passes every word of specified text which is not dropped by filters to
+     * specified consumer.
+     * 
+     * @param text
+     *            Text to be analyzed
+     * @param consumer
+     *            Consumer of filtered words
+     */
+    public void analyze(CharSequence text, TokenConsumer consumer) {
+        tokenizer.tokenize(text, filtered(consumer));
+    }
+
+    /**
+     * Returns consumer which applies filters to every word and passes it to
+     * specified consumer, unless it was dropped.
+     * 
+     * @param consumer
+     *            Consumer of filtered words
+     * @return Consumer of words found by tokenizer
+     */
+    private TokenConsumer filtered(TokenConsumer consumer) {
+        if (filters.length == 0) {
+            return consumer;
+        }
+
+        return (buffer, length) -> {
+            for (TokenFilter filter : filters) {
+                length = filter.filter(buffer, length);
+
+                if (length == 0) {
+                    return;
+                }
+            }
+
+            consumer.accept(buffer, length);
+        };
+    }
+
+}
@@ -0,0 +1,92 @@
+package hr.fer.zemris.java.hw12.trazilica.analysis;
+
+import hr.fer.zemris.java.hw12.trazilica.index.TermDictionary;
+
+import java.util.Arrays;
+
+/**
+ * {@code CachingFilter} is a {@link TokenFilter} which remembers results of
+ * other filter, so every distinct word is passed to that filter only once.
+ * Words are looked up directly from token buffer, and remembered results are
+ * copied into it, so nothing is allocated for words seen before. Useful for
+ * filters which are more expensive than lookup, such as stemmers, since
+ * natural text repeats the same words over and over.
+ * <p>
+ * At most specified number of words is remembered, once cache is full new
+ * words are filtered without being remembered. Cache is not thread-safe, just
+ * like {@link Analyzer} it is part of.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class CachingFilter implements TokenFilter {
+
+    /** Initial number of remembered results. */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** Filter which results are remembered. */
+    private final TokenFilter filter;
+    /** Maximal number of remembered words. */
+    private final int capacity;
+    /** Remembered words, identifiers are indexes of their results. */
+    private final TermDictionary words = new TermDictionary();
+    /** Remembered results, empty for dropped words. */
+    private char[][] results = new char[INITIAL_CAPACITY][];
+
+    /**
+     * Creates new {@code CachingFilter} remembering results of specified
+     * filter for at most specified number of words.
+     * 
+     * @param filter
+     *            Filter which results are remembered
+     * @param capacity
+     *            Maximal number of remembered words
+     * @throws IllegalArgumentException
+     *             If capacity is negative
+     */
+    public CachingFilter(TokenFilter filter, int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException(
+                    "Capacity must not be negative, was: " + capacity);
+        }
+
+        this.filter = filter;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public int filter(char[] buffer, int length) {
+        int word = words.find(buffer, 0, length);
+
+        if (word >= 0) {
+            char[] result = results[word];
+            System.arraycopy(result, 0, buffer, 0, result.length);
+            return result.length;
+        }
+
+        if (words.size() == capacity) {
+            return filter.filter(buffer, length);
+        }
+
+        word = words.add(buffer, 0, length);
+        int filtered = filter.filter(buffer, length);
+
+        if (word == results.length) {
+            results = Arrays.copyOf(results, results.length * 2);
+        }
+        results[word] = Arrays.copyOf(buffer, filtered);
+
+        return filtered;
+    }
+
+    /**
+     * Returns number of remembered words.
+     * 
+     * @return Number of remembered words
+     */
+    public int size() {
+        return words.size();
+    }
+
+}
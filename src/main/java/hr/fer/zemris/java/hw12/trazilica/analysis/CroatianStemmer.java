@@ -0,0 +1,121 @@
+package hr.fer.zemris.java.hw12.trazilica.analysis;
+
+/**
+ * {@code CroatianStemmer} is a light stemmer of Croatian language, i.e. a
+ * {@link TokenFilter} which strips the most common inflectional suffix from
+ * word, so different cases and numbers of the same noun or adjective, such as
+ * <i>savez</i>, <i>saveza</i>, <i>savezu</i> and <i>savezima</i>, become the
+ * same stem. Infinitives and active past participles of verbs lose their
+ * endings as well.
+ * <p>
+ * Only single suffix is stripped, the longest one which leaves stem of at
+ * least {@value #MIN_STEM_LENGTH} characters containing vowel or syllabic
+ * <i>r</i>. Stemmer does not know exceptions, so some unrelated words share
+ * their stems and some forms with changed stem, such as <i>pas</i> and
+ * <i>psa</i>, stay apart, which is usual trade-off of light stemming.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class CroatianStemmer implements TokenFilter {
+
+    /** Minimal length of stem. */
+    public static final int MIN_STEM_LENGTH = 3;
+
+    /** Suffixes which are stripped, the longest ones first. */
+    private static final char[][] SUFFIXES = toCharArrays(
+            // Plural instrumental and dative of nouns
+            "ovima", "evima",
+            // Cases of adjectives and nouns
+            "ega", "emu", "oga", "ome", "omu", "ama", "ima", "ovi", "evi",
+            "ova", "eva", "ove", "eve",
+            // Infinitives of verbs
+            "ati", "iti", "eti",
+            // Cases of adjectives and nouns, past participles of verbs
+            "og", "om", "em", "eg", "oj", "im", "ih", "ao", "io",
+            // Case endings
+            "a", "e", "i", "o", "u");
+
+    @Override
+    public int filter(char[] buffer, int length) {
+        for (char[] suffix : SUFFIXES) {
+            int stemLength = length - suffix.length;
+
+            if (stemLength >= MIN_STEM_LENGTH
+                    && endsWith(buffer, length, suffix)
+                    && hasVowel(buffer, stemLength)) {
+                return stemLength;
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Checks whether word held by first characters of specified buffer ends
+     * with specified suffix.
+     * 
+     * @param buffer
+     *            Buffer holding word
+     * @param length
+     *            Number of word characters
+     * @param suffix
+     *            Suffix, not longer than word
+     * @return {@code true} if word ends with suffix
+     */
+    private static boolean endsWith(char[] buffer, int length, char[] suffix) {
+        for (int i = 1; i <= suffix.length; i++) {
+            if (buffer[length - i] != suffix[suffix.length - i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks whether specified number of first characters of specified buffer
+     * contain vowel or letter <i>r</i>, which can form syllable in Croatian.
+     * 
+     * @param buffer
+     *            Buffer holding stem
+     * @param length
+     *            Number of stem characters
+     * @return {@code true} if stem contains vowel
+     */
+    private static boolean hasVowel(char[] buffer, int length) {
+        for (int i = 0; i < length; i++) {
+            switch (buffer[i]) {
+            case 'a':
+            case 'e':
+            case 'i':
+            case 'o':
+            case 'u':
+            case 'r':
+                return true;
+            default:
+                break;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Converts specified strings to arrays of characters.
+     * 
+     * @param strings
+     *            Strings to be converted
+     * @return Arrays of characters of strings
+     */
+    private static char[][] toCharArrays(String... strings) {
+        char[][] arrays = new char[strings.length][];
+        for (int i = 0; i < strings.length; i++) {
+            arrays[i] = strings[i].toCharArray();
+        }
+
+        return arrays;
+    }
+
+}
@@ -0,0 +1,34 @@
+package hr.fer.zemris.java.hw12.trazilica.analysis;
+
+import hr.fer.zemris.java.hw12.trazilica.index.TermDictionary;
+
+/**
+ * {@code StopFilter} is a {@link TokenFilter} which drops stop-words of
+ * current language and leaves other words unchanged. Stop-words are looked up
+ * directly from token buffer, so no string is created for them.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class StopFilter implements TokenFilter {
+
+    /** Stop-words of current language. */
+    private final TermDictionary stopWords;
+
+    /**
+     * Creates new {@code StopFilter} dropping specified stop-words.
+     * 
+     * @param stopWords
+     *            Stop-words of current language
+     */
+    public StopFilter(TermDictionary stopWords) {
+        this.stopWords = stopWords;
+    }
+
+    @Override
+    public int filter(char[] buffer, int length) {
+        return stopWords.find(buffer, 0, length) < 0 ? length : 0;
+    }
+
+}
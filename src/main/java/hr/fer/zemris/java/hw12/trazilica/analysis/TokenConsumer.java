@@ -0,0 +1,25 @@
+package hr.fer.zemris.java.hw12.trazilica.analysis;
+
+/**
+ * {@code TokenConsumer} receives tokens found by {@link Tokenizer}. Token is
+ * given as part of character buffer owned by tokenizer, which is reused for
+ * next token, so consumer has to copy characters it wants to keep.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+@FunctionalInterface
+public interface TokenConsumer {
+
+    /**
+     * Accepts token held by first characters of specified buffer.
+     * 
+     * @param buffer
+     *            Buffer holding token
+     * @param length
+     *            Number of token characters
+     */
+    void accept(char[] buffer, int length);
+
+}
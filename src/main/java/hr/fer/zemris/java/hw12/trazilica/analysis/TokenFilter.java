@@ -0,0 +1,27 @@
+package hr.fer.zemris.java.hw12.trazilica.analysis;
+
+/**
+ * {@code TokenFilter} is single stage of {@link Analyzer}, which changes or
+ * drops words found by {@link Tokenizer}. Word is changed in place, inside
+ * buffer holding it, and can only become shorter.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+@FunctionalInterface
+public interface TokenFilter {
+
+    /**
+     * Filters token held by first characters of specified buffer.
+     * 
+     * @param buffer
+     *            Buffer holding token, changed token is written in its place
+     * @param length
+     *            Number of token characters
+     * @return Number of characters of changed token, not greater than
+     *         specified length, or 0 if token is dropped
+     */
+    int filter(char[] buffer, int length);
+
+}
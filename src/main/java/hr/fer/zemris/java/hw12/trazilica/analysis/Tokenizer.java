@@ -0,0 +1,186 @@
+package hr.fer.zemris.java.hw12.trazilica.analysis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * {@code Tokenizer} splits text into words. Word is every maximal sequence of
+ * letters of Croatian alphabet, i.e. English letters and letters š, đ, ž, č
+ * and ć, in either case. All other characters separate words. Words are
+ * converted to lower case while they are being read.
+ * <p>
+ * Text can be read from channel, in which case it is decoded as UTF-8 in
+ * blocks of fixed size, so whole text is never held in memory. Buffers are
+ * allocated when first needed and reused for every text, so single
+ * {@code Tokenizer} should be used for many texts, but only by one thread at a
+ * time.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class Tokenizer {
+
+    /** Size of byte and character buffers. */
+    private static final int BUFFER_SIZE = 8192;
+    /** Initial capacity of token buffer. */
+    private static final int TOKEN_CAPACITY = 32;
+
+    /** Buffer of bytes read from channel. */
+    private ByteBuffer bytes;
+    /** Buffer of decoded characters. */
+    private CharBuffer characters;
+    /** Decoder of UTF-8 text. */
+    private CharsetDecoder decoder;
+
+    /** Buffer holding characters of current token. */
+    private char[] token;
+    /** Number of characters of current token. */
+    private int length;
+
+    /**
+     * Creates new {@code Tokenizer}.
+     */
+    public Tokenizer() {
+        token = new char[TOKEN_CAPACITY];
+    }
+
+    /**
+     * Reads UTF-8 text from specified channel until its end and passes every
+     * found word to specified consumer. Channel is not closed.
+     * 
+     * @param channel
+     *            Channel providing text
+     * @param consumer
+     *            Consumer of found words
+     * @throws IOException
+     *             If IO error occurs
+     */
+    public void tokenize(ReadableByteChannel channel, TokenConsumer consumer)
+            throws IOException {
+        if (decoder == null) {
+            bytes = ByteBuffer.allocate(BUFFER_SIZE);
+            characters = CharBuffer.allocate(BUFFER_SIZE);
+            decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        bytes.clear();
+        characters.clear();
+        decoder.reset();
+        length = 0;
+
+        boolean endOfInput = false;
+        while (true) {
+            if (!endOfInput && channel.read(bytes) < 0) {
+                endOfInput = true;
+            }
+
+            bytes.flip();
+            CoderResult result = decoder.decode(bytes, characters, endOfInput);
+            bytes.compact();
+            consume(consumer);
+
+            if (endOfInput && result.isUnderflow()) {
+                decoder.flush(characters);
+                consume(consumer);
+                break;
+            }
+        }
+
+        finishToken(consumer);
+    }
+
+    /**
+     * Passes every word of specified text to specified consumer.
+     * 
+     * @param text
+     *            Text to be split into words
+     * @param consumer
+     *            Consumer of found words
+     */
+    public void tokenize(CharSequence text, TokenConsumer consumer) {
+        length = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            accept(text.charAt(i), consumer);
+        }
+
+        finishToken(consumer);
+    }
+
+    /**
+     * Checks whether specified lower case character is letter of Croatian
+     * alphabet.
+     * 
+     * @param c
+     *            Lower case character
+     * @return {@code true} if character is letter, {@code false} otherwise
+     */
+    public static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || c == 'š' || c == 'đ' || c == 'ž'
+                || c == 'č' || c == 'ć';
+    }
+
+    /**
+     * Passes all decoded characters to {@link #accept(char, TokenConsumer)}
+     * and empties character buffer.
+     * 
+     * @param consumer
+     *            Consumer of found words
+     */
+    private void consume(TokenConsumer consumer) {
+        characters.flip();
+
+        while (characters.hasRemaining()) {
+            accept(characters.get(), consumer);
+        }
+
+        characters.clear();
+    }
+
+    /**
+     * Appends specified character to current token if it is letter, otherwise
+     * finishes current token.
+     * 
+     * @param c
+     *            Next character of text
+     * @param consumer
+     *            Consumer of found words
+     */
+    private void accept(char c, TokenConsumer consumer) {
+        char lowerCase = Character.toLowerCase(c);
+
+        if (!isLetter(lowerCase)) {
+            finishToken(consumer);
+            return;
+        }
+
+        if (length == token.length) {
+            token = Arrays.copyOf(token, length * 2);
+        }
+        token[length++] = lowerCase;
+    }
+
+    /**
+     * Passes current token to consumer, if there is one, and starts new one.
+     * 
+     * @param consumer
+     *            Consumer of found words
+     */
+    private void finishToken(TokenConsumer consumer) {
+        if (length > 0) {
+            consumer.accept(token, length);
+            length = 0;
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+import java.util.Arrays;
+
+/**
+ * {@code ArrayPostingList} is a {@link PostingList} which keeps its postings in
+ * arrays on heap. Postings are appended in ascending order of document
+ * identifiers and can be removed, so the list can follow changes of documents.
+ * Once list is no longer changed, it can be turned into
+ * {@link CompressedPostingList} taking much less memory.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class ArrayPostingList implements PostingList {
+
+    /**
+     * {@link PostingCursor} reading postings of this list.
+     * 
+     * @author Domagoj Penic
+     * @version 2.6.2015.
+     *
+     */
+    private class Cursor implements PostingCursor {
+
+        /** Position of current posting. */
+        private int index = -1;
+
+        @Override
+        public boolean next() {
+            if (index + 1 >= size) {
+                index = size;
+                return false;
+            }
+
+            index++;
+            return true;
+        }
+
+        @Override
+        public boolean advance(int target) {
+            if (index + 1 >= size) {
+                index = size;
+                return false;
+            }
+
+            int position = Arrays.binarySearch(documents, index + 1, size,
+                    target);
+            index = position >= 0 ? position : -position - 1;
+
+            return index < size;
+        }
+
+        @Override
+        public int document() {
+            return documents[index];
+        }
+
+        @Override
+        public int frequency() {
+            return frequencies[index];
+        }
+
+    }
+
+    /** Initial capacity of posting arrays. */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /** Identifiers of documents containing word. */
+    private int[] documents;
+    /** Occurrences of word inside documents. */
+    private int[] frequencies;
+    /** Number of postings stored. */
+    private int size;
+
+    /**
+     * Creates new empty {@code ArrayPostingList}.
+     */
+    public ArrayPostingList() {
+        documents = new int[INITIAL_CAPACITY];
+        frequencies = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Creates new {@code ArrayPostingList} holding the same postings as
+     * specified list.
+     * 
+     * @param list
+     *            List which postings are copied
+     */
+    public ArrayPostingList(PostingList list) {
+        documents = new int[Math.max(INITIAL_CAPACITY, list.size())];
+        frequencies = new int[documents.length];
+
+        PostingCursor cursor = list.cursor();
+        while (cursor.next()) {
+            documents[size] = cursor.document();
+            frequencies[size] = cursor.frequency();
+            size++;
+        }
+    }
+
+    /**
+     * Adds new posting at the end of this list. Document identifier must be
+     * greater than identifiers of all documents already in list.
+     * 
+     * @param document
+     *            Identifier of document containing word
+     * @param frequency
+     *            Number of occurrences of word inside document
+     * @throws IllegalArgumentException
+     *             If document identifier is not greater than last one
+     */
+    public void add(int document, int frequency) {
+        if (size > 0 && documents[size - 1] >= document) {
+            throw new IllegalArgumentException(
+                    "Postings must be added in ascending order of documents.");
+        }
+
+        if (size == documents.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+            documents = Arrays.copyOf(documents, capacity);
+            frequencies = Arrays.copyOf(frequencies, capacity);
+        }
+
+        documents[size] = document;
+        frequencies[size] = frequency;
+        size++;
+    }
+
+    /**
+     * Removes posting of specified document, if it exists.
+     * 
+     * @param document
+     *            Identifier of document to be removed
+     */
+    public void remove(int document) {
+        int position = Arrays.binarySearch(documents, 0, size, document);
+
+        if (position >= 0) {
+            System.arraycopy(documents, position + 1, documents, position,
+                    size - position - 1);
+            System.arraycopy(frequencies, position + 1, frequencies,
+                    position, size - position - 1);
+            size--;
+        }
+    }
+
+    /**
+     * Releases unused capacity of this list. Should be called once all
+     * postings are added.
+     */
+    public void trim() {
+        documents = Arrays.copyOf(documents, size);
+        frequencies = Arrays.copyOf(frequencies, size);
+    }
+
+    /**
+     * Returns {@link CompressedPostingList} holding the same postings as this
+     * list.
+     * 
+     * @return Compressed copy of this list
+     */
+    public CompressedPostingList compress() {
+        return new CompressedPostingList(documents, frequencies, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public PostingCursor cursor() {
+        return new Cursor();
+    }
+
+    @Override
+    public long estimateHeapSize() {
+        return HeapSize.object(2 * HeapSize.REFERENCE + Integer.BYTES)
+                + 2 * HeapSize.array(documents.length, Integer.BYTES);
+    }
+
+}
@@ -0,0 +1,269 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * {@code CompressedPostingList} is a {@link PostingList} which reads its
+ * postings from compressed form, held either in buffer on heap or in content
+ * of index file mapped into memory. Only absolute reads are used, so the same
+ * buffer can be shared by many lists and threads.
+ * <p>
+ * Document identifiers are stored as differences from previous identifier,
+ * and both differences and frequencies are written in variable-byte form,
+ * seven bits in every byte with highest bit set on all bytes but the last. So
+ * most postings of frequent words take only two bytes instead of eight.
+ * <p>
+ * Postings are divided into blocks of {@value #BLOCK_SIZE}, and every block
+ * but the first one has skip pointer holding identifier of last document of
+ * previous block and position of block. {@link PostingCursor#advance(int)}
+ * finds target block by binary search of skip pointers and decodes only that
+ * block. List is laid out as:
+ * <ul>
+ * <li>number of postings, as 4-byte integer</li>
+ * <li>skip pointers, as pairs of 4-byte integers</li>
+ * <li>postings, as pairs of variable-byte difference and frequency</li>
+ * </ul>
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class CompressedPostingList implements PostingList {
+
+    /** Number of postings in block of postings. */
+    public static final int BLOCK_SIZE = 128;
+
+    /** Size of single skip pointer, in bytes. */
+    private static final int SKIP_SIZE = 2 * Integer.BYTES;
+
+    /**
+     * {@link PostingCursor} decoding postings of this list.
+     * 
+     * @author Domagoj Penic
+     * @version 2.6.2015.
+     *
+     */
+    private class Cursor implements PostingCursor {
+
+        /** Number of postings read. */
+        private int index;
+        /** Position of next posting inside buffer. */
+        private int position = postingsStart;
+        /** Document identifier of current posting. */
+        private int document;
+        /** Frequency of current posting. */
+        private int frequency;
+
+        @Override
+        public boolean next() {
+            if (index == size) {
+                return false;
+            }
+
+            document += readVariableByte();
+            frequency = readVariableByte();
+            index++;
+
+            return true;
+        }
+
+        @Override
+        public boolean advance(int target) {
+            // Last block which previous block ends before target
+            int low = index / BLOCK_SIZE + 1;
+            int high = blockCount - 1;
+            int block = -1;
+
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+
+                if (buffer.getInt(skip(middle)) < target) {
+                    block = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+
+            if (block >= 0) {
+                document = buffer.getInt(skip(block));
+                position = postingsStart
+                        + buffer.getInt(skip(block) + Integer.BYTES);
+                index = block * BLOCK_SIZE;
+            }
+
+            while (next()) {
+                if (document >= target) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        @Override
+        public int document() {
+            return document;
+        }
+
+        @Override
+        public int frequency() {
+            return frequency;
+        }
+
+        /**
+         * Reads variable-byte integer at current position.
+         * 
+         * @return Integer read
+         */
+        private int readVariableByte() {
+            int value = 0;
+            int shift = 0;
+
+            byte b;
+            do {
+                b = buffer.get(position++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            return value;
+        }
+
+    }
+
+    /** Buffer holding postings. */
+    private final ByteBuffer buffer;
+    /** Number of postings. */
+    private final int size;
+    /** Number of blocks of postings. */
+    private final int blockCount;
+    /** Position of first skip pointer inside buffer. */
+    private final int skipsStart;
+    /** Position of first posting inside buffer. */
+    private final int postingsStart;
+
+    /**
+     * Creates new {@code CompressedPostingList} which starts at specified
+     * position of specified buffer.
+     * 
+     * @param buffer
+     *            Buffer holding postings
+     * @param offset
+     *            Position of list inside buffer
+     */
+    public CompressedPostingList(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.size = buffer.getInt(offset);
+        this.blockCount = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        this.skipsStart = offset + Integer.BYTES;
+        this.postingsStart = skipsStart + Math.max(0, blockCount - 1)
+                * SKIP_SIZE;
+    }
+
+    /**
+     * Creates new {@code CompressedPostingList} on heap holding specified
+     * postings.
+     * 
+     * @param documents
+     *            Document identifiers, sorted ascending
+     * @param frequencies
+     *            Frequencies associated with documents
+     * @param size
+     *            Number of postings
+     */
+    public CompressedPostingList(int[] documents, int[] frequencies, int size) {
+        this(ByteBuffer.wrap(encode(documents, frequencies, size)), 0);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public PostingCursor cursor() {
+        return new Cursor();
+    }
+
+    @Override
+    public long estimateHeapSize() {
+        long size = HeapSize.object(HeapSize.REFERENCE + 4 * Integer.BYTES);
+
+        // Buffer of mapped index file is shared and not on heap
+        if (buffer.hasArray()) {
+            size += HeapSize.array(buffer.array().length, Byte.BYTES);
+        }
+
+        return size;
+    }
+
+    /**
+     * Returns position of skip pointer of specified block.
+     * 
+     * @param block
+     *            Index of block, greater than 0
+     * @return Position of skip pointer inside buffer
+     */
+    private int skip(int block) {
+        return skipsStart + (block - 1) * SKIP_SIZE;
+    }
+
+    /**
+     * Encodes specified postings into compressed form read by
+     * {@code CompressedPostingList}.
+     * 
+     * @param documents
+     *            Document identifiers, sorted ascending
+     * @param frequencies
+     *            Frequencies associated with documents
+     * @param size
+     *            Number of postings
+     * @return Compressed postings
+     */
+    public static byte[] encode(int[] documents, int[] frequencies, int size) {
+        int blockCount = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        ByteBuffer skips = ByteBuffer.allocate(Integer.BYTES
+                + Math.max(0, blockCount - 1) * SKIP_SIZE);
+        ByteArrayOutputStream postings = new ByteArrayOutputStream(size * 2);
+
+        skips.putInt(size);
+        int previous = 0;
+        for (int i = 0; i < size; i++) {
+            if (i > 0 && i % BLOCK_SIZE == 0) {
+                skips.putInt(previous);
+                skips.putInt(postings.size());
+            }
+
+            writeVariableByte(postings, documents[i] - previous);
+            writeVariableByte(postings, frequencies[i]);
+            previous = documents[i];
+        }
+
+        byte[] encoded = new byte[skips.capacity() + postings.size()];
+        System.arraycopy(skips.array(), 0, encoded, 0, skips.capacity());
+        System.arraycopy(postings.toByteArray(), 0, encoded,
+                skips.capacity(), postings.size());
+
+        return encoded;
+    }
+
+    /**
+     * Writes specified non-negative integer in variable-byte form.
+     * 
+     * @param output
+     *            Output to which bytes are written
+     * @param value
+     *            Integer to be written
+     */
+    private static void writeVariableByte(ByteArrayOutputStream output,
+            int value) {
+        while ((value & ~0x7F) != 0) {
+            output.write(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+
+}
@@ -0,0 +1,67 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+/**
+ * {@code HeapSize} estimates number of bytes taken on heap by objects and
+ * arrays, assuming 64-bit virtual machine with compressed references, where
+ * every object has 12-byte header, every array 16-byte header and all of them
+ * are aligned to 8 bytes. Estimates are used only for reporting memory
+ * footprint of dictionary structures, so they do not have to be exact.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public final class HeapSize {
+
+    /** Size of reference. */
+    public static final int REFERENCE = 4;
+
+    /** Size of object header. */
+    private static final int OBJECT_HEADER = 12;
+    /** Size of array header, including its length. */
+    private static final int ARRAY_HEADER = 16;
+    /** Alignment of objects. */
+    private static final int ALIGNMENT = 8;
+
+    /**
+     * Disable creation of instances.
+     */
+    private HeapSize() {
+    }
+
+    /**
+     * Returns size of object with fields of specified total size.
+     * 
+     * @param fieldsSize
+     *            Total size of fields of object
+     * @return Size of object
+     */
+    public static long object(int fieldsSize) {
+        return align(OBJECT_HEADER + fieldsSize);
+    }
+
+    /**
+     * Returns size of array with specified length and size of elements.
+     * 
+     * @param length
+     *            Length of array
+     * @param elementSize
+     *            Size of single element
+     * @return Size of array
+     */
+    public static long array(int length, int elementSize) {
+        return align(ARRAY_HEADER + (long) length * elementSize);
+    }
+
+    /**
+     * Rounds specified size up to alignment of objects.
+     * 
+     * @param size
+     *            Size in bytes
+     * @return Aligned size
+     */
+    private static long align(long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+}
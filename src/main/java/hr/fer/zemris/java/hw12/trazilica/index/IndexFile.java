@@ -0,0 +1,475 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+import hr.fer.zemris.java.hw12.trazilica.tfidf.CorpusStatistics;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * {@code IndexFile} represents binary file holding complete index of documents,
+ * so it can be reused without reading and tokenizing documents again. File is
+ * mapped into memory when opened: vocabulary and document table are read on
+ * heap, while document norms and posting lists are read directly from mapped
+ * content by {@link MappedIndex}.
+ * <p>
+ * File consists of following sections, all numbers are big-endian and all
+ * strings are written as length followed by UTF-8 bytes:
+ * <ul>
+ * <li>header: magic number, format version, whether words were reduced
+ * to their stems, and absolute path and CRC-32 checksum of stop-words
+ * file</li>
+ * <li>document table: number of documents, then path relative to root
+ * directory, size and last modification time of every document</li>
+ * <li>vocabulary: number of words, then every word with its document
+ * frequency and total number of occurrences</li>
+ * <li>norms of document vectors</li>
+ * <li>positions of posting lists inside file</li>
+ * <li>posting lists, compressed as described by
+ * {@link CompressedPostingList}</li>
+ * </ul>
+ * Document table and stop-words file are used for checking whether index is
+ * still valid for root directory, i.e. whether no file was added, removed or
+ * modified and stop-words did not change since index was written.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class IndexFile {
+
+    /** Magic number which starts every index file. */
+    public static final int MAGIC = 0x545A4958;
+    /** Version of index file format. */
+    public static final int VERSION = 5;
+
+    /** Paths of documents relative to root directory. */
+    private List<String> documents;
+    /** Sizes of documents, in bytes. */
+    private long[] sizes;
+    /** Last modification times of documents, in milliseconds. */
+    private long[] lastModifiedTimes;
+    /** Whether words were reduced to their stems. */
+    private boolean stemmed;
+    /** Absolute path of stop-words file. */
+    private String stopWordsPath;
+    /** Checksum of content of stop-words file. */
+    private long stopWordsChecksum;
+
+    /** Vocabulary words identified by their vector indexes. */
+    private TermDictionary terms;
+    /** Statistics of indexed documents. */
+    private CorpusStatistics statistics;
+    /** Index reading from mapped content. */
+    private MappedIndex index;
+
+    /**
+     * Creates new empty {@code IndexFile}, filled when file is opened.
+     */
+    private IndexFile() {
+    }
+
+    /**
+     * Writes index of specified documents into file with specified path. File
+     * is first written under temporary name and then moved to its place, so
+     * previous index is never left partially overwritten.
+     * 
+     * @param file
+     *            Path of index file
+     * @param rootDirectory
+     *            Root directory of all documents
+     * @param documents
+     *            Document paths ordered by their identifiers, {@code null} for
+     *            removed documents which are left out of file
+     * @param terms
+     *            Vocabulary words identified by their vector indexes
+     * @param statistics
+     *            Statistics of all documents
+     * @param index
+     *            Index of all documents
+     * @param stemmed
+     *            Whether words were reduced to their stems
+     * @param stopWords
+     *            Path of file with stop-words left out of vocabulary
+     * @throws IOException
+     *             If IO error occurs or index is too large
+     */
+    public static void write(Path file, Path rootDirectory,
+            List<Path> documents, TermDictionary terms,
+            CorpusStatistics statistics, InvertedIndex index, boolean stemmed,
+            Path stopWords) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeBoolean(stemmed);
+            writeString(output, stopWords.toAbsolutePath().normalize()
+                    .toString());
+            output.writeLong(checksum(stopWords));
+
+            // Documents are written without gaps left by removed ones
+            int[] identifiers = new int[documents.size()];
+            List<Path> written = new ArrayList<>();
+            for (int document = 0; document < documents.size(); document++) {
+                if (documents.get(document) != null) {
+                    identifiers[document] = written.size();
+                    written.add(documents.get(document));
+                }
+            }
+
+            // Document table
+            output.writeInt(written.size());
+            for (Path document : written) {
+                writeString(output, rootDirectory.relativize(document)
+                        .toString());
+                output.writeLong(Files.size(document));
+                output.writeLong(Files.getLastModifiedTime(document)
+                        .toMillis());
+            }
+
+            // Vocabulary
+            output.writeInt(terms.size());
+            for (int term = 0; term < terms.size(); term++) {
+                writeString(output, terms.getTerm(term));
+                output.writeInt(statistics.getDocumentFrequency(term));
+                output.writeInt(statistics.getTotalCount(term));
+            }
+
+            // Norms
+            for (int document = 0; document < documents.size(); document++) {
+                if (documents.get(document) != null) {
+                    output.writeDouble(index.getNorm(document));
+                }
+            }
+
+            // Lists are compressed first, since their sizes are needed
+            List<byte[]> lists = new ArrayList<>(terms.size());
+            for (int word = 0; word < terms.size(); word++) {
+                PostingList list = index.getPostings(word);
+                int[] listDocuments = new int[list.size()];
+                int[] listFrequencies = new int[list.size()];
+
+                PostingCursor cursor = list.cursor();
+                for (int i = 0; cursor.next(); i++) {
+                    listDocuments[i] = identifiers[cursor.document()];
+                    listFrequencies[i] = cursor.frequency();
+                }
+
+                lists.add(CompressedPostingList.encode(listDocuments,
+                        listFrequencies, list.size()));
+            }
+
+            // Positions of posting lists
+            long offset = (long) output.size() + terms.size() * Integer.BYTES;
+            for (byte[] list : lists) {
+                if (offset > Integer.MAX_VALUE) {
+                    throw new IOException("Index is too large to be written.");
+                }
+                output.writeInt((int) offset);
+
+                offset += list.length;
+            }
+
+            // Posting lists
+            for (byte[] list : lists) {
+                output.write(list);
+            }
+        }
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Opens index file with specified path by mapping its content into memory.
+     * 
+     * @param file
+     *            Path of index file
+     * @return Opened index file
+     * @throws IOException
+     *             If IO error occurs, file is not an index file, its version
+     *             is not supported or its content is damaged
+     */
+    public static IndexFile open(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Index file is too large: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        }
+
+        try {
+            return read(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException
+                | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException("Index file is damaged: " + file, e);
+        }
+    }
+
+    /**
+     * Reads index from specified buffer holding content of index file.
+     * 
+     * @param buffer
+     *            Content of index file
+     * @return Index file
+     * @throws IOException
+     *             If content is not an index file or its version is not
+     *             supported
+     */
+    private static IndexFile read(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("File is not an index file.");
+        }
+
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported index file version: " + version);
+        }
+
+        IndexFile file = new IndexFile();
+        file.stemmed = buffer.get() != 0;
+        file.stopWordsPath = readString(buffer);
+        file.stopWordsChecksum = buffer.getLong();
+
+        // Document table
+        int documentCount = buffer.getInt();
+        file.documents = new ArrayList<>(documentCount);
+        file.sizes = new long[documentCount];
+        file.lastModifiedTimes = new long[documentCount];
+
+        for (int document = 0; document < documentCount; document++) {
+            file.documents.add(readString(buffer));
+            file.sizes[document] = buffer.getLong();
+            file.lastModifiedTimes[document] = buffer.getLong();
+        }
+
+        // Vocabulary
+        int vocabularySize = buffer.getInt();
+        file.terms = new TermDictionary();
+        int[] documentFrequencies = new int[vocabularySize];
+        int[] totalCounts = new int[vocabularySize];
+
+        for (int term = 0; term < vocabularySize; term++) {
+            if (file.terms.add(readString(buffer)) != term) {
+                throw new IOException("Index file contains duplicate word.");
+            }
+            documentFrequencies[term] = buffer.getInt();
+            totalCounts[term] = buffer.getInt();
+        }
+        file.terms.trim();
+
+        file.statistics = new CorpusStatistics(documentCount,
+                documentFrequencies, totalCounts);
+
+        // Norms and posting lists stay inside mapped buffer
+        DoubleBuffer norms = buffer.slice().asDoubleBuffer();
+        norms.limit(documentCount);
+        buffer.position(buffer.position() + documentCount * Double.BYTES);
+
+        IntBuffer offsets = buffer.slice().asIntBuffer();
+        offsets.limit(vocabularySize);
+
+        buffer.position(0);
+        file.index = new MappedIndex(buffer, offsets, norms);
+
+        return file;
+    }
+
+    /**
+     * Returns whether words of indexed documents were reduced to their stems.
+     * 
+     * @return {@code true} if words were stemmed, {@code false} otherwise
+     */
+    public boolean isStemmed() {
+        return stemmed;
+    }
+
+    /**
+     * Checks whether this index is valid for specified root directory and
+     * stop-words file, i.e. whether root directory contains exactly the same
+     * files, with the same sizes and modification times, and stop-words are
+     * read from the same file with the same content as when index was written.
+     * 
+     * @param rootDirectory
+     *            Root directory of all documents
+     * @param stopWords
+     *            Path of file with stop-words
+     * @return {@code true} if index is valid, {@code false} otherwise
+     * @throws IOException
+     *             If IO error occurs
+     */
+    public boolean isValidFor(Path rootDirectory, Path stopWords)
+            throws IOException {
+        if (!stopWordsPath.equals(stopWords.toAbsolutePath().normalize()
+                .toString())
+                || stopWordsChecksum != checksum(stopWords)) {
+            return false;
+        }
+
+        List<Path> files = listFiles(rootDirectory);
+
+        if (files.size() != documents.size()) {
+            return false;
+        }
+
+        for (int document = 0; document < files.size(); document++) {
+            Path file = files.get(document);
+
+            if (!file.equals(rootDirectory.resolve(documents.get(document)))
+                    || Files.size(file) != sizes[document]
+                    || Files.getLastModifiedTime(file).toMillis()
+                            != lastModifiedTimes[document]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns paths of all indexed documents ordered by their identifiers.
+     * 
+     * @param rootDirectory
+     *            Root directory against which relative paths are resolved
+     * @return Paths of documents
+     */
+    public List<Path> getDocuments(Path rootDirectory) {
+        List<Path> paths = new ArrayList<>(documents.size());
+
+        for (String document : documents) {
+            paths.add(rootDirectory.resolve(document));
+        }
+
+        return paths;
+    }
+
+    /**
+     * Returns vocabulary words identified by their vector indexes.
+     * 
+     * @return Vocabulary words
+     */
+    public TermDictionary getTerms() {
+        return terms;
+    }
+
+    /**
+     * Returns statistics of indexed documents.
+     * 
+     * @return Statistics of documents
+     */
+    public CorpusStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Returns {@link MappedIndex} reading from mapped content of this file.
+     * 
+     * @return Index of documents
+     */
+    public MappedIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns paths of all regular files under specified root directory,
+     * sorted. Files which can not be visited are skipped.
+     * 
+     * @param rootDirectory
+     *            Root directory
+     * @return Sorted paths of files
+     * @throws IOException
+     *             If IO error occurs
+     */
+    private static List<Path> listFiles(Path rootDirectory) throws IOException {
+        List<Path> files = new ArrayList<>();
+
+        Files.walkFileTree(rootDirectory, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path file,
+                    BasicFileAttributes attrs) throws IOException {
+                files.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc)
+                    throws IOException {
+                return FileVisitResult.CONTINUE;
+            }
+
+        });
+
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Returns CRC-32 checksum of content of specified file.
+     * 
+     * @param file
+     *            Path of file
+     * @return Checksum of file
+     * @throws IOException
+     *             If file can not be read
+     */
+    private static long checksum(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(Files.readAllBytes(file));
+
+        return crc.getValue();
+    }
+
+    /**
+     * Writes specified string as its length followed by its UTF-8 bytes.
+     * 
+     * @param output
+     *            Output stream
+     * @param string
+     *            String to be written
+     * @throws IOException
+     *             If IO error occurs
+     */
+    private static void writeString(DataOutputStream output, String string)
+            throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Reads string written by {@link #writeString(DataOutputStream, String)}
+     * from current position of specified buffer.
+     * 
+     * @param buffer
+     *            Buffer to read from
+     * @return String read
+     */
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,524 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+import hr.fer.zemris.java.hw12.trazilica.tfidf.TfIdfVector;
+
+import java.util.Arrays;
+
+/**
+ * {@code InvertedIndex} associates every vocabulary word with
+ * {@link PostingList} of documents which contain that word. Queries are scored
+ * term-at-a-time: posting lists of query words are walked one after another and
+ * partial scalar products are accumulated per document, so only documents which
+ * share at least one word with query are ever touched.
+ * <p>
+ * Postings hold only TF values, IDF value of every word is calculated from
+ * length of its posting list and number of documents, and TF-IDF weights are
+ * obtained while scoring.
+ * <p>
+ * When only K best documents are needed, queries can instead be scored
+ * document-at-a-time by MaxScore algorithm, see
+ * {@link #scoreTopK(TfIdfVector, TopKCollector)}, which skips documents that
+ * can not be among them. Concrete indexes either keep postings on heap, see
+ * {@link MemoryIndex}, or read them directly from index file mapped into
+ * memory, see {@link MappedIndex}.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public abstract class InvertedIndex {
+
+    /** Minimal number of query words for which scoring is pruned. */
+    private static final int MIN_PRUNED_WORDS = 3;
+    /**
+     * Maximal number of query words for which scoring is pruned. Longer
+     * queries keep most of their words essential, so walking postings
+     * document-at-a-time costs more than it skips.
+     */
+    private static final int MAX_PRUNED_WORDS = 32;
+    /** Identifier after all document identifiers, marking end of postings. */
+    static final int NO_MORE_DOCUMENTS = Integer.MAX_VALUE;
+    /** Factor by which bounds are raised against rounding errors. */
+    private static final double BOUND_SLACK = 1 + 1e-9;
+
+    /**
+     * Maximal TF values of words divided by norms of documents, associated
+     * with vocabulary indexes, {@code null} if not yet calculated.
+     */
+    private volatile double[] maxWeights;
+
+    /**
+     * Returns {@link PostingList} of word with specified vocabulary index.
+     * 
+     * @param index
+     *            Vocabulary index of word
+     * @return Posting list of word
+     */
+    public abstract PostingList getPostings(int index);
+
+    /**
+     * Returns number of vocabulary words indexed.
+     * 
+     * @return Number of posting lists
+     */
+    public abstract int getVocabularySize();
+
+    /**
+     * Returns number of documents indexed.
+     * 
+     * @return Number of documents
+     */
+    public abstract int getDocumentCount();
+
+    /**
+     * Returns upper bound of document identifiers, i.e. every document
+     * identifier is less than returned value. It can be greater than number
+     * of documents if some documents were removed.
+     * 
+     * @return Upper bound of document identifiers
+     */
+    public abstract int getDocumentIdBound();
+
+    /**
+     * Returns norm of TF-IDF vector of document with specified identifier.
+     * 
+     * @param document
+     *            Document identifier
+     * @return Norm of document vector
+     */
+    public abstract double getNorm(int document);
+
+    /**
+     * Returns IDF value of word with specified vocabulary index, calculated as
+     * logarithm of number of documents divided by number of documents which
+     * contain word. If word is not contained by any document, 0 is returned.
+     * 
+     * @param index
+     *            Vocabulary index of word
+     * @return IDF value of word
+     */
+    public double getIdf(int index) {
+        int count = getPostings(index).size();
+
+        if (count == 0) {
+            return 0;
+        }
+
+        return Math.log((double) getDocumentCount() / count);
+    }
+
+    /**
+     * Returns the greatest TF value of word with specified vocabulary index
+     * inside some document divided by norm of that document vector. Multiplied
+     * by weight of word inside query and divided by norm of query vector, it
+     * gives upper bound of contribution of word to similarity of any document.
+     * Values of all words are calculated at once when first needed, and kept
+     * until {@link #clearMaxWeights()} is called.
+     * 
+     * @param index
+     *            Vocabulary index of word
+     * @return Maximal normalized TF value of word
+     */
+    public double getMaxWeight(int index) {
+        double[] current = maxWeights;
+        if (current == null) {
+            current = calculateMaxWeights();
+        }
+
+        return index < current.length ? current[index] : 0;
+    }
+
+    /**
+     * Calculates values which are otherwise calculated by the first search
+     * after documents change, i.e. norms of documents and values returned by
+     * {@link #getMaxWeight(int)}, so that search does not wait for them.
+     */
+    public void warmUp() {
+        // Norms of all documents are calculated together with maximal weights
+        getMaxWeight(0);
+    }
+
+    /**
+     * Forgets values calculated by {@link #getMaxWeight(int)}. Must be called
+     * by indexes which can be changed whenever some document is added or
+     * removed.
+     */
+    protected void clearMaxWeights() {
+        maxWeights = null;
+    }
+
+    /**
+     * Returns estimated number of bytes taken by this index on heap. Only
+     * values calculated by {@link #getMaxWeight(int)} are counted here,
+     * concrete indexes add their own postings and norms.
+     * 
+     * @return Estimated size of index
+     */
+    public long estimateHeapSize() {
+        double[] current = maxWeights;
+
+        return current == null ? 0 : HeapSize.array(current.length,
+                Double.BYTES);
+    }
+
+    /**
+     * Calculates values returned by {@link #getMaxWeight(int)} for all words
+     * by single pass over all posting lists, unless some other thread has
+     * already calculated them.
+     * 
+     * @return Maximal normalized TF values of words
+     */
+    private synchronized double[] calculateMaxWeights() {
+        if (maxWeights == null) {
+            double[] calculated = new double[getVocabularySize()];
+
+            for (int index = 0; index < calculated.length; index++) {
+                PostingCursor cursor = getPostings(index).cursor();
+
+                while (cursor.next()) {
+                    double norm = getNorm(cursor.document());
+
+                    if (norm > 0) {
+                        calculated[index] = Math.max(calculated[index],
+                                cursor.frequency() / norm);
+                    }
+                }
+            }
+
+            maxWeights = calculated;
+        }
+
+        return maxWeights;
+    }
+
+    /**
+     * Calculates cosine similarity between specified query vector and every
+     * document which contains at least one query word. Every positive
+     * similarity is passed to specified collector, in order in which
+     * documents were first reached.
+     * 
+     * @param query
+     *            Vector representing query
+     * @param collector
+     *            Collector of document similarities
+     */
+    public void score(TfIdfVector query, ScoreCollector collector) {
+        if (query.norm() == 0) {
+            return;
+        }
+
+        double[] accumulators = new double[getDocumentIdBound()];
+        int[] touched = new int[accumulators.length];
+        int touchedCount = 0;
+
+        for (int i = 0; i < query.nonZeroCount(); i++) {
+            PostingCursor cursor = getPostings(query.indexAt(i)).cursor();
+            double queryWeight = query.valueAt(i) * getIdf(query.indexAt(i));
+
+            while (cursor.next()) {
+                double product = queryWeight * cursor.frequency();
+
+                if (product > 0) {
+                    int document = cursor.document();
+                    if (accumulators[document] == 0) {
+                        touched[touchedCount++] = document;
+                    }
+                    accumulators[document] += product;
+                }
+            }
+        }
+
+        for (int i = 0; i < touchedCount; i++) {
+            int document = touched[i];
+            collector.collect(document, accumulators[document]
+                    / (query.norm() * getNorm(document)));
+        }
+    }
+
+    /**
+     * Passes documents the most similar to specified query vector to specified
+     * collector, which keeps only K of them. Kept documents and their
+     * similarities are the same as if query was scored by
+     * {@link #score(TfIdfVector, ScoreCollector)}, but documents which can not
+     * be kept are skipped.
+     * <p>
+     * Queries of {@value #MIN_PRUNED_WORDS} to {@value #MAX_PRUNED_WORDS}
+     * words are scored document-at-a-time by MaxScore algorithm, other queries
+     * are scored exhaustively. Every query word gets upper bound of its
+     * contribution to similarity, see {@link #getMaxWeight(int)}, and words are
+     * ordered by their bounds. Words whose bounds together do not exceed
+     * similarity of the worst kept document are non-essential: they can not
+     * bring any new document among kept ones, so candidates are taken only from
+     * posting lists of essential words, kept in heap ordered by their current
+     * documents, and non-essential lists are only advanced to candidates.
+     * Evaluation of candidate stops as soon as its partial similarity together
+     * with bounds of remaining words can not exceed the threshold.
+     * Contributions of candidate are summed in the same
+     * order as by term-at-a-time scoring, so similarities are exactly equal.
+     * 
+     * @param query
+     *            Vector representing query
+     * @param collector
+     *            Collector keeping K the most similar documents
+     */
+    public void scoreTopK(TfIdfVector query, TopKCollector collector) {
+        int size = query.nonZeroCount();
+        if (query.norm() == 0) {
+            return;
+        }
+        if (size < MIN_PRUNED_WORDS || size > MAX_PRUNED_WORDS) {
+            score(query, collector);
+            return;
+        }
+
+        double[] weights = new double[size];
+        double[] bounds = new double[size];
+        PostingCursor[] cursors = new PostingCursor[size];
+        int[] current = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            int index = query.indexAt(i);
+            weights[i] = query.valueAt(i) * getIdf(index);
+            cursors[i] = getPostings(index).cursor();
+
+            // Words contained by all documents contribute nothing
+            if (weights[i] > 0 && cursors[i].next()) {
+                bounds[i] = weights[i] * getMaxWeight(index) / query.norm()
+                        * BOUND_SLACK;
+                current[i] = cursors[i].document();
+            } else {
+                current[i] = NO_MORE_DOCUMENTS;
+            }
+        }
+
+        // Positions of query words ordered by their bounds, ascending
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            int j = i;
+            for (; j > 0 && bounds[order[j - 1]] > bounds[i]; j--) {
+                order[j] = order[j - 1];
+            }
+            order[j] = i;
+        }
+
+        double[] cumulativeBounds = new double[size];
+        for (int k = 0; k < size; k++) {
+            cumulativeBounds[k] = (k > 0 ? cumulativeBounds[k - 1] : 0)
+                    + bounds[order[k]];
+        }
+
+        double[] products = new double[size];
+        int[] matched = new int[size];
+        int[] heap = new int[size];
+        int heapSize = 0;
+        int essential = -1;
+
+        while (true) {
+            // Essential words change only when threshold rises
+            double threshold = collector.getThreshold();
+            int firstEssential = Math.max(0, essential);
+            while (firstEssential < size
+                    && cumulativeBounds[firstEssential] <= threshold) {
+                firstEssential++;
+            }
+            if (firstEssential == size) {
+                break;
+            }
+            if (firstEssential != essential) {
+                essential = firstEssential;
+                heapSize = size - essential;
+                System.arraycopy(order, essential, heap, 0, heapSize);
+                for (int position = heapSize / 2 - 1; position >= 0;
+                        position--) {
+                    siftDown(heap, heapSize, position, current);
+                }
+            }
+
+            int document = current[heap[0]];
+            if (document == NO_MORE_DOCUMENTS) {
+                break;
+            }
+
+            double normalization = query.norm() * getNorm(document);
+            double partial = 0;
+            int matchedCount = 0;
+
+            while (current[heap[0]] == document) {
+                int i = heap[0];
+                products[i] = weights[i] * cursors[i].frequency();
+                partial += products[i] / normalization;
+                matched[matchedCount++] = i;
+
+                current[i] = cursors[i].next() ? cursors[i].document()
+                        : NO_MORE_DOCUMENTS;
+                siftDown(heap, heapSize, 0, current);
+            }
+
+            boolean candidate = true;
+            for (int k = essential - 1; k >= 0; k--) {
+                if (partial + cumulativeBounds[k] <= threshold) {
+                    candidate = false;
+                    break;
+                }
+
+                int i = order[k];
+                if (current[i] < document) {
+                    current[i] = cursors[i].advance(document) ? cursors[i]
+                            .document() : NO_MORE_DOCUMENTS;
+                }
+                if (current[i] == document) {
+                    products[i] = weights[i] * cursors[i].frequency();
+                    partial += products[i] / normalization;
+                    matched[matchedCount++] = i;
+                }
+            }
+
+            if (candidate) {
+                // Summed in order of query words, same as term-at-a-time
+                Arrays.sort(matched, 0, matchedCount);
+
+                double product = 0;
+                for (int j = 0; j < matchedCount; j++) {
+                    product += products[matched[j]];
+                }
+
+                collector.collect(document, product / normalization);
+            }
+        }
+    }
+
+    /**
+     * Moves query word at specified position of heap of posting cursors down
+     * until heap property holds, i.e. until every word is positioned on
+     * document not greater than documents of its children.
+     * 
+     * @param heap
+     *            Positions of query words, arranged as heap
+     * @param heapSize
+     *            Size of heap
+     * @param position
+     *            Position inside heap
+     * @param current
+     *            Current documents of query words
+     */
+    private static void siftDown(int[] heap, int heapSize, int position,
+            int[] current) {
+        while (2 * position + 1 < heapSize) {
+            int child = 2 * position + 1;
+
+            if (child + 1 < heapSize
+                    && current[heap[child + 1]] < current[heap[child]]) {
+                child++;
+            }
+
+            if (current[heap[position]] <= current[heap[child]]) {
+                break;
+            }
+
+            int word = heap[position];
+            heap[position] = heap[child];
+            heap[child] = word;
+            position = child;
+        }
+    }
+
+    /**
+     * Scores batch of queries the same way as {@link #score(TfIdfVector,
+     * ScoreCollector)}, passing similarities of every query to collector on
+     * the same position. Query words are grouped by vocabulary index, so
+     * posting list of word shared by several queries is walked only once and
+     * every posting is added to accumulators of all those queries. Results are
+     * equal to results of scoring queries one by one.
+     * <p>
+     * Every query of batch has its own accumulators as large as upper bound of
+     * document identifiers, so very large batches should be split by caller.
+     * 
+     * @param queries
+     *            Vectors representing queries
+     * @param collectors
+     *            Collectors of document similarities, associated with queries
+     * @throws IllegalArgumentException
+     *             If number of collectors differs from number of queries
+     */
+    public void score(TfIdfVector[] queries, ScoreCollector[] collectors) {
+        if (queries.length != collectors.length) {
+            throw new IllegalArgumentException("Every query needs collector.");
+        }
+
+        int entryCount = 0;
+        for (TfIdfVector query : queries) {
+            if (query.norm() != 0) {
+                entryCount += query.nonZeroCount();
+            }
+        }
+
+        // Entries hold vocabulary index in upper half and position in lower
+        // half, so after sorting all entries of the same word are adjacent
+        long[] entries = new long[entryCount];
+        int[] owners = new int[entryCount];
+        double[] weights = new double[entryCount];
+        double[][] accumulators = new double[queries.length][];
+        int[][] touched = new int[queries.length][];
+        int[] touchedCounts = new int[queries.length];
+
+        int position = 0;
+        for (int q = 0; q < queries.length; q++) {
+            TfIdfVector query = queries[q];
+            if (query.norm() == 0) {
+                continue;
+            }
+
+            accumulators[q] = new double[getDocumentIdBound()];
+            touched[q] = new int[accumulators[q].length];
+            for (int i = 0; i < query.nonZeroCount(); i++) {
+                entries[position] = (long) query.indexAt(i) << 32 | position;
+                owners[position] = q;
+                weights[position] = query.valueAt(i);
+                position++;
+            }
+        }
+        Arrays.sort(entries);
+
+        int[] groupOwners = new int[queries.length];
+        double[] groupWeights = new double[queries.length];
+        for (int start = 0; start < entryCount;) {
+            int index = (int) (entries[start] >>> 32);
+            double idf = getIdf(index);
+
+            int groupSize = 0;
+            while (start < entryCount
+                    && (int) (entries[start] >>> 32) == index) {
+                int entry = (int) entries[start++];
+                groupOwners[groupSize] = owners[entry];
+                groupWeights[groupSize++] = weights[entry] * idf;
+            }
+
+            PostingCursor cursor = getPostings(index).cursor();
+            while (cursor.next()) {
+                int document = cursor.document();
+                int frequency = cursor.frequency();
+
+                for (int k = 0; k < groupSize; k++) {
+                    double product = groupWeights[k] * frequency;
+
+                    if (product > 0) {
+                        int q = groupOwners[k];
+                        if (accumulators[q][document] == 0) {
+                            touched[q][touchedCounts[q]++] = document;
+                        }
+                        accumulators[q][document] += product;
+                    }
+                }
+            }
+        }
+
+        for (int q = 0; q < queries.length; q++) {
+            for (int i = 0; i < touchedCounts[q]; i++) {
+                int document = touched[q][i];
+                collectors[q].collect(document, accumulators[q][document]
+                        / (queries[q].norm() * getNorm(document)));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,183 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code MappedIndex} is an {@link InvertedIndex} which reads posting lists
+ * and document norms directly from content of index file mapped into memory,
+ * as written by {@link IndexFile}. This index can not be changed.
+ * <p>
+ * Any other index can be copied into {@code MappedIndex} held in direct buffer
+ * by {@link #copyOf(InvertedIndex)}, in the same layout as inside index file.
+ * Such index takes almost nothing on heap, so garbage collector neither
+ * traces nor copies its postings and norms, however large the corpus is.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class MappedIndex extends InvertedIndex {
+
+    /** Buffer holding posting lists. */
+    private ByteBuffer postingsBuffer;
+    /** Positions of posting lists inside buffer. */
+    private IntBuffer postingsOffsets;
+    /** Norms of document vectors associated with document identifiers. */
+    private DoubleBuffer norms;
+    /** Number of documents, without removed ones. */
+    private int documentCount;
+
+    /**
+     * Creates new {@code MappedIndex} which reads posting lists from specified
+     * buffer. Every list is laid out as described by
+     * {@link CompressedPostingList}.
+     * 
+     * @param postingsBuffer
+     *            Buffer holding posting lists
+     * @param postingsOffsets
+     *            Positions of posting lists associated with vocabulary indexes
+     * @param norms
+     *            Norms of document vectors associated with document
+     *            identifiers
+     */
+    public MappedIndex(ByteBuffer postingsBuffer, IntBuffer postingsOffsets,
+            DoubleBuffer norms) {
+        this(postingsBuffer, postingsOffsets, norms, norms.limit());
+    }
+
+    /**
+     * Creates new {@code MappedIndex} same as
+     * {@link #MappedIndex(ByteBuffer, IntBuffer, DoubleBuffer)}, but with
+     * specified number of documents, which is less than number of norms if
+     * some document identifiers belong to removed documents.
+     * 
+     * @param postingsBuffer
+     *            Buffer holding posting lists
+     * @param postingsOffsets
+     *            Positions of posting lists associated with vocabulary indexes
+     * @param norms
+     *            Norms of document vectors associated with document
+     *            identifiers
+     * @param documentCount
+     *            Number of documents, without removed ones
+     */
+    public MappedIndex(ByteBuffer postingsBuffer, IntBuffer postingsOffsets,
+            DoubleBuffer norms, int documentCount) {
+        this.postingsBuffer = postingsBuffer;
+        this.postingsOffsets = postingsOffsets;
+        this.norms = norms;
+        this.documentCount = documentCount;
+    }
+
+    /**
+     * Copies specified index into new {@code MappedIndex} held in single
+     * direct buffer, outside of heap. Buffer holds norms of all document
+     * identifiers, positions of posting lists and posting lists compressed as
+     * described by {@link CompressedPostingList}. Document identifiers stay the
+     * same, identifiers of removed documents get norm 0 and no postings.
+     * <p>
+     * Direct buffers are limited by {@code -XX:MaxDirectMemorySize}, which is
+     * by default equal to maximal heap size.
+     * 
+     * @param index
+     *            Index which is copied
+     * @return Copy of index outside of heap
+     * @throws IllegalArgumentException
+     *             If index is too large to be held by single buffer
+     */
+    public static MappedIndex copyOf(InvertedIndex index) {
+        int bound = index.getDocumentIdBound();
+        int vocabularySize = index.getVocabularySize();
+
+        // Lists are compressed first, since their sizes are needed
+        List<byte[]> lists = new ArrayList<>(vocabularySize);
+        long size = (long) bound * Double.BYTES + (long) vocabularySize
+                * Integer.BYTES;
+        for (int word = 0; word < vocabularySize; word++) {
+            PostingList list = index.getPostings(word);
+            int[] documents = new int[list.size()];
+            int[] frequencies = new int[list.size()];
+
+            PostingCursor cursor = list.cursor();
+            for (int i = 0; cursor.next(); i++) {
+                documents[i] = cursor.document();
+                frequencies[i] = cursor.frequency();
+            }
+
+            byte[] encoded = CompressedPostingList.encode(documents,
+                    frequencies, list.size());
+            lists.add(encoded);
+            size += encoded.length;
+        }
+
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "Index is too large to be held by single buffer.");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+        for (int document = 0; document < bound; document++) {
+            buffer.putDouble(index.getNorm(document));
+        }
+
+        int offset = buffer.position() + vocabularySize * Integer.BYTES;
+        for (byte[] list : lists) {
+            buffer.putInt(offset);
+            offset += list.length;
+        }
+        for (byte[] list : lists) {
+            buffer.put(list);
+        }
+
+        buffer.position(0);
+        DoubleBuffer norms = buffer.asDoubleBuffer();
+        norms.limit(bound);
+        buffer.position(bound * Double.BYTES);
+        IntBuffer offsets = buffer.slice().asIntBuffer();
+        offsets.limit(vocabularySize);
+        buffer.position(0);
+
+        return new MappedIndex(buffer, offsets, norms,
+                index.getDocumentCount());
+    }
+
+    /**
+     * Returns number of bytes of buffer from which this index reads.
+     * 
+     * @return Size of buffer
+     */
+    public long getBufferSize() {
+        return postingsBuffer.capacity();
+    }
+
+    @Override
+    public PostingList getPostings(int index) {
+        return new CompressedPostingList(postingsBuffer,
+                postingsOffsets.get(index));
+    }
+
+    @Override
+    public int getVocabularySize() {
+        return postingsOffsets.limit();
+    }
+
+    @Override
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    @Override
+    public int getDocumentIdBound() {
+        return norms.limit();
+    }
+
+    @Override
+    public double getNorm(int document) {
+        return norms.get(document);
+    }
+
+}
@@ -0,0 +1,277 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code MemoryIndex} is an {@link InvertedIndex} which keeps its posting lists
+ * on heap and can be changed by adding and removing documents. New documents
+ * always get identifier greater than all previous ones, so posting lists stay
+ * sorted, and identifiers of removed documents are never reused.
+ * <p>
+ * Posting lists are built as {@link ArrayPostingList}s and are all turned into
+ * {@link CompressedPostingList}s by {@link #compress()} once initial documents
+ * are added. Compressed list changed by later addition or removal of document
+ * is turned back into array list, and changed lists are compressed again once
+ * there are more than {@value #MAX_UNCOMPRESSED} of them.
+ * <p>
+ * Besides postings, every document keeps its words and their TF values, from
+ * which norm of document vector is calculated. Since every change of documents
+ * changes IDF values, and with them norms of all documents, norms are not
+ * updated eagerly: they remember version of index for which they were
+ * calculated and are all calculated again when first needed after some change.
+ * New norms are published at once, so index can be read by many threads
+ * concurrently as long as no document is being added or removed.
+ * <p>
+ * IDF values are by default calculated from documents of this index, but
+ * subclasses may provide IDF values of larger collection, see
+ * {@link ShardedIndex}.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class MemoryIndex extends MutableIndex {
+
+    /** Maximal number of changed lists left uncompressed. */
+    private static final int MAX_UNCOMPRESSED = 4096;
+
+    /** Posting lists associated with vocabulary indexes. */
+    private List<PostingList> postings;
+    /** Number of posting lists which are not compressed. */
+    private int uncompressed;
+    /** Whether posting lists are kept compressed. */
+    private boolean compressing;
+    /** Vocabulary indexes of words of every document, null if removed. */
+    private List<int[]> documentWords;
+    /** TF values of words of every document, null if removed. */
+    private List<int[]> documentFrequencies;
+    /** Number of documents which are not removed. */
+    private int documentCount;
+
+    /** Norms of document vectors associated with document identifiers. */
+    private volatile double[] norms;
+    /** Version of index for which norms were calculated. */
+    private volatile int normsVersion;
+    /** Version of index, changed by every change of documents. */
+    private int version;
+
+    /**
+     * Creates new empty {@code MemoryIndex}.
+     */
+    public MemoryIndex() {
+        postings = new ArrayList<>();
+        documentWords = new ArrayList<>();
+        documentFrequencies = new ArrayList<>();
+        norms = new double[0];
+        version = 1;
+    }
+
+    @Override
+    public int addDocument(int[] words, int[] frequencies) {
+        int document = documentWords.size();
+
+        for (int i = 0; i < words.length; i++) {
+            while (postings.size() <= words[i]) {
+                postings.add(new ArrayPostingList());
+                uncompressed++;
+            }
+            getArrayPostings(words[i]).add(document, frequencies[i]);
+        }
+        compressIfNeeded();
+
+        documentWords.add(words);
+        documentFrequencies.add(frequencies);
+        documentCount++;
+        invalidate();
+
+        return document;
+    }
+
+    @Override
+    public void removeDocument(int document) {
+        if (document < 0 || document >= documentWords.size()
+                || documentWords.get(document) == null) {
+            throw new IllegalArgumentException("Document does not exist: "
+                    + document);
+        }
+
+        for (int word : documentWords.get(document)) {
+            getArrayPostings(word).remove(document);
+        }
+        compressIfNeeded();
+
+        documentWords.set(document, null);
+        documentFrequencies.set(document, null);
+        documentCount--;
+        invalidate();
+    }
+
+    @Override
+    public void compress() {
+        for (int word = 0; word < postings.size(); word++) {
+            PostingList list = postings.get(word);
+
+            if (list instanceof ArrayPostingList) {
+                postings.set(word, ((ArrayPostingList) list).compress());
+            }
+        }
+
+        uncompressed = 0;
+        compressing = true;
+    }
+
+    /**
+     * Marks norms of all documents as outdated, since IDF values have changed.
+     * Called whenever some document of this index is added or removed, and by
+     * {@link ShardedIndex} whenever documents of some other shard are changed.
+     */
+    void invalidate() {
+        version++;
+        clearMaxWeights();
+    }
+
+    /**
+     * Returns posting list of word with specified vocabulary index which can
+     * be changed, turning compressed list back into array list if needed.
+     * 
+     * @param word
+     *            Vocabulary index of word
+     * @return Posting list which can be changed
+     */
+    private ArrayPostingList getArrayPostings(int word) {
+        PostingList list = postings.get(word);
+
+        if (list instanceof ArrayPostingList) {
+            return (ArrayPostingList) list;
+        }
+
+        ArrayPostingList arrayList = new ArrayPostingList(list);
+        postings.set(word, arrayList);
+        uncompressed++;
+
+        return arrayList;
+    }
+
+    /**
+     * Compresses all posting lists if too many of them were changed since
+     * they were last compressed.
+     */
+    private void compressIfNeeded() {
+        if (compressing && uncompressed > MAX_UNCOMPRESSED) {
+            compress();
+        }
+    }
+
+    /**
+     * Returns version of this index. Version is changed every time some
+     * document is added or removed.
+     * 
+     * @return Version of index
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public PostingList getPostings(int index) {
+        if (index >= postings.size()) {
+            return new ArrayPostingList();
+        }
+
+        return postings.get(index);
+    }
+
+    @Override
+    public int getVocabularySize() {
+        return postings.size();
+    }
+
+    @Override
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    @Override
+    public int getDocumentIdBound() {
+        return documentWords.size();
+    }
+
+    @Override
+    public long estimateHeapSize() {
+        long size = super.estimateHeapSize()
+                + HeapSize.object(4 * HeapSize.REFERENCE + 4 * Integer.BYTES
+                        + Byte.BYTES)
+                + HeapSize.array(norms.length, Double.BYTES);
+
+        size += HeapSize.array(postings.size(), HeapSize.REFERENCE);
+        for (PostingList list : postings) {
+            size += list.estimateHeapSize();
+        }
+
+        size += 2 * HeapSize.array(documentWords.size(), HeapSize.REFERENCE);
+        for (int document = 0; document < documentWords.size(); document++) {
+            int[] words = documentWords.get(document);
+
+            if (words != null) {
+                size += HeapSize.array(words.length, Integer.BYTES)
+                        + HeapSize.array(documentFrequencies.get(document)
+                                .length, Integer.BYTES);
+            }
+        }
+
+        return size;
+    }
+
+    @Override
+    public double getNorm(int document) {
+        double[] current = normsVersion == version ? norms : calculateNorms();
+        return current[document];
+    }
+
+    /**
+     * Calculates norms of all documents using current IDF values, unless some
+     * other thread has already calculated them.
+     * 
+     * @return Norms of document vectors
+     */
+    private synchronized double[] calculateNorms() {
+        if (normsVersion != version) {
+            double[] calculated = new double[documentWords.size()];
+            for (int document = 0; document < calculated.length; document++) {
+                calculated[document] = calculateNorm(document);
+            }
+
+            norms = calculated;
+            normsVersion = version;
+        }
+
+        return norms;
+    }
+
+    /**
+     * Calculates norm of TF-IDF vector of specified document using current IDF
+     * values.
+     * 
+     * @param document
+     *            Document identifier
+     * @return Norm of document vector, 0 if document is removed
+     */
+    private double calculateNorm(int document) {
+        int[] words = documentWords.get(document);
+        int[] frequencies = documentFrequencies.get(document);
+
+        if (words == null) {
+            return 0;
+        }
+
+        double normRoot = 0;
+        for (int i = 0; i < words.length; i++) {
+            double weight = frequencies[i] * getIdf(words[i]);
+            normRoot += weight * weight;
+        }
+
+        return Math.sqrt(normRoot);
+    }
+
+}
@@ -0,0 +1,43 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+/**
+ * {@code MutableIndex} is an {@link InvertedIndex} which can be changed by
+ * adding and removing documents after it is created. Changes must not be made
+ * while index is being read by other threads.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public abstract class MutableIndex extends InvertedIndex {
+
+    /**
+     * Adds new document to this index and returns its identifier.
+     * 
+     * @param words
+     *            Vocabulary indexes of distinct document words, sorted
+     *            ascending
+     * @param frequencies
+     *            TF values of document words
+     * @return Identifier of added document
+     */
+    public abstract int addDocument(int[] words, int[] frequencies);
+
+    /**
+     * Removes document with specified identifier from this index.
+     * 
+     * @param document
+     *            Identifier of document to be removed
+     * @throws IllegalArgumentException
+     *             If document does not exist or is already removed
+     */
+    public abstract void removeDocument(int document);
+
+    /**
+     * Compresses all posting lists. Should be called once initial documents
+     * are added, from then on lists changed by later additions and removals
+     * are compressed again automatically.
+     */
+    public abstract void compress();
+
+}
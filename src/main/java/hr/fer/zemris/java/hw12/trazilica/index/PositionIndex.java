@@ -0,0 +1,417 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * {@code PositionIndex} keeps, for every term, positions at which it occurs
+ * inside every document, so phrases can be found by intersecting positions
+ * instead of reading documents again. Position of word is its index among
+ * document words, i.e. words which are not stop-words.
+ * <p>
+ * Positions of term are kept in single growable byte array, in the same
+ * variable-byte form as {@link CompressedPostingList}: every document is
+ * written as difference from previous document identifier, number of
+ * positions and positions themselves, each as difference from previous one.
+ * Documents must therefore be added in ascending order of identifiers, which
+ * holds for documents of {@code Dictionary}, since identifiers are never
+ * reused. Removed documents are only marked and skipped.
+ * <p>
+ * Index can be read by many threads at once, but changes must not overlap
+ * with reads or other changes.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class PositionIndex {
+
+    /** Initial capacity of position list, in bytes. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Positions of single term inside all documents containing it.
+     * 
+     * @author Domagoj Penic
+     * @version 2.6.2015.
+     *
+     */
+    private static class PositionList {
+
+        /** Encoded documents and positions. */
+        private byte[] bytes = new byte[INITIAL_CAPACITY];
+        /** Number of used bytes. */
+        private int length;
+        /** Identifier of last added document. */
+        private int lastDocument;
+
+        /**
+         * Appends specified non-negative integer in variable-byte form.
+         * 
+         * @param value
+         *            Integer to be written
+         */
+        public void write(int value) {
+            if (length + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes,
+                        Math.max(bytes.length * 2, INITIAL_CAPACITY));
+            }
+
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+    }
+
+    /**
+     * Cursor reading documents of single {@link PositionList} one after
+     * another. Positions of document are decoded only when they are asked for.
+     * 
+     * @author Domagoj Penic
+     * @version 2.6.2015.
+     *
+     */
+    private static class Cursor {
+
+        /** Encoded documents and positions. */
+        private final byte[] bytes;
+        /** Number of used bytes. */
+        private final int length;
+        /** Position of next byte to read. */
+        private int offset;
+        /** Identifier of current document. */
+        private int document;
+        /** Number of positions of current document. */
+        private int count;
+        /** Whether positions of current document were read. */
+        private boolean decoded;
+        /** Decoded positions of current document. */
+        private int[] positions = new int[INITIAL_CAPACITY];
+
+        /**
+         * Creates new {@code Cursor} positioned before first document of
+         * specified list.
+         * 
+         * @param list
+         *            List which is read
+         */
+        public Cursor(PositionList list) {
+            bytes = list.bytes;
+            length = list.length;
+            decoded = true;
+        }
+
+        /**
+         * Moves to the next document, skipping positions of current one if
+         * they were not read.
+         * 
+         * @return {@code true} if cursor is positioned on next document,
+         *         {@code false} if there are no more documents
+         */
+        public boolean next() {
+            if (!decoded) {
+                // Every variable-byte integer ends with byte which high bit
+                // is not set
+                for (int skipped = 0; skipped < count; offset++) {
+                    if (bytes[offset] >= 0) {
+                        skipped++;
+                    }
+                }
+            }
+
+            if (offset == length) {
+                return false;
+            }
+
+            document += read();
+            count = read();
+            decoded = false;
+
+            return true;
+        }
+
+        /**
+         * Returns positions of current document, ascending. Only first
+         * {@link #count} elements are valid.
+         * 
+         * @return Positions of current document
+         */
+        public int[] positions() {
+            if (!decoded) {
+                if (positions.length < count) {
+                    positions = new int[Math.max(count, positions.length * 2)];
+                }
+
+                int position = 0;
+                for (int i = 0; i < count; i++) {
+                    position += read();
+                    positions[i] = position;
+                }
+                decoded = true;
+            }
+
+            return positions;
+        }
+
+        /**
+         * Reads variable-byte integer at current offset.
+         * 
+         * @return Integer read
+         */
+        private int read() {
+            int value = 0;
+            int shift = 0;
+
+            byte b;
+            do {
+                b = bytes[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            return value;
+        }
+
+    }
+
+    /** Position lists associated with term identifiers. */
+    private PositionList[] lists = new PositionList[0];
+    /** Identifiers of removed documents. */
+    private final BitSet removed = new BitSet();
+    /** Identifier of last added document. */
+    private int lastDocument = -1;
+
+    /**
+     * Adds positions of words of document with specified identifier, which
+     * must be greater than identifiers of all documents added before.
+     * 
+     * @param document
+     *            Document identifier
+     * @param words
+     *            Term identifiers of document words, in order in which they
+     *            occur, negative identifier stands for unknown word which
+     *            takes position but is not kept
+     * @throws IllegalArgumentException
+     *             If document identifier is not greater than previous ones
+     */
+    public void addDocument(int document, int[] words) {
+        if (document <= lastDocument) {
+            throw new IllegalArgumentException(
+                    "Documents must be added in ascending order, was: "
+                            + document);
+        }
+        lastDocument = document;
+
+        // Positions of every term are written together, so words are ordered
+        // by term and then by position
+        long[] occurrences = new long[words.length];
+        int size = 0;
+        for (int position = 0; position < words.length; position++) {
+            if (words[position] >= 0) {
+                occurrences[size++] = (long) words[position] << 32 | position;
+            }
+        }
+        Arrays.sort(occurrences, 0, size);
+
+        for (int start = 0; start < size;) {
+            int term = (int) (occurrences[start] >>> 32);
+            int end = start;
+            while (end < size && (int) (occurrences[end] >>> 32) == term) {
+                end++;
+            }
+
+            PositionList list = getList(term);
+            list.write(document - list.lastDocument);
+            list.write(end - start);
+            int previous = 0;
+            for (int i = start; i < end; i++) {
+                int position = (int) occurrences[i];
+                list.write(position - previous);
+                previous = position;
+            }
+            list.lastDocument = document;
+
+            start = end;
+        }
+    }
+
+    /**
+     * Removes document with specified identifier, so it is no longer found by
+     * {@link #findPhrase(int[], int)}.
+     * 
+     * @param document
+     *            Document identifier
+     */
+    public void removeDocument(int document) {
+        removed.set(document);
+    }
+
+    /**
+     * Shrinks all position lists to their lengths, releasing memory reserved
+     * for documents added later.
+     */
+    public void trim() {
+        for (PositionList list : lists) {
+            if (list != null && list.bytes.length > list.length) {
+                list.bytes = Arrays.copyOf(list.bytes, list.length);
+            }
+        }
+    }
+
+    /**
+     * Finds all documents which contain specified terms in specified order,
+     * with at most {@code slop} other words between every two consecutive
+     * terms. Slop 0 means exact phrase. Only documents containing all terms
+     * are considered, found by walking position lists of all terms together,
+     * and positions are decoded only for them.
+     * 
+     * @param terms
+     *            Term identifiers of phrase, in order
+     * @param slop
+     *            Maximal number of other words between consecutive terms
+     * @return Identifiers of documents containing phrase
+     * @throws IllegalArgumentException
+     *             If there are no terms or slop is negative
+     */
+    public BitSet findPhrase(int[] terms, int slop) {
+        if (terms.length == 0 || slop < 0) {
+            throw new IllegalArgumentException(
+                    "Phrase must have terms and non-negative slop.");
+        }
+
+        BitSet found = new BitSet();
+        Cursor[] cursors = new Cursor[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            if (terms[i] < 0 || terms[i] >= lists.length
+                    || lists[terms[i]] == null) {
+                return found;
+            }
+
+            cursors[i] = new Cursor(lists[terms[i]]);
+            if (!cursors[i].next()) {
+                return found;
+            }
+        }
+
+        while (true) {
+            // Move all cursors to the greatest of their documents
+            int document = cursors[0].document;
+            for (Cursor cursor : cursors) {
+                document = Math.max(document, cursor.document);
+            }
+
+            boolean aligned = true;
+            for (Cursor cursor : cursors) {
+                while (cursor.document < document) {
+                    if (!cursor.next()) {
+                        return found;
+                    }
+                }
+                aligned &= cursor.document == document;
+            }
+
+            if (!aligned) {
+                continue;
+            }
+
+            if (!removed.get(document) && matchPositions(cursors, slop)) {
+                found.set(document);
+            }
+
+            for (Cursor cursor : cursors) {
+                if (!cursor.next()) {
+                    return found;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns estimated number of bytes taken by this {@code PositionIndex}
+     * on heap.
+     * 
+     * @return Estimated size of index
+     */
+    public long estimateHeapSize() {
+        long size = HeapSize.object(2 * HeapSize.REFERENCE + Integer.BYTES)
+                + HeapSize.array(lists.length, HeapSize.REFERENCE)
+                + HeapSize.object(HeapSize.REFERENCE)
+                + HeapSize.array(removed.size() / Long.SIZE, Long.BYTES);
+
+        for (PositionList list : lists) {
+            if (list != null) {
+                size += HeapSize.object(HeapSize.REFERENCE + 2
+                        * Integer.BYTES)
+                        + HeapSize.array(list.bytes.length, Byte.BYTES);
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Checks whether phrase occurs inside document on which all specified
+     * cursors are positioned. Positions which terms can take are found term
+     * after term: position of term is reachable if some reachable position of
+     * previous term is before it, with at most {@code slop} words between
+     * them. Reachable positions are kept in place of decoded positions of
+     * cursors, which are not read again.
+     * 
+     * @param cursors
+     *            Cursors of phrase terms, all positioned on the same document
+     * @param slop
+     *            Maximal number of other words between consecutive terms
+     * @return {@code true} if some position of last term is reachable
+     */
+    private static boolean matchPositions(Cursor[] cursors, int slop) {
+        int[] reachable = cursors[0].positions();
+        int reachableCount = cursors[0].count;
+
+        for (int i = 1; i < cursors.length && reachableCount > 0; i++) {
+            int[] positions = cursors[i].positions();
+            int count = 0;
+
+            int j = 0;
+            for (int k = 0; k < cursors[i].count; k++) {
+                int position = positions[k];
+
+                while (j < reachableCount
+                        && reachable[j] + 1 + slop < position) {
+                    j++;
+                }
+
+                if (j < reachableCount && reachable[j] < position) {
+                    positions[count++] = position;
+                }
+            }
+
+            reachable = positions;
+            reachableCount = count;
+        }
+
+        return reachableCount > 0;
+    }
+
+    /**
+     * Returns position list of specified term, creating it if it does not
+     * exist yet.
+     * 
+     * @param term
+     *            Term identifier
+     * @return Position list of term
+     */
+    private PositionList getList(int term) {
+        if (term >= lists.length) {
+            lists = Arrays.copyOf(lists, Math.max(term + 1, lists.length * 2));
+        }
+        if (lists[term] == null) {
+            lists[term] = new PositionList();
+        }
+
+        return lists[term];
+    }
+
+}
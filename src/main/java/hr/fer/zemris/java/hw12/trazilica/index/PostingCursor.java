@@ -0,0 +1,55 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+/**
+ * {@code PostingCursor} reads postings of {@link PostingList} one after
+ * another, in ascending order of document identifiers. Cursor is initially
+ * positioned before the first posting, so {@link #next()} has to be called
+ * before first posting can be read.
+ * <p>
+ * Besides moving to the next posting, cursor can skip all postings of
+ * documents smaller than some identifier, which is used for intersecting
+ * posting lists. Compressed lists skip whole blocks of postings without
+ * decoding them.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public interface PostingCursor {
+
+    /**
+     * Moves to the next posting.
+     * 
+     * @return {@code true} if cursor is positioned on next posting,
+     *         {@code false} if there are no more postings
+     */
+    boolean next();
+
+    /**
+     * Moves to the first of following postings which document identifier is
+     * not less than specified one. Posting on which cursor is currently
+     * positioned is not considered.
+     * 
+     * @param target
+     *            Smallest accepted document identifier
+     * @return {@code true} if cursor is positioned on such posting,
+     *         {@code false} if there are no more postings
+     */
+    boolean advance(int target);
+
+    /**
+     * Returns document identifier of current posting.
+     * 
+     * @return Document identifier
+     */
+    int document();
+
+    /**
+     * Returns number of occurrences of word inside document of current
+     * posting.
+     * 
+     * @return TF value of word inside document
+     */
+    int frequency();
+
+}
@@ -0,0 +1,44 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+/**
+ * {@code PostingList} holds all documents in which single vocabulary word
+ * occurs, together with number of occurrences (TF value) of that word inside
+ * each document. Postings are sorted by document identifiers and are read
+ * sequentially by {@link PostingCursor}, so they can be stored compressed.
+ * <p>
+ * TF-IDF weight of word inside document is TF value multiplied by IDF value of
+ * word. Since IDF value is the same for whole list and changes whenever
+ * documents are added or removed, it is not stored in postings but applied by
+ * {@link InvertedIndex} while scoring.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public interface PostingList {
+
+    /**
+     * Returns number of postings in this list, i.e. number of documents
+     * containing word.
+     * 
+     * @return Size of this list
+     */
+    int size();
+
+    /**
+     * Returns new {@link PostingCursor} positioned before the first posting
+     * of this list.
+     * 
+     * @return Cursor over postings
+     */
+    PostingCursor cursor();
+
+    /**
+     * Returns estimated number of bytes taken by this list on heap. Postings
+     * read from index file mapped into memory are not on heap.
+     * 
+     * @return Estimated size of list
+     */
+    long estimateHeapSize();
+
+}
@@ -0,0 +1,25 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+/**
+ * {@code ScoreCollector} receives similarities of documents calculated by
+ * {@link InvertedIndex} while query is being scored. Only documents which share
+ * at least one word with query are passed to collector.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+@FunctionalInterface
+public interface ScoreCollector {
+
+    /**
+     * Accepts similarity of document with specified identifier.
+     * 
+     * @param document
+     *            Identifier of scored document
+     * @param similarity
+     *            Cosine similarity between query and document
+     */
+    void collect(int document, double similarity);
+
+}
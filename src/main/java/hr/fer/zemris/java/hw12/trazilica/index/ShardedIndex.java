@@ -0,0 +1,539 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+import hr.fer.zemris.java.hw12.trazilica.tfidf.TfIdfVector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * {@code ShardedIndex} is a {@link MutableIndex} which partitions documents
+ * among several shards, every one of them being {@link MemoryIndex} with its
+ * own posting lists and norms. Documents are assigned to shards in turn, so
+ * document with identifier {@code d} is document {@code d / N} of shard
+ * {@code d % N}, and shards stay equally large.
+ * <p>
+ * IDF values are calculated from posting lists of all shards together and are
+ * shared by all shards, so norms and similarities are exactly the same as if
+ * all documents were kept in single {@link MemoryIndex}. Every change of
+ * documents therefore outdates norms of all shards.
+ * <p>
+ * Query is scored by all shards in parallel, on calling thread and on pool of
+ * daemon threads owned by this index, and similarities found by shards are
+ * then passed to collector with identifiers of this index. When only K best
+ * documents are needed, every shard keeps only its own K best documents, and
+ * K best of them are kept by collector. Posting lists returned by
+ * {@link #getPostings(int)} merge postings of all shards, they are meant for
+ * writing index file and not for scoring.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class ShardedIndex extends MutableIndex {
+
+    /**
+     * Shard of this index, which uses IDF values of all shards.
+     * 
+     * @author Domagoj Penic
+     * @version 2.6.2015.
+     *
+     */
+    private class Shard extends MemoryIndex {
+
+        @Override
+        public double getIdf(int index) {
+            return ShardedIndex.this.getIdf(index);
+        }
+
+    }
+
+    /**
+     * {@link ScoreCollector} which keeps all similarities found by single
+     * shard, so they can be passed to actual collector afterwards.
+     * 
+     * @author Domagoj Penic
+     * @version 2.6.2015.
+     *
+     */
+    private static class ScoreBuffer implements ScoreCollector {
+
+        /** Initial capacity of buffer. */
+        private static final int INITIAL_CAPACITY = 64;
+
+        /** Identifiers of documents inside shard. */
+        private int[] documents = new int[INITIAL_CAPACITY];
+        /** Similarities of documents. */
+        private double[] similarities = new double[INITIAL_CAPACITY];
+        /** Number of kept similarities. */
+        private int size;
+
+        @Override
+        public void collect(int document, double similarity) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                similarities = Arrays.copyOf(similarities, size * 2);
+            }
+
+            documents[size] = document;
+            similarities[size++] = similarity;
+        }
+
+    }
+
+    /**
+     * {@link PostingList} of single word which merges posting lists of all
+     * shards.
+     * 
+     * @author Domagoj Penic
+     * @version 2.6.2015.
+     *
+     */
+    private class MergedPostingList implements PostingList {
+
+        /** Posting lists of word inside every shard. */
+        private final PostingList[] lists = new PostingList[shards.length];
+
+        /**
+         * Creates new {@code MergedPostingList} of word with specified
+         * vocabulary index.
+         * 
+         * @param index
+         *            Vocabulary index of word
+         */
+        public MergedPostingList(int index) {
+            for (int shard = 0; shard < shards.length; shard++) {
+                lists[shard] = shards[shard].getPostings(index);
+            }
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (PostingList list : lists) {
+                size += list.size();
+            }
+
+            return size;
+        }
+
+        @Override
+        public PostingCursor cursor() {
+            return new Cursor();
+        }
+
+        @Override
+        public long estimateHeapSize() {
+            // Merged list only refers to lists of shards
+            return HeapSize.object(HeapSize.REFERENCE)
+                    + HeapSize.array(lists.length, HeapSize.REFERENCE);
+        }
+
+        /**
+         * {@link PostingCursor} which always moves cursor of shard with the
+         * smallest document identifier.
+         * 
+         * @author Domagoj Penic
+         * @version 2.6.2015.
+         *
+         */
+        private class Cursor implements PostingCursor {
+
+            /** Cursors over posting lists of every shard. */
+            private final PostingCursor[] cursors =
+                    new PostingCursor[lists.length];
+            /** Current documents of every shard, with identifiers of index. */
+            private final int[] documents = new int[lists.length];
+            /** Shard of current posting, -1 before the first posting. */
+            private int current = -1;
+
+            /**
+             * Creates new {@code Cursor} positioned before the first posting.
+             */
+            public Cursor() {
+                for (int shard = 0; shard < lists.length; shard++) {
+                    cursors[shard] = lists[shard].cursor();
+                    moveShard(shard);
+                }
+            }
+
+            @Override
+            public boolean next() {
+                if (current >= 0) {
+                    moveShard(current);
+                }
+
+                current = 0;
+                for (int shard = 1; shard < documents.length; shard++) {
+                    if (documents[shard] < documents[current]) {
+                        current = shard;
+                    }
+                }
+
+                return documents[current] != NO_MORE_DOCUMENTS;
+            }
+
+            @Override
+            public boolean advance(int target) {
+                while (next()) {
+                    if (documents[current] >= target) {
+                        return true;
+                    }
+                }
+
+                return false;
+            }
+
+            @Override
+            public int document() {
+                return documents[current];
+            }
+
+            @Override
+            public int frequency() {
+                return cursors[current].frequency();
+            }
+
+            /**
+             * Moves cursor of specified shard to its next posting.
+             * 
+             * @param shard
+             *            Index of shard
+             */
+            private void moveShard(int shard) {
+                documents[shard] = cursors[shard].next() ? toDocument(shard,
+                        cursors[shard].document()) : NO_MORE_DOCUMENTS;
+            }
+
+        }
+
+    }
+
+    /** Shards of this index. */
+    private final Shard[] shards;
+    /** Pool of threads scoring all shards but the first one. */
+    private final ExecutorService pool;
+    /** Identifier which will be assigned to next added document. */
+    private int nextDocument;
+    /**
+     * IDF values of words associated with vocabulary indexes, {@code null} if
+     * not yet calculated.
+     */
+    private volatile double[] idfs;
+
+    /**
+     * Creates new empty {@code ShardedIndex} with specified number of shards.
+     * 
+     * @param shardCount
+     *            Number of shards
+     * @throws IllegalArgumentException
+     *             If number of shards is not positive
+     */
+    public ShardedIndex(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException(
+                    "Number of shards must be positive, was: " + shardCount);
+        }
+
+        this.shards = new Shard[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            shards[shard] = new Shard();
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(Math.max(1, shardCount - 1),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "index-shard-"
+                            + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Override
+    public int addDocument(int[] words, int[] frequencies) {
+        int document = nextDocument++;
+
+        shards[document % shards.length].addDocument(words, frequencies);
+        invalidate();
+
+        return document;
+    }
+
+    @Override
+    public void removeDocument(int document) {
+        if (document < 0 || document >= nextDocument) {
+            throw new IllegalArgumentException("Document does not exist: "
+                    + document);
+        }
+
+        try {
+            shards[document % shards.length].removeDocument(document
+                    / shards.length);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Document does not exist: "
+                    + document, e);
+        }
+        invalidate();
+    }
+
+    @Override
+    public void compress() {
+        for (Shard shard : shards) {
+            shard.compress();
+        }
+    }
+
+    /**
+     * Returns number of shards of this index.
+     * 
+     * @return Number of shards
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public PostingList getPostings(int index) {
+        return new MergedPostingList(index);
+    }
+
+    @Override
+    public int getVocabularySize() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size = Math.max(size, shard.getVocabularySize());
+        }
+
+        return size;
+    }
+
+    @Override
+    public int getDocumentCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += shard.getDocumentCount();
+        }
+
+        return count;
+    }
+
+    @Override
+    public int getDocumentIdBound() {
+        return nextDocument;
+    }
+
+    @Override
+    public double getNorm(int document) {
+        return shards[document % shards.length].getNorm(document
+                / shards.length);
+    }
+
+    @Override
+    public double getIdf(int index) {
+        double[] current = idfs;
+        if (current == null) {
+            current = calculateIdfs();
+        }
+
+        return index < current.length ? current[index] : 0;
+    }
+
+    /**
+     * Calculates shared IDF values, and then norms and maximal weights of
+     * every shard in parallel, since only values of shards are used by
+     * searches. Maximal weights of this index itself would need pass over
+     * merged posting lists and are left to be calculated if ever needed.
+     */
+    @Override
+    public void warmUp() {
+        getIdf(0);
+        scatter(shard -> shards[shard].warmUp());
+    }
+
+    @Override
+    public long estimateHeapSize() {
+        double[] current = idfs;
+
+        long size = super.estimateHeapSize()
+                + HeapSize.object(3 * HeapSize.REFERENCE + Integer.BYTES);
+        if (current != null) {
+            size += HeapSize.array(current.length, Double.BYTES);
+        }
+
+        for (Shard shard : shards) {
+            size += shard.estimateHeapSize();
+        }
+
+        return size;
+    }
+
+    @Override
+    public void score(TfIdfVector query, ScoreCollector collector) {
+        ScoreBuffer[] buffers = new ScoreBuffer[shards.length];
+
+        scatter(shard -> {
+            buffers[shard] = new ScoreBuffer();
+            shards[shard].score(query, buffers[shard]);
+        });
+
+        for (int shard = 0; shard < shards.length; shard++) {
+            gather(shard, buffers[shard], collector);
+        }
+    }
+
+    @Override
+    public void scoreTopK(TfIdfVector query, TopKCollector collector) {
+        TopKCollector[] shardCollectors = new TopKCollector[shards.length];
+
+        scatter(shard -> {
+            shardCollectors[shard] = new TopKCollector(collector.getCapacity());
+            shards[shard].scoreTopK(query, shardCollectors[shard]);
+        });
+
+        for (int shard = 0; shard < shards.length; shard++) {
+            int index = shard;
+            collector.merge(shardCollectors[shard],
+                    document -> toDocument(index, document));
+        }
+    }
+
+    @Override
+    public void score(TfIdfVector[] queries, ScoreCollector[] collectors) {
+        if (queries.length != collectors.length) {
+            throw new IllegalArgumentException("Every query needs collector.");
+        }
+
+        ScoreBuffer[][] buffers = new ScoreBuffer[shards.length][];
+
+        scatter(shard -> {
+            ScoreBuffer[] shardBuffers = new ScoreBuffer[queries.length];
+            for (int q = 0; q < queries.length; q++) {
+                shardBuffers[q] = new ScoreBuffer();
+            }
+
+            shards[shard].score(queries, shardBuffers);
+            buffers[shard] = shardBuffers;
+        });
+
+        for (int shard = 0; shard < shards.length; shard++) {
+            for (int q = 0; q < queries.length; q++) {
+                gather(shard, buffers[shard][q], collectors[q]);
+            }
+        }
+    }
+
+    /**
+     * Runs specified task for every shard, the first shard on calling thread
+     * and others on pool of this index, and waits until all of them finish.
+     * 
+     * @param task
+     *            Task accepting index of shard
+     * @throws IllegalStateException
+     *             If task of some shard fails or waiting is interrupted
+     */
+    private void scatter(IntConsumer task) {
+        List<Future<?>> futures = new ArrayList<>(shards.length - 1);
+        for (int shard = 1; shard < shards.length; shard++) {
+            int index = shard;
+            futures.add(pool.submit(() -> task.accept(index)));
+        }
+
+        try {
+            task.accept(0);
+        } finally {
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Search was interrupted.", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search of shard failed.",
+                        e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Passes similarities found by specified shard to specified collector,
+     * with identifiers of this index.
+     * 
+     * @param shard
+     *            Index of shard
+     * @param buffer
+     *            Similarities found by shard
+     * @param collector
+     *            Collector of document similarities
+     */
+    private void gather(int shard, ScoreBuffer buffer,
+            ScoreCollector collector) {
+        for (int i = 0; i < buffer.size; i++) {
+            collector.collect(toDocument(shard, buffer.documents[i]),
+                    buffer.similarities[i]);
+        }
+    }
+
+    /**
+     * Returns identifier of document with specified identifier inside
+     * specified shard.
+     * 
+     * @param shard
+     *            Index of shard
+     * @param document
+     *            Identifier of document inside shard
+     * @return Identifier of document inside this index
+     */
+    private int toDocument(int shard, int document) {
+        return document * shards.length + shard;
+    }
+
+    /**
+     * Marks IDF values and norms of all shards as outdated.
+     */
+    private void invalidate() {
+        idfs = null;
+        clearMaxWeights();
+
+        for (Shard shard : shards) {
+            shard.invalidate();
+        }
+    }
+
+    /**
+     * Calculates IDF values of all words from posting lists of all shards,
+     * unless some other thread has already calculated them.
+     * 
+     * @return IDF values of words
+     */
+    private synchronized double[] calculateIdfs() {
+        if (idfs == null) {
+            double[] calculated = new double[getVocabularySize()];
+            int documentCount = getDocumentCount();
+
+            for (int index = 0; index < calculated.length; index++) {
+                int count = 0;
+                for (Shard shard : shards) {
+                    count += shard.getPostings(index).size();
+                }
+
+                if (count > 0) {
+                    calculated[index] = Math.log((double) documentCount
+                            / count);
+                }
+            }
+
+            idfs = calculated;
+        }
+
+        return idfs;
+    }
+
+}
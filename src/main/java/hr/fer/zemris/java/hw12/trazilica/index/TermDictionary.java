@@ -0,0 +1,298 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+import java.util.Arrays;
+
+/**
+ * {@code TermDictionary} assigns dense integer identifiers to terms, from 0 to
+ * number of terms, in order in which terms are added. Identifiers are used
+ * instead of strings trough whole index, e.g. as vector indexes and positions
+ * of posting lists.
+ * <p>
+ * Characters of all terms are kept in single pool, one after another, and every
+ * term is described only by its position inside pool. Terms are found by open
+ * addressing hash table of identifiers, hashed directly from characters, so
+ * terms read into buffer can be looked up and added without creating any
+ * {@code String}. Strings are created only when term is requested by
+ * {@link #getTerm(int)}.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class TermDictionary {
+
+    /** Initial capacity of hash table, must be power of two. */
+    private static final int INITIAL_TABLE_SIZE = 1024;
+    /** Initial capacity of character pool. */
+    private static final int INITIAL_POOL_SIZE = 8192;
+
+    /** Characters of all terms, one after another. */
+    private char[] pool;
+    /** Starting positions of terms inside pool, followed by end of pool. */
+    private int[] offsets;
+    /** Number of terms. */
+    private int size;
+    /** Hash table of term identifiers increased by one, 0 if slot is empty. */
+    private int[] table;
+
+    /**
+     * Creates new empty {@code TermDictionary}.
+     */
+    public TermDictionary() {
+        pool = new char[INITIAL_POOL_SIZE];
+        offsets = new int[INITIAL_TABLE_SIZE / 2 + 1];
+        table = new int[INITIAL_TABLE_SIZE];
+    }
+
+    /**
+     * Adds term held by specified buffer, if it is not already part of this
+     * dictionary, and returns its identifier.
+     * 
+     * @param buffer
+     *            Buffer holding term characters
+     * @param offset
+     *            Position of first term character inside buffer
+     * @param length
+     *            Number of term characters
+     * @return Identifier of term
+     */
+    public int add(char[] buffer, int offset, int length) {
+        int hash = hash(buffer, offset, length);
+        int slot = findSlot(buffer, offset, length, hash);
+
+        if (table[slot] != 0) {
+            return table[slot] - 1;
+        }
+
+        ensurePoolCapacity(offsets[size] + length);
+        System.arraycopy(buffer, offset, pool, offsets[size], length);
+        offsets[size + 1] = offsets[size] + length;
+        table[slot] = ++size;
+
+        if (size * 2 > table.length) {
+            rehash();
+        }
+
+        return size - 1;
+    }
+
+    /**
+     * Adds specified term, if it is not already part of this dictionary, and
+     * returns its identifier.
+     * 
+     * @param term
+     *            Term to be added
+     * @return Identifier of term
+     */
+    public int add(String term) {
+        return add(term.toCharArray(), 0, term.length());
+    }
+
+    /**
+     * Adds term with specified identifier inside other dictionary to this
+     * dictionary. Used for joining dictionaries built separately.
+     * 
+     * @param other
+     *            Dictionary holding term
+     * @param term
+     *            Identifier of term inside other dictionary
+     * @return Identifier of term inside this dictionary
+     */
+    public int add(TermDictionary other, int term) {
+        return add(other.pool, other.offsets[term], other.length(term));
+    }
+
+    /**
+     * Returns identifier of term held by specified buffer.
+     * 
+     * @param buffer
+     *            Buffer holding term characters
+     * @param offset
+     *            Position of first term character inside buffer
+     * @param length
+     *            Number of term characters
+     * @return Identifier of term, -1 if term is not part of this dictionary
+     */
+    public int find(char[] buffer, int offset, int length) {
+        int slot = findSlot(buffer, offset, length,
+                hash(buffer, offset, length));
+        return table[slot] - 1;
+    }
+
+    /**
+     * Returns identifier of specified term.
+     * 
+     * @param term
+     *            Term to be found
+     * @return Identifier of term, -1 if term is not part of this dictionary
+     */
+    public int find(String term) {
+        return find(term.toCharArray(), 0, term.length());
+    }
+
+    /**
+     * Returns term with specified identifier.
+     * 
+     * @param term
+     *            Identifier of term
+     * @return Term
+     * @throws IndexOutOfBoundsException
+     *             If term does not exist
+     */
+    public String getTerm(int term) {
+        if (term < 0 || term >= size) {
+            throw new IndexOutOfBoundsException("Invalid term: " + term);
+        }
+
+        return new String(pool, offsets[term], length(term));
+    }
+
+    /**
+     * Returns number of terms in this dictionary.
+     * 
+     * @return Number of terms
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns estimated number of bytes taken by this dictionary on heap.
+     * 
+     * @return Estimated size of dictionary
+     */
+    public long estimateHeapSize() {
+        return HeapSize.object(3 * HeapSize.REFERENCE + Integer.BYTES)
+                + HeapSize.array(pool.length, Character.BYTES)
+                + HeapSize.array(offsets.length, Integer.BYTES)
+                + HeapSize.array(table.length, Integer.BYTES);
+    }
+
+    /**
+     * Releases unused capacity of character pool. Should be called once all
+     * initial terms are added.
+     */
+    public void trim() {
+        pool = Arrays.copyOf(pool, offsets[size]);
+        offsets = Arrays.copyOf(offsets, size + 1);
+    }
+
+    /**
+     * Returns number of characters of term with specified identifier.
+     * 
+     * @param term
+     *            Identifier of term
+     * @return Length of term
+     */
+    private int length(int term) {
+        return offsets[term + 1] - offsets[term];
+    }
+
+    /**
+     * Returns slot of hash table which holds specified term, or empty slot
+     * where term should be placed.
+     * 
+     * @param buffer
+     *            Buffer holding term characters
+     * @param offset
+     *            Position of first term character inside buffer
+     * @param length
+     *            Number of term characters
+     * @param hash
+     *            Hash of term
+     * @return Slot of term
+     */
+    private int findSlot(char[] buffer, int offset, int length, int hash) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+
+        while (table[slot] != 0 && !matches(table[slot] - 1, buffer, offset,
+                length)) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Checks whether term with specified identifier equals to term held by
+     * specified buffer.
+     * 
+     * @param term
+     *            Identifier of term
+     * @param buffer
+     *            Buffer holding term characters
+     * @param offset
+     *            Position of first term character inside buffer
+     * @param length
+     *            Number of term characters
+     * @return {@code true} if terms are equal, {@code false} otherwise
+     */
+    private boolean matches(int term, char[] buffer, int offset, int length) {
+        if (length(term) != length) {
+            return false;
+        }
+
+        int start = offsets[term];
+        for (int i = 0; i < length; i++) {
+            if (pool[start + i] != buffer[offset + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Doubles capacity of hash table and places all terms into it again.
+     */
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+
+        for (int term = 0; term < size; term++) {
+            int slot = hash(pool, offsets[term], length(term)) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = term + 1;
+        }
+    }
+
+    /**
+     * Ensures that character pool can hold specified number of characters and
+     * that one more term can be described.
+     * 
+     * @param capacity
+     *            Required number of characters
+     */
+    private void ensurePoolCapacity(int capacity) {
+        if (capacity > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(capacity, pool.length * 2));
+        }
+        if (size + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+    }
+
+    /**
+     * Calculates hash of term held by specified buffer.
+     * 
+     * @param buffer
+     *            Buffer holding term characters
+     * @param offset
+     *            Position of first term character inside buffer
+     * @param length
+     *            Number of term characters
+     * @return Hash of term
+     */
+    private static int hash(char[] buffer, int offset, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + buffer[offset + i];
+        }
+
+        return hash ^ (hash >>> 16);
+    }
+
+}
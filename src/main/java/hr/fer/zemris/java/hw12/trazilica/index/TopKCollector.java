@@ -0,0 +1,270 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * {@code TopKCollector} is a {@link ScoreCollector} which keeps only K
+ * documents with greatest similarities. Documents are kept in binary min-heap
+ * of primitive values, so every collected similarity costs at most
+ * logarithmic time in K and nothing is boxed. Documents with equal similarity
+ * are all kept as long as there is room for them, and when some of them have
+ * to be dropped, documents with smaller identifiers are preferred.
+ * <p>
+ * Collector also counts all collected documents, i.e. number of documents
+ * which were scored, whether they were kept or not.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class TopKCollector implements ScoreCollector {
+
+    /** Identifiers of kept documents, arranged as heap. */
+    private int[] documents;
+    /** Similarities of kept documents, arranged as heap. */
+    private double[] similarities;
+    /** Number of kept documents. */
+    private int size;
+    /** Number of collected documents. */
+    private long scoredCount;
+
+    /**
+     * Creates new {@code TopKCollector} which keeps specified number of best
+     * documents.
+     * 
+     * @param k
+     *            Number of documents to keep
+     * @throws IllegalArgumentException
+     *             If K is not positive
+     */
+    public TopKCollector(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException(
+                    "Number of results must be positive, was: " + k);
+        }
+
+        documents = new int[k];
+        similarities = new double[k];
+    }
+
+    @Override
+    public void collect(int document, double similarity) {
+        scoredCount++;
+        offer(document, similarity);
+    }
+
+    /**
+     * Passes all documents kept by specified collector to this collector,
+     * with identifiers changed by specified mapping, and adds its count of
+     * scored documents to count of this collector. Used for merging documents
+     * kept by shards of {@link ShardedIndex}.
+     * 
+     * @param other
+     *            Collector which documents are merged
+     * @param mapping
+     *            Mapping of document identifiers of other collector
+     */
+    void merge(TopKCollector other, IntUnaryOperator mapping) {
+        for (int i = 0; i < other.size; i++) {
+            offer(mapping.applyAsInt(other.documents[i]),
+                    other.similarities[i]);
+        }
+        scoredCount += other.scoredCount;
+    }
+
+    /**
+     * Returns number of documents passed to this collector, including those
+     * which were not kept.
+     * 
+     * @return Number of scored documents
+     */
+    public long getScoredCount() {
+        return scoredCount;
+    }
+
+    /**
+     * Keeps specified document if it is among K best documents.
+     * 
+     * @param document
+     *            Document identifier
+     * @param similarity
+     *            Document similarity
+     */
+    private void offer(int document, double similarity) {
+        if (size < documents.length) {
+            documents[size] = document;
+            similarities[size] = similarity;
+            siftUp(size++);
+        } else if (isWorse(0, document, similarity)) {
+            documents[0] = document;
+            similarities[0] = similarity;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Returns similarity which has to be exceeded by document with identifier
+     * greater than identifiers of all kept documents, in order to be kept. It
+     * is 0 until K documents are kept, and then similarity of the worst kept
+     * document, since document with equal similarity and greater identifier
+     * is not preferred.
+     * 
+     * @return Similarity threshold of this collector
+     */
+    public double getThreshold() {
+        return size < documents.length ? 0 : similarities[0];
+    }
+
+    /**
+     * Returns number of documents this collector keeps at most, i.e. K.
+     * 
+     * @return Capacity of collector
+     */
+    public int getCapacity() {
+        return documents.length;
+    }
+
+    /**
+     * Returns number of kept documents.
+     * 
+     * @return Number of kept documents
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns identifiers of kept documents ordered from the most similar one.
+     * 
+     * @return Identifiers of kept documents
+     */
+    public int[] getDocuments() {
+        return sorted().documents;
+    }
+
+    /**
+     * Returns similarities of kept documents, in the same order as
+     * {@link #getDocuments()}.
+     * 
+     * @return Similarities of kept documents
+     */
+    public double[] getSimilarities() {
+        return sorted().similarities;
+    }
+
+    /**
+     * Returns copy of this collector which arrays are sorted from the most
+     * similar document, leaving heap of this collector intact.
+     * 
+     * @return Sorted copy of this collector
+     */
+    private TopKCollector sorted() {
+        TopKCollector copy = new TopKCollector(Math.max(1, size));
+        copy.documents = Arrays.copyOf(documents, size);
+        copy.similarities = Arrays.copyOf(similarities, size);
+        copy.size = size;
+
+        // Repeatedly move the worst document at the end of heap
+        for (int heapSize = size; heapSize > 1;) {
+            copy.swap(0, --heapSize);
+            copy.siftDown(0, heapSize);
+        }
+
+        return copy;
+    }
+
+    /**
+     * Checks whether document at specified heap position is worse than
+     * document with specified identifier and similarity.
+     * 
+     * @param position
+     *            Heap position
+     * @param document
+     *            Document identifier
+     * @param similarity
+     *            Document similarity
+     * @return {@code true} if document at heap position is worse
+     */
+    private boolean isWorse(int position, int document, double similarity) {
+        return similarities[position] < similarity
+                || (similarities[position] == similarity
+                        && documents[position] > document);
+    }
+
+    /**
+     * Moves element at specified position up until heap property holds.
+     * 
+     * @param position
+     *            Position of element
+     */
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+
+            if (!isWorse(position, documents[parent], similarities[parent])) {
+                break;
+            }
+
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    /**
+     * Moves element at specified position down until heap property holds.
+     * 
+     * @param position
+     *            Position of element
+     */
+    private void siftDown(int position) {
+        siftDown(position, size);
+    }
+
+    /**
+     * Moves element at specified position down until heap property holds for
+     * heap with specified size.
+     * 
+     * @param position
+     *            Position of element
+     * @param heapSize
+     *            Size of heap
+     */
+    private void siftDown(int position, int heapSize) {
+        while (2 * position + 1 < heapSize) {
+            int child = 2 * position + 1;
+
+            if (child + 1 < heapSize
+                    && isWorse(child + 1, documents[child],
+                            similarities[child])) {
+                child++;
+            }
+
+            if (!isWorse(child, documents[position], similarities[position])) {
+                break;
+            }
+
+            swap(position, child);
+            position = child;
+        }
+    }
+
+    /**
+     * Swaps elements at specified positions.
+     * 
+     * @param i
+     *            First position
+     * @param j
+     *            Second position
+     */
+    private void swap(int i, int j) {
+        int document = documents[i];
+        documents[i] = documents[j];
+        documents[j] = document;
+
+        double similarity = similarities[i];
+        similarities[i] = similarities[j];
+        similarities[j] = similarity;
+    }
+
+}
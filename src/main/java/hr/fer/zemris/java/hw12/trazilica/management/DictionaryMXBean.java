@@ -0,0 +1,58 @@
+package hr.fer.zemris.java.hw12.trazilica.management;
+
+import java.util.Map;
+
+/**
+ * Management interface exposing size and structure of
+ * {@link hr.fer.zemris.java.hw12.trazilica.Dictionary}.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public interface DictionaryMXBean {
+
+    /**
+     * Returns number of documents.
+     * 
+     * @return Number of documents
+     */
+    int getDocumentCount();
+
+    /**
+     * Returns number of vocabulary words.
+     * 
+     * @return Size of vocabulary
+     */
+    int getVocabularySize();
+
+    /**
+     * Returns version of documents, changed by every change of documents.
+     * 
+     * @return Version of documents
+     */
+    long getVersion();
+
+    /**
+     * Returns durations of phases of creating dictionary in milliseconds.
+     * 
+     * @return Phases associated with their durations
+     */
+    Map<String, Long> getBuildPhaseMillis();
+
+    /**
+     * Returns estimated number of bytes taken on heap by every structure of
+     * dictionary.
+     * 
+     * @return Structures associated with their estimated sizes
+     */
+    Map<String, Long> getHeapFootprint();
+
+    /**
+     * Returns number of bytes of index and vectors held outside of heap.
+     * 
+     * @return Size of structures outside of heap
+     */
+    long getOffHeapSize();
+
+}
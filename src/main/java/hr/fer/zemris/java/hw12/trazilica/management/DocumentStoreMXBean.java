@@ -0,0 +1,34 @@
+package hr.fer.zemris.java.hw12.trazilica.management;
+
+/**
+ * Management interface exposing state of
+ * {@link hr.fer.zemris.java.hw12.trazilica.DocumentStore}.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public interface DocumentStoreMXBean {
+
+    /**
+     * Returns number of documents provided from cache.
+     * 
+     * @return Number of hits
+     */
+    long getHits();
+
+    /**
+     * Returns number of documents read from file.
+     * 
+     * @return Number of misses
+     */
+    long getMisses();
+
+    /**
+     * Returns total number of currently cached bytes.
+     * 
+     * @return Number of cached bytes
+     */
+    long getCachedBytes();
+
+}
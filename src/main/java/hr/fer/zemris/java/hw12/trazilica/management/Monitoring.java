@@ -0,0 +1,337 @@
+package hr.fer.zemris.java.hw12.trazilica.management;
+
+import hr.fer.zemris.java.hw12.trazilica.Dictionary;
+import hr.fer.zemris.java.hw12.trazilica.DocumentStore;
+import hr.fer.zemris.java.hw12.trazilica.ResultCache;
+import hr.fer.zemris.java.hw12.trazilica.SearchMetrics;
+import hr.fer.zemris.java.hw12.trazilica.SearchMetrics.Stage;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * {@code Monitoring} registers management beans of {@link Dictionary} with
+ * platform MBean server, so its metrics can be read by any JMX client, such as
+ * JConsole. Beans are registered under domain {@value #DOMAIN} with types
+ * {@code Dictionary}, {@code Search}, {@code ResultCache} and
+ * {@code DocumentStore}. Only one dictionary can be registered at a time,
+ * registering another one replaces beans of previous one.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public final class Monitoring {
+
+    /** Domain of names of registered beans. */
+    public static final String DOMAIN = "hr.fer.zemris.java.hw12.trazilica";
+
+    /**
+     * {@link DictionaryMXBean} reading state of dictionary.
+     * 
+     * @author Domagoj Penic
+     * @version 2.6.2015.
+     *
+     */
+    private static class DictionaryBean implements DictionaryMXBean {
+
+        /** Monitored dictionary. */
+        private final Dictionary dictionary;
+
+        /**
+         * Creates new {@code DictionaryBean} of specified dictionary.
+         * 
+         * @param dictionary
+         *            Monitored dictionary
+         */
+        public DictionaryBean(Dictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        public int getDocumentCount() {
+            return dictionary.getDocumentCount();
+        }
+
+        @Override
+        public int getVocabularySize() {
+            return dictionary.getVocabulary().size();
+        }
+
+        @Override
+        public long getVersion() {
+            return dictionary.getVersion();
+        }
+
+        @Override
+        public Map<String, Long> getBuildPhaseMillis() {
+            return dictionary.getMetrics().getBuildPhaseMillis();
+        }
+
+        @Override
+        public Map<String, Long> getHeapFootprint() {
+            return dictionary.getHeapFootprint();
+        }
+
+        @Override
+        public long getOffHeapSize() {
+            return dictionary.getOffHeapSize();
+        }
+
+    }
+
+    /**
+     * {@link SearchMXBean} reading metrics of queries.
+     * 
+     * @author Domagoj Penic
+     * @version 2.6.2015.
+     *
+     */
+    private static class SearchBean implements SearchMXBean {
+
+        /** Metrics of queries. */
+        private final SearchMetrics metrics;
+
+        /**
+         * Creates new {@code SearchBean} of specified metrics.
+         * 
+         * @param metrics
+         *            Metrics of queries
+         */
+        public SearchBean(SearchMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public long getQueryCount() {
+            return metrics.getQueryCount();
+        }
+
+        @Override
+        public long getCachedQueryCount() {
+            return metrics.getCachedQueryCount();
+        }
+
+        @Override
+        public double getAverageQueryMicros() {
+            return metrics.getAverageQueryMicros();
+        }
+
+        @Override
+        public double getMaxQueryMicros() {
+            return metrics.getMaxQueryMicros();
+        }
+
+        @Override
+        public double getAverageParseMicros() {
+            return metrics.getAverageStageMicros(Stage.PARSE);
+        }
+
+        @Override
+        public double getAverageScoreMicros() {
+            return metrics.getAverageStageMicros(Stage.SCORE);
+        }
+
+        @Override
+        public double getAverageRankMicros() {
+            return metrics.getAverageStageMicros(Stage.RANK);
+        }
+
+        @Override
+        public double getAveragePrintMicros() {
+            return metrics.getAverageStageMicros(Stage.PRINT);
+        }
+
+        @Override
+        public double getAverageScoredDocuments() {
+            return metrics.getAverageScoredDocuments();
+        }
+
+        @Override
+        public void reset() {
+            metrics.reset();
+        }
+
+    }
+
+    /**
+     * {@link ResultCacheMXBean} reading and changing state of result cache.
+     * 
+     * @author Domagoj Penic
+     * @version 2.6.2015.
+     *
+     */
+    private static class ResultCacheBean implements ResultCacheMXBean {
+
+        /** Monitored cache. */
+        private final ResultCache cache;
+
+        /**
+         * Creates new {@code ResultCacheBean} of specified cache.
+         * 
+         * @param cache
+         *            Monitored cache
+         */
+        public ResultCacheBean(ResultCache cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return cache.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            cache.setEnabled(enabled);
+        }
+
+        @Override
+        public int getCapacity() {
+            return cache.getCapacity();
+        }
+
+        @Override
+        public int getSize() {
+            return cache.size();
+        }
+
+        @Override
+        public long getHits() {
+            return cache.getHits();
+        }
+
+        @Override
+        public long getMisses() {
+            return cache.getMisses();
+        }
+
+        @Override
+        public long getEvictions() {
+            return cache.getEvictions();
+        }
+
+        @Override
+        public long getInvalidations() {
+            return cache.getInvalidations();
+        }
+
+        @Override
+        public void clear() {
+            cache.clear();
+        }
+
+    }
+
+    /**
+     * {@link DocumentStoreMXBean} reading state of document store.
+     * 
+     * @author Domagoj Penic
+     * @version 2.6.2015.
+     *
+     */
+    private static class DocumentStoreBean implements DocumentStoreMXBean {
+
+        /** Monitored store. */
+        private final DocumentStore store;
+
+        /**
+         * Creates new {@code DocumentStoreBean} of specified store.
+         * 
+         * @param store
+         *            Monitored store
+         */
+        public DocumentStoreBean(DocumentStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public long getHits() {
+            return store.getHits();
+        }
+
+        @Override
+        public long getMisses() {
+            return store.getMisses();
+        }
+
+        @Override
+        public long getCachedBytes() {
+            return store.size();
+        }
+
+    }
+
+    /**
+     * Disable creation of instances.
+     */
+    private Monitoring() {
+    }
+
+    /**
+     * Registers management beans of specified dictionary with platform MBean
+     * server, replacing beans registered before.
+     * 
+     * @param dictionary
+     *            Monitored dictionary
+     * @throws IllegalStateException
+     *             If beans can not be registered
+     */
+    public static synchronized void register(Dictionary dictionary) {
+        unregister();
+
+        register("Dictionary", new DictionaryBean(dictionary));
+        register("Search", new SearchBean(dictionary.getMetrics()));
+        register("ResultCache",
+                new ResultCacheBean(dictionary.getResultCache()));
+        register("DocumentStore",
+                new DocumentStoreBean(dictionary.getDocumentStore()));
+    }
+
+    /**
+     * Unregisters all management beans registered by
+     * {@link #register(Dictionary)}, if there are any.
+     * 
+     * @throws IllegalStateException
+     *             If beans can not be unregistered
+     */
+    public static synchronized void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            for (ObjectName name : server.queryNames(new ObjectName(DOMAIN
+                    + ":type=*"), null)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException(
+                    "Management beans can not be unregistered.", e);
+        }
+    }
+
+    /**
+     * Registers specified bean with platform MBean server under specified
+     * type.
+     * 
+     * @param type
+     *            Type of bean, part of its name
+     * @param bean
+     *            Bean to be registered
+     * @throws IllegalStateException
+     *             If bean can not be registered
+     */
+    private static void register(String type, Object bean) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(bean,
+                    new ObjectName(DOMAIN + ":type=" + type));
+        } catch (JMException e) {
+            throw new IllegalStateException("Management bean " + type
+                    + " can not be registered.", e);
+        }
+    }
+
+}
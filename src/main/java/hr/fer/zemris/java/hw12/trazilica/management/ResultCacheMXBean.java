@@ -0,0 +1,75 @@
+package hr.fer.zemris.java.hw12.trazilica.management;
+
+/**
+ * Management interface exposing state of
+ * {@link hr.fer.zemris.java.hw12.trazilica.ResultCache}.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public interface ResultCacheMXBean {
+
+    /**
+     * Returns whether cache is enabled.
+     * 
+     * @return {@code true} if results are kept
+     */
+    boolean isEnabled();
+
+    /**
+     * Enables or disables cache.
+     * 
+     * @param enabled
+     *            Whether cache should be enabled
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Returns maximal number of kept results.
+     * 
+     * @return Capacity of cache
+     */
+    int getCapacity();
+
+    /**
+     * Returns number of currently kept results.
+     * 
+     * @return Number of kept results
+     */
+    int getSize();
+
+    /**
+     * Returns number of queries answered from cache.
+     * 
+     * @return Number of hits
+     */
+    long getHits();
+
+    /**
+     * Returns number of queries which were not found in cache.
+     * 
+     * @return Number of misses
+     */
+    long getMisses();
+
+    /**
+     * Returns number of results evicted since cache was full.
+     * 
+     * @return Number of evictions
+     */
+    long getEvictions();
+
+    /**
+     * Returns number of results dropped since dictionary was changed.
+     * 
+     * @return Number of invalidations
+     */
+    long getInvalidations();
+
+    /**
+     * Drops all kept results.
+     */
+    void clear();
+
+}
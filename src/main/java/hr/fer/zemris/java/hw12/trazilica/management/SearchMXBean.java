@@ -0,0 +1,82 @@
+package hr.fer.zemris.java.hw12.trazilica.management;
+
+/**
+ * Management interface exposing metrics of queries, as recorded by
+ * {@link hr.fer.zemris.java.hw12.trazilica.SearchMetrics}. All durations are
+ * in microseconds.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public interface SearchMXBean {
+
+    /**
+     * Returns number of queries.
+     * 
+     * @return Number of queries
+     */
+    long getQueryCount();
+
+    /**
+     * Returns number of queries answered by result cache.
+     * 
+     * @return Number of cached queries
+     */
+    long getCachedQueryCount();
+
+    /**
+     * Returns average duration of query.
+     * 
+     * @return Average duration of query
+     */
+    double getAverageQueryMicros();
+
+    /**
+     * Returns duration of the slowest query.
+     * 
+     * @return Maximal duration of query
+     */
+    double getMaxQueryMicros();
+
+    /**
+     * Returns average duration of extracting query words.
+     * 
+     * @return Average duration of parsing
+     */
+    double getAverageParseMicros();
+
+    /**
+     * Returns average duration of scoring documents.
+     * 
+     * @return Average duration of scoring
+     */
+    double getAverageScoreMicros();
+
+    /**
+     * Returns average duration of ordering the best documents.
+     * 
+     * @return Average duration of ranking
+     */
+    double getAverageRankMicros();
+
+    /**
+     * Returns average duration of printing results.
+     * 
+     * @return Average duration of printing
+     */
+    double getAveragePrintMicros();
+
+    /**
+     * Returns average number of documents scored by query.
+     * 
+     * @return Average number of scored documents
+     */
+    double getAverageScoredDocuments();
+
+    /**
+     * Forgets all recorded queries.
+     */
+    void reset();
+
+}
@@ -0,0 +1,108 @@
+package hr.fer.zemris.java.hw12.trazilica.naredbe;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import hr.fer.zemris.java.hw12.trazilica.SearchResults;
+import hr.fer.zemris.java.hw12.trazilica.Session;
+import hr.fer.zemris.java.hw12.trazilica.Status;
+
+/**
+ * {@code BatchCommand} is a concrete implementation of {@code Command}
+ * interface which executes many queries at once. It accepts path to input
+ * file, which contains one query in every line, and path to output file, to
+ * which results of all queries are written. Number of results of every query
+ * can be changed by option {@code --top=N} given before paths, 10 results are
+ * kept by default.
+ * <p>
+ * Every result is written in its own line as query number, rank, similarity
+ * and document path separated by tabs. Queries are numbered by lines of input
+ * file starting from 0, and ranks start from 0 the same as in results of
+ * query command. Queries are scored in batches on all available processors,
+ * see {@link hr.fer.zemris.java.hw12.trazilica.Dictionary#search(List, int,
+ * int)}. Current results of session are not changed.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class BatchCommand implements Command {
+
+    /** Default number of results of every query. */
+    private static final int DEFAULT_RESULTS = 10;
+    /** Prefix of option which sets number of results. */
+    private static final String TOP_OPTION = "--top=";
+
+    @Override
+    public Status execute(Session session, String arguments) {
+        String[] elements = arguments.split("\\s+");
+        int resultsCount = DEFAULT_RESULTS;
+
+        int start = 0;
+        if (elements[0].startsWith(TOP_OPTION)) {
+            try {
+                resultsCount = Integer.parseInt(elements[0]
+                        .substring(TOP_OPTION.length()));
+            } catch (NumberFormatException e) {
+                resultsCount = 0;
+            }
+
+            if (resultsCount < 1) {
+                System.out.println("Number of results must be"
+                        + " positive integer number.");
+                return Status.CONTINUE;
+            }
+
+            start++;
+        }
+
+        if (elements.length - start != 2) {
+            System.out.println("Expected paths to input and output file.");
+            return Status.CONTINUE;
+        }
+
+        try {
+            Path input = Paths.get(elements[start]);
+            Path output = Paths.get(elements[start + 1]);
+
+            List<String> queries = Files.readAllLines(input,
+                    StandardCharsets.UTF_8);
+
+            long startTime = System.nanoTime();
+            List<SearchResults> results = session.getDictionary().search(
+                    queries, resultsCount,
+                    Runtime.getRuntime().availableProcessors());
+            long duration = (System.nanoTime() - startTime) / 1_000_000;
+
+            try (BufferedWriter writer = Files.newBufferedWriter(output,
+                    StandardCharsets.UTF_8)) {
+                for (int query = 0; query < results.size(); query++) {
+                    SearchResults result = results.get(query);
+
+                    for (int index = 0; index < result.size(); index++) {
+                        writer.write(String.format("%d\t%d\t%.4f\t%s%n",
+                                query, index, result.getSimilarity(index),
+                                result.getDocument(index).toString()));
+                    }
+                }
+            }
+
+            System.out.println("Executed " + queries.size() + " queries in "
+                    + duration + " ms, results are written to " + output);
+        } catch (InvalidPathException e) {
+            System.out.println("Invalid path: " + e.getInput());
+        } catch (IOException e) {
+            System.out.println("IO error occured.");
+            System.out.println(e.getMessage());
+        }
+
+        return Status.CONTINUE;
+    }
+
+}
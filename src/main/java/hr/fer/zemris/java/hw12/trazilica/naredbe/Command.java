@@ -1,13 +1,13 @@
 package hr.fer.zemris.java.hw12.trazilica.naredbe;
 
-import hr.fer.zemris.java.hw12.trazilica.Dictionary;
+import hr.fer.zemris.java.hw12.trazilica.Session;
 import hr.fer.zemris.java.hw12.trazilica.Status;
 
 /**
  * {@code Command} defines an interface for commands which can be executed by
  * {@code Console} command line application. Commands are being executed over
- * specified {@code Dictionary} and arguments provided by user trough simple
- * shell.
+ * {@code Dictionary} of specified user {@code Session} and arguments provided
+ * by user trough simple shell.
  * 
  * @author Domagoj Penic
  * @version 2.6.2015.
@@ -16,16 +16,17 @@ import hr.fer.zemris.java.hw12.trazilica.Status;
 public interface Command {
 
     /**
-     * Executes this {@code Command} over specified {@code Dictionary} and
+     * Executes this {@code Command} over specified {@code Session} and
      * provided user arguments and returns {@code Status} which indicates if
      * application should continue with its work or it should terminate.
      * 
-     * @param dictionary
-     *            {@code Dictionary} holding files and vector
+     * @param session
+     *            {@code Session} of user, holding {@code Dictionary} and
+     *            results of last query
      * @param arguments
      *            Shell arguments provided by user
      * @return {@code Status} when this {@code Command} finishes its execution
      */
-    Status execute(Dictionary dictionary, String arguments);
+    Status execute(Session session, String arguments);
 
 }
@@ -1,6 +1,6 @@
 package hr.fer.zemris.java.hw12.trazilica.naredbe;
 
-import hr.fer.zemris.java.hw12.trazilica.Dictionary;
+import hr.fer.zemris.java.hw12.trazilica.Session;
 import hr.fer.zemris.java.hw12.trazilica.Status;
 
 /**
@@ -15,7 +15,7 @@ import hr.fer.zemris.java.hw12.trazilica.Status;
 public class ExitCommand implements Command {
 
     @Override
-    public Status execute(Dictionary dictionary, String arguments) {
+    public Status execute(Session session, String arguments) {
         return Status.TERMINATE;
     }
 
@@ -1,20 +1,25 @@
 package hr.fer.zemris.java.hw12.trazilica.naredbe;
 
-import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map.Entry;
+import java.util.Arrays;
 
-import hr.fer.zemris.java.hw12.trazilica.Dictionary;
+import hr.fer.zemris.java.hw12.trazilica.SearchMetrics.Stage;
+import hr.fer.zemris.java.hw12.trazilica.SearchResults;
+import hr.fer.zemris.java.hw12.trazilica.Session;
 import hr.fer.zemris.java.hw12.trazilica.Status;
-import hr.fer.zemris.java.hw12.trazilica.tfidf.TfIdfVector;
 
 /**
  * {@code QueryCommand} is a concrete implementation of {@code Command}
  * interface which accepts various number of arguments which are being
- * interpreted as language words. When this command is being executed, all files
+ * interpreted as language words. Words are extracted from arguments the same
+ * way as from documents. When this command is being executed, all files
  * are being searched and top 10 with greatest similarity with specified query
- * are being printed on {@code System.out}.
+ * are being printed on {@code System.out}. Number of printed results can be
+ * changed by option {@code --top=N} given before query words.
+ * <p>
+ * Words enclosed in quotes are searched as phrase, e.g.
+ * {@code query "nogometnog saveza" hajduk}, and {@code "A B"~N} allows at most
+ * N other words between phrase words, see
+ * {@link hr.fer.zemris.java.hw12.trazilica.Dictionary#search(String, int)}.
  * 
  * @author Domagoj Penic
  * @version 2.6.2015.
@@ -22,50 +27,58 @@ import hr.fer.zemris.java.hw12.trazilica.tfidf.TfIdfVector;
  */
 public class QueryCommand implements Command {
 
+    /** Default number of results. */
+    private static final int DEFAULT_RESULTS = 10;
+    /** Prefix of option which sets number of results. */
+    private static final String TOP_OPTION = "--top=";
+
     @Override
-    public Status execute(Dictionary dictionary, String arguments) {
-        String[] queryWords = arguments.split("\\s+");
-        List<String> queryWordsList = new ArrayList<>();
+    public Status execute(Session session, String arguments) {
+        String[] elements = arguments.split("\\s+");
+        int resultsCount = DEFAULT_RESULTS;
 
-        // Take only valid words
-        for (String word : queryWords) {
-            if (dictionary.getVocabulary().contains(word)) {
-                queryWordsList.add(word);
+        // Options are given before query words
+        int start = 0;
+        while (start < elements.length
+                && elements[start].startsWith(TOP_OPTION)) {
+            try {
+                resultsCount = Integer.parseInt(elements[start]
+                        .substring(TOP_OPTION.length()));
+            } catch (NumberFormatException e) {
+                resultsCount = 0;
             }
-        }
 
-        System.out.println("Query is: " + queryWordsList);
-
-        // Create vector representing query
-        TfIdfVector vector = new TfIdfVector(queryWordsList,
-                dictionary.getVocabulary(), dictionary.getDocuments());
+            if (resultsCount < 1) {
+                System.out.println("Number of results must be"
+                        + " positive integer number.");
+                return Status.CONTINUE;
+            }
 
-        // Find similarities with other files
-        for (Path document : dictionary.getVectors().keySet()) {
-            TfIdfVector documentVector = dictionary.getVectors().get(document);
+            start++;
+        }
 
-            double similarity = vector.scalarMultiply(documentVector)
-                    / (vector.norm() * documentVector.norm());
+        String queryText = String.join(" ",
+                Arrays.asList(elements).subList(start, elements.length));
+        SearchResults results = session.getDictionary().search(queryText,
+                resultsCount);
+        session.setCurrentResults(results);
 
-            if (similarity > 0) {
-                dictionary.getCurrentResults().put(similarity, document);
-            }
-        }
+        long printStart = System.nanoTime();
+        System.out.println("Query is: " + results.getQuery());
 
-        if (dictionary.getCurrentResults().size() > 0) {
-            System.out.println("Najboljih 10 rezultata: ");
+        if (results.size() > 0) {
+            System.out.println("Najboljih " + results.size() + " rezultata: ");
         } else {
             System.out.println("No results for specified query.");
         }
 
-        int index = 0;
-        for (Entry<Double, Path> entry : dictionary.getCurrentResults()
-                .entrySet()) {
-            System.out.print(String.format("[%2d] (%.4f) %s%n", index, entry
-                    .getKey().doubleValue(), entry.getValue().toString()));
-
-            index++;
+        for (int index = 0; index < results.size(); index++) {
+            System.out.print(String.format("[%2d] (%.4f) %s%n", index,
+                    results.getSimilarity(index), results.getDocument(index)
+                            .toString()));
         }
+        session.getDictionary().getMetrics()
+                .recordStage(Stage.PRINT, System.nanoTime() - printStart);
 
         return Status.CONTINUE;
     }
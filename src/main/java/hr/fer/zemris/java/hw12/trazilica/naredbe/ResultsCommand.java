@@ -1,9 +1,7 @@
 package hr.fer.zemris.java.hw12.trazilica.naredbe;
 
-import java.nio.file.Path;
-import java.util.Map.Entry;
-
-import hr.fer.zemris.java.hw12.trazilica.Dictionary;
+import hr.fer.zemris.java.hw12.trazilica.SearchResults;
+import hr.fer.zemris.java.hw12.trazilica.Session;
 import hr.fer.zemris.java.hw12.trazilica.Status;
 
 /**
@@ -19,20 +17,18 @@ import hr.fer.zemris.java.hw12.trazilica.Status;
 public class ResultsCommand implements Command {
 
     @Override
-    public Status execute(Dictionary dictionary, String arguments) {
-        if (dictionary.getCurrentResults().size() == 0) {
+    public Status execute(Session session, String arguments) {
+        SearchResults results = session.getCurrentResults();
+
+        if (results.size() == 0) {
             System.out.println("There are no current results.");
             return Status.CONTINUE;
         }
 
-        int index = 0;
-        for (Entry<Double, Path> entry : dictionary.getCurrentResults()
-                .entrySet()) {
-
-            System.out.print(String.format("[%2d] (%.4f) %s%n", index, entry
-                    .getKey().doubleValue(), entry.getValue().toString()));
-
-            index++;
+        for (int index = 0; index < results.size(); index++) {
+            System.out.print(String.format("[%2d] (%.4f) %s%n", index,
+                    results.getSimilarity(index), results.getDocument(index)
+                            .toString()));
         }
 
         return Status.CONTINUE;
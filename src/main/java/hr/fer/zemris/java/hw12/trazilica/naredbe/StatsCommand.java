@@ -0,0 +1,95 @@
+package hr.fer.zemris.java.hw12.trazilica.naredbe;
+
+import java.util.Map;
+
+import hr.fer.zemris.java.hw12.trazilica.Dictionary;
+import hr.fer.zemris.java.hw12.trazilica.DocumentStore;
+import hr.fer.zemris.java.hw12.trazilica.ResultCache;
+import hr.fer.zemris.java.hw12.trazilica.SearchMetrics;
+import hr.fer.zemris.java.hw12.trazilica.SearchMetrics.Stage;
+import hr.fer.zemris.java.hw12.trazilica.Session;
+import hr.fer.zemris.java.hw12.trazilica.Status;
+
+/**
+ * {@code StatsCommand} is a concrete implementation of {@code Command}
+ * interface which prints metrics of dictionary on {@code System.out}: how long
+ * phases of its creation took, how long stages of queries take on average, how
+ * successful caches are and how much memory its structures take, on heap and
+ * outside of it. Argument
+ * {@code reset} forgets all recorded queries instead. The same metrics are
+ * available trough JMX, see
+ * {@link hr.fer.zemris.java.hw12.trazilica.management.Monitoring}.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class StatsCommand implements Command {
+
+    @Override
+    public Status execute(Session session, String arguments) {
+        Dictionary dictionary = session.getDictionary();
+        SearchMetrics metrics = dictionary.getMetrics();
+
+        if (arguments.equalsIgnoreCase("reset")) {
+            metrics.reset();
+            System.out.println("Query metrics are reset.");
+            return Status.CONTINUE;
+        } else if (!arguments.isEmpty()) {
+            System.out.println("Only argument can be reset.");
+            return Status.CONTINUE;
+        }
+
+        System.out.println(String.format(
+                "Documents: %d, words: %d, version: %d",
+                dictionary.getDocumentCount(), dictionary.getVocabulary()
+                        .size(), dictionary.getVersion()));
+
+        System.out.println("Build phases:");
+        for (Map.Entry<String, Long> phase : metrics.getBuildPhaseMillis()
+                .entrySet()) {
+            System.out.println(String.format("  %-12s %8d ms",
+                    phase.getKey(), phase.getValue()));
+        }
+
+        System.out.println(String.format(
+                "Queries: %d (%d from cache), average %.1f us, max %.1f us",
+                metrics.getQueryCount(), metrics.getCachedQueryCount(),
+                metrics.getAverageQueryMicros(), metrics.getMaxQueryMicros()));
+        for (Stage stage : Stage.values()) {
+            System.out.println(String.format("  %-12s %8.1f us", stage
+                    .name().toLowerCase(), metrics
+                    .getAverageStageMicros(stage)));
+        }
+        System.out.println(String.format("  %-12s %8.1f", "scored docs",
+                metrics.getAverageScoredDocuments()));
+
+        ResultCache cache = dictionary.getResultCache();
+        System.out.println(String.format("Result cache: %s, %d/%d entries,"
+                + " %d hits, %d misses, %d evictions, %d invalidations",
+                cache.isEnabled() ? "enabled" : "disabled", cache.size(),
+                cache.getCapacity(), cache.getHits(), cache.getMisses(),
+                cache.getEvictions(), cache.getInvalidations()));
+
+        DocumentStore store = dictionary.getDocumentStore();
+        System.out.println(String.format(
+                "Document cache: %d bytes, %d hits, %d misses", store.size(),
+                store.getHits(), store.getMisses()));
+
+        System.out.println("Heap footprint:");
+        long total = 0;
+        for (Map.Entry<String, Long> structure : dictionary
+                .getHeapFootprint().entrySet()) {
+            System.out.println(String.format("  %-12s %8d kB",
+                    structure.getKey(), structure.getValue() / 1024));
+            total += structure.getValue();
+        }
+        System.out.println(String.format("  %-12s %8d kB", "total",
+                total / 1024));
+        System.out.println(String.format("Off heap: %d kB",
+                dictionary.getOffHeapSize() / 1024));
+
+        return Status.CONTINUE;
+    }
+
+}
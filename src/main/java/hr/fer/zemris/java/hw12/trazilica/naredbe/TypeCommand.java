@@ -1,13 +1,13 @@
 package hr.fer.zemris.java.hw12.trazilica.naredbe;
 
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
 
-import hr.fer.zemris.java.hw12.trazilica.Dictionary;
+import hr.fer.zemris.java.hw12.trazilica.SearchResults;
+import hr.fer.zemris.java.hw12.trazilica.Session;
 import hr.fer.zemris.java.hw12.trazilica.Status;
 
 /**
@@ -16,6 +16,12 @@ import hr.fer.zemris.java.hw12.trazilica.Status;
  * previous query. File with selected index, i.e. its content is being printed
  * on {@code System.out}. If there is no previous query made, this command does
  * nothing.
+ * <p>
+ * Document is written to standard output as it is stored, without being
+ * decoded and encoded again. Its content is provided by
+ * {@link hr.fer.zemris.java.hw12.trazilica.DocumentStore}, so recently typed
+ * documents are not read again, while large ones are transferred directly
+ * from file to standard output.
  * 
  * @author Domagoj Penic
  * @version 2.6.2015.
@@ -23,8 +29,12 @@ import hr.fer.zemris.java.hw12.trazilica.Status;
  */
 public class TypeCommand implements Command {
 
+    /** Channel writing to standard output, never closed. */
+    private static final FileChannel STANDARD_OUTPUT = new FileOutputStream(
+            FileDescriptor.out).getChannel();
+
     @Override
-    public Status execute(Dictionary dictionary, String arguments) {
+    public Status execute(Session session, String arguments) {
         int index = 0;
 
         try {
@@ -35,18 +45,21 @@ public class TypeCommand implements Command {
             return Status.CONTINUE;
         }
 
-        if (index < 0 || index >= dictionary.getCurrentResults().size()) {
+        SearchResults results = session.getCurrentResults();
+
+        if (index < 0 || index >= results.size()) {
             System.out.println("Selected index does not exist.");
             return Status.CONTINUE;
         }
 
-        List<Path> documents = new ArrayList<>(dictionary.getCurrentResults()
-                .values());
+        Path document = results.getDocument(index);
 
         try {
-            String documentContent = new String(Files.readAllBytes(documents
-                    .get(index)), StandardCharsets.UTF_8);
-            System.out.println(documentContent);
+            // Everything printed before must be written before document
+            System.out.flush();
+            session.getDictionary().getDocumentStore()
+                    .transferTo(document, STANDARD_OUTPUT);
+            System.out.println();
         } catch (IOException e) {
             System.out.println("IO error occured.");
             System.out.println(e.getMessage());
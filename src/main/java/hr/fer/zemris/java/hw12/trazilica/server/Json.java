@@ -0,0 +1,104 @@
+package hr.fer.zemris.java.hw12.trazilica.server;
+
+import java.util.Collection;
+
+/**
+ * {@code Json} provides static methods for writing values as JSON text. Only
+ * values needed by {@link SearchServer} responses are supported, i.e. strings,
+ * numbers and arrays of strings, objects are written by callers from these.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public final class Json {
+
+    /**
+     * Disables creation of {@code Json} instances.
+     */
+    private Json() {
+    }
+
+    /**
+     * Appends specified string as JSON string, escaping quotes, backslashes
+     * and control characters.
+     * 
+     * @param builder
+     *            Builder to which string is appended
+     * @param value
+     *            String to be appended
+     * @return Specified builder
+     */
+    public static StringBuilder string(StringBuilder builder, String value) {
+        builder.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+            case '"':
+                builder.append("\\\"");
+                break;
+            case '\\':
+                builder.append("\\\\");
+                break;
+            case '\n':
+                builder.append("\\n");
+                break;
+            case '\r':
+                builder.append("\\r");
+                break;
+            case '\t':
+                builder.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    builder.append(String.format("\\u%04x", (int) c));
+                } else {
+                    builder.append(c);
+                }
+            }
+        }
+
+        return builder.append('"');
+    }
+
+    /**
+     * Appends specified strings as JSON array of strings.
+     * 
+     * @param builder
+     *            Builder to which array is appended
+     * @param values
+     *            Strings to be appended
+     * @return Specified builder
+     */
+    public static StringBuilder array(StringBuilder builder,
+            Collection<String> values) {
+        builder.append('[');
+
+        boolean first = true;
+        for (String value : values) {
+            if (!first) {
+                builder.append(',');
+            }
+            string(builder, value);
+            first = false;
+        }
+
+        return builder.append(']');
+    }
+
+    /**
+     * Returns JSON object with single member {@code error} holding specified
+     * message.
+     * 
+     * @param message
+     *            Error message
+     * @return JSON text of error
+     */
+    public static String error(String message) {
+        return string(new StringBuilder("{\"error\":"), message).append('}')
+                .toString();
+    }
+
+}
@@ -0,0 +1,545 @@
+package hr.fer.zemris.java.hw12.trazilica.server;
+
+import hr.fer.zemris.java.hw12.trazilica.Dictionary;
+import hr.fer.zemris.java.hw12.trazilica.SearchResults;
+import hr.fer.zemris.java.hw12.trazilica.Session;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * {@code SearchServer} is embedded HTTP server which lets {@link Dictionary} be
+ * searched as a service. It offers the same operations as console commands,
+ * every response is JSON object:
+ * <ul>
+ * <li>{@code GET /session} - creates new session and returns its
+ * identifier</li>
+ * <li>{@code GET /query?q=TEXT[&top=N][&session=ID]} - searches dictionary
+ * and returns query words and found documents; results are remembered by
+ * session if it is given, otherwise they are not kept</li>
+ * <li>{@code GET /results?session=ID} - returns results of last query of
+ * session</li>
+ * <li>{@code GET /document?session=ID&rank=N} - returns content of document
+ * with specified rank inside results of last query of session</li>
+ * </ul>
+ * Errors are returned as object with single member {@code error}.
+ * <p>
+ * Requests are received by pool of request threads, while searching and
+ * reading documents is done by bounded pool of workers. If all workers are
+ * busy and their queue is full, request is refused with status 503 instead of
+ * being queued without limit, and if request is not completed in time, status
+ * 504 is returned. Only limited number of sessions is kept, the least recently
+ * used ones are forgotten first.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class SearchServer implements AutoCloseable {
+
+    /** Default number of results of query. */
+    private static final int DEFAULT_RESULTS = 10;
+    /** Default capacity of queue of requests waiting for worker. */
+    private static final int DEFAULT_QUEUE_CAPACITY = 64;
+    /** Default time given to every request, in milliseconds. */
+    private static final long DEFAULT_TIMEOUT = 5000;
+    /** Maximal number of sessions kept. */
+    private static final int MAX_SESSIONS = 1000;
+
+    /**
+     * Exception which is turned into HTTP response with error status.
+     * 
+     * @author Domagoj Penic
+     * @version 2.6.2015.
+     *
+     */
+    private static class HttpException extends Exception {
+
+        /** Serial version UID. */
+        private static final long serialVersionUID = 1L;
+
+        /** HTTP status of response. */
+        private final int status;
+
+        /**
+         * Creates new {@code HttpException} with specified status and
+         * message.
+         * 
+         * @param status
+         *            HTTP status of response
+         * @param message
+         *            Error message
+         */
+        public HttpException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+    }
+
+    /**
+     * Operation offered by server, producing JSON response from request
+     * parameters.
+     * 
+     * @author Domagoj Penic
+     * @version 2.6.2015.
+     *
+     */
+    @FunctionalInterface
+    private interface Endpoint {
+
+        /**
+         * Handles request with specified parameters.
+         * 
+         * @param parameters
+         *            Request parameters associated with their values
+         * @return JSON text of response
+         * @throws HttpException
+         *             If request can not be completed
+         */
+        String handle(Map<String, String> parameters) throws HttpException;
+
+    }
+
+    /** Dictionary which is searched. */
+    private final Dictionary dictionary;
+    /** Underlying HTTP server. */
+    private final HttpServer server;
+    /** Threads receiving requests and sending responses. */
+    private final ExecutorService requestThreads;
+    /** Bounded pool of workers executing requests. */
+    private final ThreadPoolExecutor workers;
+    /** Time given to every request, in milliseconds. */
+    private final long timeout;
+    /** Sessions associated with their identifiers, in order of use. */
+    private final Map<String, Session> sessions;
+
+    /**
+     * Creates new {@code SearchServer} of specified {@code Dictionary}, with
+     * one worker for every available processor and default limits.
+     * 
+     * @param dictionary
+     *            Dictionary which is searched
+     * @param port
+     *            Port on which server listens, 0 for any free port
+     * @throws IOException
+     *             If server can not be bound to port
+     */
+    public SearchServer(Dictionary dictionary, int port) throws IOException {
+        this(dictionary, port, Runtime.getRuntime().availableProcessors(),
+                DEFAULT_QUEUE_CAPACITY, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Creates new {@code SearchServer} of specified {@code Dictionary}.
+     * 
+     * @param dictionary
+     *            Dictionary which is searched
+     * @param port
+     *            Port on which server listens, 0 for any free port
+     * @param workerCount
+     *            Number of workers executing requests
+     * @param queueCapacity
+     *            Maximal number of requests waiting for worker
+     * @param timeout
+     *            Time given to every request, in milliseconds
+     * @throws IOException
+     *             If server can not be bound to port
+     * @throws IllegalArgumentException
+     *             If some of limits is not positive
+     */
+    public SearchServer(Dictionary dictionary, int port, int workerCount,
+            int queueCapacity, long timeout) throws IOException {
+        if (workerCount < 1 || queueCapacity < 1 || timeout < 1) {
+            throw new IllegalArgumentException(
+                    "Limits of server must be positive.");
+        }
+
+        this.dictionary = dictionary;
+        this.timeout = timeout;
+        this.sessions = new LinkedHashMap<String, Session>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, Session> eldest) {
+                return size() > MAX_SESSIONS;
+            }
+
+        };
+
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0,
+                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory("search-worker"));
+        // Every request thread waits for at most one running or queued task
+        this.requestThreads = Executors.newFixedThreadPool(workerCount
+                + queueCapacity, threadFactory("http-request"));
+
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(requestThreads);
+        server.createContext("/session", exchange -> handle(exchange,
+                this::session));
+        server.createContext("/query", exchange -> handle(exchange,
+                this::query));
+        server.createContext("/results", exchange -> handle(exchange,
+                this::results));
+        server.createContext("/document", exchange -> handle(exchange,
+                this::document));
+    }
+
+    /**
+     * Starts receiving requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns port on which this server listens.
+     * 
+     * @return Port of server
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops receiving requests and stops all threads of this server.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        requestThreads.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Creates new session, remembered until it becomes one of the least
+     * recently used sessions.
+     * 
+     * @param parameters
+     *            Request parameters
+     * @return JSON text of session identifier
+     */
+    private String session(Map<String, String> parameters) {
+        String id = UUID.randomUUID().toString();
+        synchronized (sessions) {
+            sessions.put(id, new Session(dictionary));
+        }
+
+        return Json.string(new StringBuilder("{\"session\":"), id)
+                .append('}').toString();
+    }
+
+    /**
+     * Searches dictionary and remembers results in session, if session is
+     * given. Query without session is answered by temporary session which is
+     * not kept, so stateless queries never push out sessions of other
+     * clients.
+     * 
+     * @param parameters
+     *            Request parameters
+     * @return JSON text of results
+     * @throws HttpException
+     *             If parameters are invalid or session does not exist
+     */
+    private String query(Map<String, String> parameters) throws HttpException {
+        String text = parameters.get("q");
+        if (text == null) {
+            throw new HttpException(400, "Parameter q is required.");
+        }
+
+        int count = DEFAULT_RESULTS;
+        if (parameters.containsKey("top")) {
+            count = integer(parameters, "top", 1);
+        }
+
+        String id = parameters.get("session");
+        Session session = id == null ? new Session(dictionary)
+                : getSession(parameters);
+
+        SearchResults results = dictionary.search(text, count);
+        session.setCurrentResults(results);
+
+        return toJson(id, results);
+    }
+
+    /**
+     * Returns results of last query of session.
+     * 
+     * @param parameters
+     *            Request parameters
+     * @return JSON text of results
+     * @throws HttpException
+     *             If session does not exist
+     */
+    private String results(Map<String, String> parameters)
+            throws HttpException {
+        return toJson(parameters.get("session"), getSession(parameters)
+                .getCurrentResults());
+    }
+
+    /**
+     * Returns content of document from results of last query of session.
+     * 
+     * @param parameters
+     *            Request parameters
+     * @return JSON text of document
+     * @throws HttpException
+     *             If session or document does not exist or document can not
+     *             be read
+     */
+    private String document(Map<String, String> parameters)
+            throws HttpException {
+        SearchResults results = getSession(parameters).getCurrentResults();
+
+        int rank = integer(parameters, "rank", 0);
+        if (rank >= results.size()) {
+            throw new HttpException(404, "Selected rank does not exist.");
+        }
+
+        String content;
+        try {
+            content = StandardCharsets.UTF_8.decode(
+                    dictionary.getDocumentStore().read(
+                            results.getDocument(rank))).toString();
+        } catch (NoSuchFileException e) {
+            throw new HttpException(404, "Document no longer exists.");
+        } catch (IOException e) {
+            throw new HttpException(500, "Document can not be read.");
+        }
+
+        StringBuilder json = new StringBuilder("{\"rank\":").append(rank)
+                .append(",\"document\":");
+        Json.string(json, results.getDocument(rank).toString()).append(
+                ",\"content\":");
+        return Json.string(json, content).append('}').toString();
+    }
+
+    /**
+     * Returns session given by request parameter {@code session}.
+     * 
+     * @param parameters
+     *            Request parameters
+     * @return Session of request
+     * @throws HttpException
+     *             If parameter is missing or session does not exist
+     */
+    private Session getSession(Map<String, String> parameters)
+            throws HttpException {
+        String id = parameters.get("session");
+        if (id == null) {
+            throw new HttpException(400, "Parameter session is required.");
+        }
+
+        Session session;
+        synchronized (sessions) {
+            session = sessions.get(id);
+        }
+
+        if (session == null) {
+            throw new HttpException(404, "Session does not exist: " + id);
+        }
+
+        return session;
+    }
+
+    /**
+     * Handles specified exchange by specified endpoint, executed by worker,
+     * and sends its response.
+     * 
+     * @param exchange
+     *            HTTP exchange
+     * @param endpoint
+     *            Endpoint handling request
+     * @throws IOException
+     *             If response can not be sent
+     */
+    private void handle(HttpExchange exchange, Endpoint endpoint)
+            throws IOException {
+        int status = 200;
+        String body;
+
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                throw new HttpException(405,
+                        "Only GET requests are supported.");
+            }
+
+            Map<String, String> parameters = parseParameters(exchange
+                    .getRequestURI().getRawQuery());
+            Future<String> future = workers.submit(() -> endpoint
+                    .handle(parameters));
+
+            try {
+                body = future.get(timeout, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                throw new HttpException(504, "Request timed out.");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof HttpException) {
+                    throw (HttpException) e.getCause();
+                }
+                throw new HttpException(500, "Internal server error.");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new HttpException(503, "Server is stopping.");
+            }
+        } catch (RejectedExecutionException e) {
+            status = 503;
+            body = Json.error("Server is overloaded.");
+        } catch (HttpException e) {
+            status = e.status;
+            body = Json.error(e.getMessage());
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type",
+                "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    /**
+     * Returns JSON text of specified results of session with specified
+     * identifier. Ranks of documents start from 0, the same as in results
+     * command.
+     * 
+     * @param id
+     *            Identifier of session, {@code null} if results are not kept
+     * @param results
+     *            Results of query
+     * @return JSON text of results
+     */
+    private static String toJson(String id, SearchResults results) {
+        StringBuilder json = new StringBuilder("{\"session\":");
+        if (id == null) {
+            json.append("null");
+        } else {
+            Json.string(json, id);
+        }
+        json.append(",\"query\":");
+        Json.array(json, results.getQuery()).append(",\"results\":[");
+
+        for (int rank = 0; rank < results.size(); rank++) {
+            if (rank > 0) {
+                json.append(',');
+            }
+
+            json.append("{\"rank\":").append(rank)
+                    .append(",\"similarity\":")
+                    .append(results.getSimilarity(rank))
+                    .append(",\"document\":");
+            Json.string(json, results.getDocument(rank).toString()).append(
+                    '}');
+        }
+
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Returns value of specified request parameter as integer not less than
+     * specified minimum.
+     * 
+     * @param parameters
+     *            Request parameters
+     * @param name
+     *            Name of parameter
+     * @param minimum
+     *            Minimal allowed value
+     * @return Value of parameter
+     * @throws HttpException
+     *             If parameter is missing, is not integer or is too small
+     */
+    private static int integer(Map<String, String> parameters, String name,
+            int minimum) throws HttpException {
+        try {
+            int value = Integer.parseInt(parameters.get(name));
+            if (value >= minimum) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+
+        throw new HttpException(400, "Parameter " + name
+                + " must be integer number not less than " + minimum + ".");
+    }
+
+    /**
+     * Parses parameters of URL query, given in form
+     * {@code name=value&name=value}.
+     * 
+     * @param query
+     *            Raw query of URL, may be {@code null}
+     * @return Parameter names associated with their decoded values
+     * @throws HttpException
+     *             If query can not be decoded
+     */
+    private static Map<String, String> parseParameters(String query)
+            throws HttpException {
+        Map<String, String> parameters = new HashMap<>();
+
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+
+        try {
+            for (String parameter : query.split("&")) {
+                String[] elements = parameter.split("=", 2);
+                parameters.put(URLDecoder.decode(elements[0], "UTF-8"),
+                        elements.length == 2 ? URLDecoder.decode(elements[1],
+                                "UTF-8") : "");
+            }
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            throw new HttpException(400, "Invalid request parameters.");
+        }
+
+        return parameters;
+    }
+
+    /**
+     * Returns factory of daemon threads with specified name prefix.
+     * 
+     * @param name
+     *            Prefix of thread names
+     * @return Thread factory
+     */
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-"
+                    + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+}
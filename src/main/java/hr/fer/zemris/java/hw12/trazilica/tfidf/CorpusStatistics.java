@@ -0,0 +1,191 @@
+package hr.fer.zemris.java.hw12.trazilica.tfidf;
+
+import hr.fer.zemris.java.hw12.trazilica.index.HeapSize;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * {@code CorpusStatistics} holds statistics of all documents which define
+ * language: number of documents, number of documents containing each word
+ * (document frequency) and total number of occurrences of each word. All
+ * statistics are collected in single pass over documents, after which IDF
+ * value of any word can be obtained in constant time.
+ * <p>
+ * Words are given by their term identifiers, so statistics are kept in arrays
+ * indexed by identifier, growing as new terms appear.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class CorpusStatistics {
+
+    /** Number of documents. */
+    private int documentCount;
+    /** Numbers of documents containing every term. */
+    private int[] documentFrequencies;
+    /** Numbers of occurrences of every term in all documents. */
+    private int[] totalCounts;
+
+    /**
+     * Creates new empty {@code CorpusStatistics}. Documents are added by
+     * {@link #addDocument(int[])} or by merging other statistics.
+     */
+    public CorpusStatistics() {
+        documentFrequencies = new int[0];
+        totalCounts = new int[0];
+    }
+
+    /**
+     * Creates new {@code CorpusStatistics} of specified documents.
+     * 
+     * @param documents
+     *            Collection of all documents, each one given as identifiers of
+     *            its terms
+     */
+    public CorpusStatistics(Collection<int[]> documents) {
+        this();
+
+        for (int[] document : documents) {
+            addDocument(document);
+        }
+    }
+
+    /**
+     * Creates new {@code CorpusStatistics} from already collected values, e.g.
+     * when they are read from index file.
+     * 
+     * @param documentCount
+     *            Number of documents
+     * @param documentFrequencies
+     *            Numbers of documents containing every term
+     * @param totalCounts
+     *            Numbers of occurrences of every term in all documents
+     */
+    public CorpusStatistics(int documentCount, int[] documentFrequencies,
+            int[] totalCounts) {
+        this.documentCount = documentCount;
+        this.documentFrequencies = documentFrequencies;
+        this.totalCounts = totalCounts;
+    }
+
+    /**
+     * Adds specified document to these statistics.
+     * 
+     * @param document
+     *            Identifiers of document terms
+     */
+    public void addDocument(int[] document) {
+        TermCounts counts = new TermCounts(document);
+
+        for (int i = 0; i < counts.size(); i++) {
+            int term = counts.term(i);
+            ensureCapacity(term + 1);
+            documentFrequencies[term]++;
+            totalCounts[term] += counts.count(i);
+        }
+
+        documentCount++;
+    }
+
+    /**
+     * Removes specified document from these statistics. Document must be
+     * previously added, with the same terms.
+     * 
+     * @param document
+     *            Identifiers of document terms
+     */
+    public void removeDocument(int[] document) {
+        TermCounts counts = new TermCounts(document);
+
+        for (int i = 0; i < counts.size(); i++) {
+            int term = counts.term(i);
+            documentFrequencies[term]--;
+            totalCounts[term] -= counts.count(i);
+        }
+
+        documentCount--;
+    }
+
+    /**
+     * Adds all documents counted by specified statistics to these statistics.
+     * Used for joining statistics collected over separate parts of documents,
+     * each with its own term identifiers.
+     * 
+     * @param other
+     *            Statistics to be merged into these
+     * @param termMapping
+     *            Identifiers of terms of these statistics, indexed by
+     *            identifiers of terms of other statistics
+     */
+    public void merge(CorpusStatistics other, int[] termMapping) {
+        for (int term = 0; term < termMapping.length; term++) {
+            int mapped = termMapping[term];
+            ensureCapacity(mapped + 1);
+            documentFrequencies[mapped] += other.getDocumentFrequency(term);
+            totalCounts[mapped] += other.getTotalCount(term);
+        }
+
+        documentCount += other.documentCount;
+    }
+
+    /**
+     * Returns number of documents.
+     * 
+     * @return Number of documents
+     */
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    /**
+     * Returns number of documents containing specified term.
+     * 
+     * @param term
+     *            Identifier of term which document frequency is returned
+     * @return Document frequency of term, 0 if term does not exist
+     */
+    public int getDocumentFrequency(int term) {
+        return term < documentFrequencies.length ? documentFrequencies[term]
+                : 0;
+    }
+
+    /**
+     * Returns number of occurrences of specified term in all documents.
+     * 
+     * @param term
+     *            Identifier of term which total number of occurrences is
+     *            returned
+     * @return Total number of occurrences, 0 if term does not exist
+     */
+    public int getTotalCount(int term) {
+        return term < totalCounts.length ? totalCounts[term] : 0;
+    }
+
+    /**
+     * Returns estimated number of bytes taken by these statistics on heap.
+     * 
+     * @return Estimated size of statistics
+     */
+    public long estimateHeapSize() {
+        return HeapSize.object(Integer.BYTES + 2 * HeapSize.REFERENCE)
+                + HeapSize.array(documentFrequencies.length, Integer.BYTES)
+                + HeapSize.array(totalCounts.length, Integer.BYTES);
+    }
+
+    /**
+     * Ensures that statistics of specified number of terms can be kept.
+     * 
+     * @param terms
+     *            Required number of terms
+     */
+    private void ensureCapacity(int terms) {
+        if (terms > documentFrequencies.length) {
+            int capacity = Math.max(terms, documentFrequencies.length * 2);
+            documentFrequencies = Arrays.copyOf(documentFrequencies, capacity);
+            totalCounts = Arrays.copyOf(totalCounts, capacity);
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package hr.fer.zemris.java.hw12.trazilica.tfidf;
+
+import java.util.Arrays;
+
+/**
+ * {@code TermCounts} holds distinct terms of single document, given by their
+ * identifiers and sorted ascending, together with number of occurrences of
+ * every term inside document. Counts are obtained by sorting copy of document
+ * terms, so no map is needed.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class TermCounts {
+
+    /** Distinct term identifiers, sorted ascending. */
+    private int[] terms;
+    /** Numbers of occurrences, associated with {@link #terms}. */
+    private int[] counts;
+
+    /**
+     * Creates new {@code TermCounts} by counting specified document terms.
+     * 
+     * @param documentTerms
+     *            Identifiers of document terms, in any order and with
+     *            repetitions
+     */
+    public TermCounts(int[] documentTerms) {
+        int[] sorted = documentTerms.clone();
+        Arrays.sort(sorted);
+
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                distinct++;
+            }
+        }
+
+        terms = new int[distinct];
+        counts = new int[distinct];
+
+        int position = -1;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                terms[++position] = sorted[i];
+            }
+            counts[position]++;
+        }
+    }
+
+    /**
+     * Returns number of distinct terms.
+     * 
+     * @return Number of distinct terms
+     */
+    public int size() {
+        return terms.length;
+    }
+
+    /**
+     * Returns identifier of i-th distinct term.
+     * 
+     * @param i
+     *            Position of term, from 0 to {@link #size()}
+     * @return Identifier of term
+     */
+    public int term(int i) {
+        return terms[i];
+    }
+
+    /**
+     * Returns number of occurrences of i-th distinct term.
+     * 
+     * @param i
+     *            Position of term, from 0 to {@link #size()}
+     * @return Number of occurrences of term
+     */
+    public int count(int i) {
+        return counts[i];
+    }
+
+    /**
+     * Returns identifiers of all distinct terms, sorted ascending.
+     * 
+     * @return Identifiers of terms
+     */
+    public int[] getTerms() {
+        return terms;
+    }
+
+    /**
+     * Returns numbers of occurrences of all distinct terms, associated with
+     * {@link #getTerms()}.
+     * 
+     * @return Numbers of occurrences
+     */
+    public int[] getCounts() {
+        return counts;
+    }
+
+}
@@ -1,16 +1,10 @@
 package hr.fer.zemris.java.hw12.trazilica.tfidf;
 
-import java.nio.file.Path;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
-
 /**
- * {@code TfIdfCalculator} provides static method for calculating TF and IDF
- * values of specified words. TF - Term Frequency is being calculated as number
- * of occurrences of single word in single document and IDF - Inverse Document
- * Frequency is associated with number of occurrences in all documents which
- * define language.
+ * {@code TfIdfCalculator} provides method for calculating IDF values of
+ * terms. IDF - Inverse Document Frequency is associated with number of
+ * occurrences in all documents which define language, and is calculated from
+ * document frequencies precomputed by {@link CorpusStatistics}.
  * 
  * @author Domagoj Penic
  * @version 2.6.2015.
@@ -19,48 +13,23 @@ import java.util.Map;
 public class TfIdfCalculator {
 
     /**
-     * Calculates TF value of specified word associated with document which
-     * words are provided trough documentWords collection.
-     * 
-     * @param documentWords
-     *            Collection of words inside current document
-     * @param word
-     *            Word which TF value is being calculated
-     * @return TF value of specified word
-     */
-    public double calculateTf(Collection<String> documentWords, String word) {
-        double count = 0;
-
-        for (String s : documentWords) {
-            if (s.equals(word)) {
-                count++;
-            }
-        }
-
-        return count;
-    }
-
-    /**
-     * Calculates IDF value of specified value associated with all documents
-     * provided trough documents collection.
+     * Calculates IDF value of specified term from precomputed document
+     * frequencies. If term does not occur in any document, 0 is returned.
      * 
-     * @param documents
-     *            Collection of all documents and their words
-     * @param word
-     *            Word which IDF value is being calculated
-     * @return IDF value of specified word
+     * @param statistics
+     *            Statistics of all documents
+     * @param term
+     *            Identifier of term which IDF value is being calculated
+     * @return IDF value of specified term
      */
-    public double calculateIdf(Map<Path, List<String>> documents, String word) {
-        double count = 0;
+    public double calculateIdf(CorpusStatistics statistics, int term) {
+        double count = statistics.getDocumentFrequency(term);
 
-        for (List<String> document : documents.values()) {
-            if (document.contains(word)) {
-                count++;
-            }
+        if (count == 0) {
+            return 0;
         }
 
-        return Math.log(documents.size() / count);
-
+        return Math.log(statistics.getDocumentCount() / count);
     }
 
 }
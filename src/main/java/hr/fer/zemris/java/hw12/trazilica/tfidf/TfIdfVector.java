@@ -1,14 +1,24 @@
 package hr.fer.zemris.java.hw12.trazilica.tfidf;
 
-import java.nio.file.Path;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
+import hr.fer.zemris.java.hw12.trazilica.index.HeapSize;
+
+import java.util.Arrays;
 
 /**
  * {@code TfIdfVector} represents vector which components are TF-IDF values of
  * every word which is being contained by some document. These vectors can be
  * multiplied such as ordinary vectors and their norm can also be calculated.
+ * <p>
+ * Vector is stored sparsely, only components which are different from zero are
+ * kept, as pairs of vocabulary index and TF-IDF value sorted by index. Single
+ * document contains only small part of vocabulary, so memory and time needed
+ * for vector operations depend on number of distinct document words instead of
+ * vocabulary size.
+ * <p>
+ * Vector operations are delegated to {@link VectorKernels}. Vector can be
+ * turned into its {@linkplain #normalized() normalized} copy, which cosine
+ * similarity with other normalized vector is just their scalar product, so
+ * vectors compared many times should be normalized once beforehand.
  * 
  * @author Domagoj Penic
  * @version 2.6.2015.
@@ -23,36 +33,93 @@ public class TfIdfVector {
     private static final TfIdfCalculator TFIDF_CALCULATOR = new TfIdfCalculator();
 
     /**
-     * Components of this vector.
+     * Size of this vector, i.e. size of vocabulary.
+     */
+    private int size;
+
+    /**
+     * Vocabulary indexes of non-zero components, sorted ascending.
+     */
+    private int[] indexes;
+
+    /**
+     * Values of non-zero components, associated with {@link #indexes}.
+     */
+    private double[] values;
+
+    /**
+     * Norm of this vector, calculated once vector is created.
      */
-    private double[] components;
+    private double norm;
+
+    /**
+     * Whether this vector is normalized, i.e. its norm is 1.
+     */
+    private boolean normalized;
 
     /**
      * Creates new {@code TfIdfVector} which represents single document with
-     * specified words which are part of specified vocabulary.
+     * specified terms, given by their identifiers inside vocabulary.
      * 
-     * @param documentWords
-     *            Collection of words contained by this document
-     * @param vocabulary
-     *            Collection of vocabulary words
-     * @param documents
-     *            All documents which define current language
-     */
-    public TfIdfVector(List<String> documentWords,
-            Collection<String> vocabulary, Map<Path, List<String>> documents) {
-        components = new double[vocabulary.size()];
-
-        int count = 0;
-        for (String word : vocabulary) {
-            if (documentWords.contains(word)) {
-                double tf = TFIDF_CALCULATOR.calculateTf(documentWords, word);
-                double idf = TFIDF_CALCULATOR.calculateIdf(documents, word);
-                double tfidf = tf * idf;
-                components[count++] = tfidf;
-            } else {
-                components[count++] = 0;
-            }
+     * @param documentTerms
+     *            Identifiers of terms contained by this document
+     * @param size
+     *            Size of vocabulary
+     * @param statistics
+     *            Statistics of all documents which define current language
+     */
+    public TfIdfVector(int[] documentTerms, int size,
+            CorpusStatistics statistics) {
+        // Count occurrences of every term, sorted by term identifiers
+        TermCounts counts = new TermCounts(documentTerms);
+
+        this.size = size;
+        indexes = counts.getTerms();
+        values = new double[indexes.length];
+
+        for (int i = 0; i < indexes.length; i++) {
+            double tf = counts.count(i);
+            double idf = TFIDF_CALCULATOR.calculateIdf(statistics, indexes[i]);
+            values[i] = tf * idf;
         }
+
+        norm = Math.sqrt(VectorKernels.sumOfSquares(values, values.length));
+    }
+
+    /**
+     * Creates new {@code TfIdfVector} from specified components, as kept by
+     * {@link VectorStore}.
+     * 
+     * @param size
+     *            Size of vocabulary
+     * @param indexes
+     *            Vocabulary indexes of non-zero components, sorted
+     * @param values
+     *            Values of non-zero components
+     * @param norm
+     *            Norm of vector
+     */
+    TfIdfVector(int size, int[] indexes, double[] values, double norm) {
+        this.size = size;
+        this.indexes = indexes;
+        this.values = values;
+        this.norm = norm;
+    }
+
+    /**
+     * Creates new normalized {@code TfIdfVector} with the same direction as
+     * specified vector, which norm must not be 0.
+     * 
+     * @param vector
+     *            Vector which is normalized
+     */
+    private TfIdfVector(TfIdfVector vector) {
+        size = vector.size;
+        indexes = vector.indexes;
+        values = vector.values.clone();
+        VectorKernels.scale(values, values.length, 1 / vector.norm);
+        norm = 1;
+        normalized = true;
     }
 
     /**
@@ -61,7 +128,41 @@ public class TfIdfVector {
      * @return Size of this {@code TfIdfVector}
      */
     public int size() {
-        return components.length;
+        return size;
+    }
+
+    /**
+     * Returns number of components of this {@code TfIdfVector} which are
+     * stored, i.e. number of distinct vocabulary words found in document.
+     * 
+     * @return Number of non-zero components
+     */
+    public int nonZeroCount() {
+        return indexes.length;
+    }
+
+    /**
+     * Returns vocabulary index of i-th stored component.
+     * 
+     * @param i
+     *            Position of stored component, from 0 to
+     *            {@link #nonZeroCount()}
+     * @return Vocabulary index of component
+     */
+    public int indexAt(int i) {
+        return indexes[i];
+    }
+
+    /**
+     * Returns value of i-th stored component.
+     * 
+     * @param i
+     *            Position of stored component, from 0 to
+     *            {@link #nonZeroCount()}
+     * @return Value of component
+     */
+    public double valueAt(int i) {
+        return values[i];
     }
 
     /**
@@ -73,42 +174,109 @@ public class TfIdfVector {
      * @return Value of component on specified index
      */
     public double get(int index) {
-        return components[index];
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid index: " + index);
+        }
+
+        int position = Arrays.binarySearch(indexes, index);
+        return position < 0 ? 0 : values[position];
     }
 
     /**
-     * Calculates norm of this {@code TfIdfVector} by standard vector formula,
-     * where norm = square-root(x1^2 + x2^2 + ...).
+     * Returns norm of this {@code TfIdfVector} calculated by standard vector
+     * formula, where norm = square-root(x1^2 + x2^2 + ...). Norm is calculated
+     * only once, when vector is being created.
      * 
      * @return Norm of this {@code TfIdfVector}
      */
     public double norm() {
-        double normRoot = 0;
+        return norm;
+    }
 
-        for (double component : components) {
-            normRoot += component * component;
+    /**
+     * Returns {@code TfIdfVector} with the same direction as this one and norm
+     * equal to 1. Indexes of components are shared with this vector. Vector
+     * which is already normalized, or which norm is 0, is returned as it is.
+     * 
+     * @return Normalized vector
+     */
+    public TfIdfVector normalized() {
+        if (normalized || norm == 0) {
+            return this;
         }
 
-        return Math.sqrt(normRoot);
+        return new TfIdfVector(this);
+    }
+
+    /**
+     * Checks whether this {@code TfIdfVector} was created by
+     * {@link #normalized()}.
+     * 
+     * @return {@code true} if this vector is normalized
+     */
+    public boolean isNormalized() {
+        return normalized;
+    }
+
+    /**
+     * Returns estimated number of bytes taken by this {@code TfIdfVector} on
+     * heap.
+     * 
+     * @return Estimated size of vector
+     */
+    public long estimateHeapSize() {
+        return HeapSize.object(Integer.BYTES + 2 * HeapSize.REFERENCE
+                + Double.BYTES + 1)
+                + HeapSize.array(indexes.length, Integer.BYTES)
+                + HeapSize.array(values.length, Double.BYTES);
     }
 
     /**
      * Returns value as a result of scalar multiplication of this
      * {@code TfIdfVector} and specified one. Scalar multiplying is done as
-     * ordinary one, by multiplying vector components and summing them.
+     * ordinary one, by multiplying vector components and summing them. Since
+     * only non-zero components are stored, sorted by index, both vectors are
+     * walked simultaneously and only matching indexes are multiplied.
      * 
      * @param vector
      *            {@code TfIdfVector} to be multiplied with this one
      * @return Result of scalar multiplication
      */
     public double scalarMultiply(TfIdfVector vector) {
-        int scalar = 0;
+        return VectorKernels.sparseDot(indexes, values, vector.indexes,
+                vector.values);
+    }
 
-        for (int index = 0; index < components.length; index++) {
-            scalar += this.components[index] * vector.components[index];
+    /**
+     * Returns value as a result of scalar multiplication of this
+     * {@code TfIdfVector} and specified dense vector, which has a component
+     * for every vocabulary word, such as centroid of several documents.
+     * 
+     * @param dense
+     *            Components of dense vector, at least {@link #size()} of them
+     * @return Result of scalar multiplication
+     */
+    public double scalarMultiply(double[] dense) {
+        return VectorKernels.gatherDot(indexes, values, dense);
+    }
+
+    /**
+     * Returns cosine similarity of this {@code TfIdfVector} and specified one,
+     * i.e. their scalar product divided by product of their norms. If both
+     * vectors are normalized, similarity is their scalar product alone.
+     * 
+     * @param vector
+     *            {@code TfIdfVector} compared with this one
+     * @return Cosine similarity of vectors, 0 if some of them has norm 0
+     */
+    public double cosineSimilarity(TfIdfVector vector) {
+        if (norm == 0 || vector.norm == 0) {
+            return 0;
         }
 
-        return scalar;
+        double scalar = scalarMultiply(vector);
+        return normalized && vector.normalized ? scalar : scalar
+                / (norm * vector.norm);
     }
 
 }
@@ -0,0 +1,218 @@
+package hr.fer.zemris.java.hw12.trazilica.tfidf;
+
+import java.util.Arrays;
+
+/**
+ * {@code VectorKernels} contains loops which vector operations of
+ * {@link TfIdfVector} are built from. Dense loops are unrolled by four into
+ * independent accumulators, so consecutive additions do not wait for each
+ * other and just-in-time compiler can keep several of them in flight, or
+ * vectorize them where it is able to. All sums are accumulated in
+ * {@code double}.
+ * <p>
+ * Unrolled loops add components in different order than simple loop, so their
+ * results can differ from it in the last bits.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public final class VectorKernels {
+
+    /**
+     * Ratio of lengths of sparse vectors above which shorter vector is looked
+     * up in longer one by binary search, instead of walking both of them.
+     */
+    private static final int LOOKUP_RATIO = 16;
+
+    /**
+     * Disable creation of instances.
+     */
+    private VectorKernels() {
+    }
+
+    /**
+     * Returns dot product of first {@code length} components of specified
+     * dense vectors.
+     * 
+     * @param first
+     *            Components of first vector
+     * @param second
+     *            Components of second vector
+     * @param length
+     *            Number of multiplied components
+     * @return Dot product of vectors
+     */
+    public static double dot(double[] first, double[] second, int length) {
+        double sum0 = 0;
+        double sum1 = 0;
+        double sum2 = 0;
+        double sum3 = 0;
+
+        int i = 0;
+        for (int bound = length & ~3; i < bound; i += 4) {
+            sum0 += first[i] * second[i];
+            sum1 += first[i + 1] * second[i + 1];
+            sum2 += first[i + 2] * second[i + 2];
+            sum3 += first[i + 3] * second[i + 3];
+        }
+        for (; i < length; i++) {
+            sum0 += first[i] * second[i];
+        }
+
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Returns sum of squares of first {@code length} specified values, i.e.
+     * squared norm of vector.
+     * 
+     * @param values
+     *            Components of vector
+     * @param length
+     *            Number of summed components
+     * @return Sum of squares of components
+     */
+    public static double sumOfSquares(double[] values, int length) {
+        return dot(values, values, length);
+    }
+
+    /**
+     * Returns dot product of sparse vector, given by sorted indexes and values
+     * of its non-zero components, and dense vector.
+     * 
+     * @param indexes
+     *            Indexes of non-zero components of sparse vector
+     * @param values
+     *            Values of non-zero components of sparse vector
+     * @param dense
+     *            Components of dense vector
+     * @return Dot product of vectors
+     */
+    public static double gatherDot(int[] indexes, double[] values,
+            double[] dense) {
+        double sum0 = 0;
+        double sum1 = 0;
+        double sum2 = 0;
+        double sum3 = 0;
+
+        int i = 0;
+        for (int bound = indexes.length & ~3; i < bound; i += 4) {
+            sum0 += values[i] * dense[indexes[i]];
+            sum1 += values[i + 1] * dense[indexes[i + 1]];
+            sum2 += values[i + 2] * dense[indexes[i + 2]];
+            sum3 += values[i + 3] * dense[indexes[i + 3]];
+        }
+        for (; i < indexes.length; i++) {
+            sum0 += values[i] * dense[indexes[i]];
+        }
+
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Returns dot product of two sparse vectors, given by sorted indexes and
+     * values of their non-zero components. Only components with matching
+     * indexes are multiplied. When one vector is much shorter than the other,
+     * its indexes are looked up by binary search, so time depends mostly on
+     * length of the shorter one.
+     * 
+     * @param firstIndexes
+     *            Indexes of non-zero components of first vector
+     * @param firstValues
+     *            Values of non-zero components of first vector
+     * @param secondIndexes
+     *            Indexes of non-zero components of second vector
+     * @param secondValues
+     *            Values of non-zero components of second vector
+     * @return Dot product of vectors
+     */
+    public static double sparseDot(int[] firstIndexes, double[] firstValues,
+            int[] secondIndexes, double[] secondValues) {
+        if (firstIndexes.length > secondIndexes.length) {
+            return sparseDot(secondIndexes, secondValues, firstIndexes,
+                    firstValues);
+        }
+
+        if ((long) firstIndexes.length * LOOKUP_RATIO < secondIndexes.length) {
+            return lookupDot(firstIndexes, firstValues, secondIndexes,
+                    secondValues);
+        }
+
+        double sum = 0;
+
+        int i = 0;
+        int j = 0;
+        while (i < firstIndexes.length && j < secondIndexes.length) {
+            int first = firstIndexes[i];
+            int second = secondIndexes[j];
+
+            if (first == second) {
+                sum += firstValues[i++] * secondValues[j++];
+            } else if (first < second) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * Multiplies first {@code length} specified values by specified factor,
+     * in place.
+     * 
+     * @param values
+     *            Components of vector
+     * @param length
+     *            Number of multiplied components
+     * @param factor
+     *            Factor by which components are multiplied
+     */
+    public static void scale(double[] values, int length, double factor) {
+        for (int i = 0; i < length; i++) {
+            values[i] *= factor;
+        }
+    }
+
+    /**
+     * Returns dot product of two sparse vectors by looking up every index of
+     * the shorter vector in the longer one. Lookups start after the previous
+     * match, since indexes are sorted.
+     * 
+     * @param shortIndexes
+     *            Indexes of non-zero components of shorter vector
+     * @param shortValues
+     *            Values of non-zero components of shorter vector
+     * @param longIndexes
+     *            Indexes of non-zero components of longer vector
+     * @param longValues
+     *            Values of non-zero components of longer vector
+     * @return Dot product of vectors
+     */
+    private static double lookupDot(int[] shortIndexes,
+            double[] shortValues, int[] longIndexes, double[] longValues) {
+        double sum = 0;
+
+        int from = 0;
+        for (int i = 0; i < shortIndexes.length; i++) {
+            if (from == longIndexes.length) {
+                break;
+            }
+
+            int position = Arrays.binarySearch(longIndexes, from,
+                    longIndexes.length, shortIndexes[i]);
+
+            if (position >= 0) {
+                sum += shortValues[i] * longValues[position];
+                from = position + 1;
+            } else {
+                from = -position - 1;
+            }
+        }
+
+        return sum;
+    }
+
+}
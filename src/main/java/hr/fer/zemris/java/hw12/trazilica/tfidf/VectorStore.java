@@ -0,0 +1,154 @@
+package hr.fer.zemris.java.hw12.trazilica.tfidf;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+
+/**
+ * {@code VectorStore} keeps many {@link TfIdfVector}s outside of heap, in
+ * direct buffers holding components of all vectors one after another: one
+ * buffer of vocabulary indexes, one of values, and buffers of norms and of
+ * positions at which every vector starts. Store holds no object per vector, so
+ * it adds nothing to work of garbage collector, however many vectors it holds.
+ * <p>
+ * Vectors are copied to heap only when they are asked for, see
+ * {@link #get(int)}. Store can not be changed and can be read by many threads
+ * at once.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class VectorStore {
+
+    /** Size of stored vectors, i.e. size of vocabulary. */
+    private final int size;
+    /** Positions of first components of vectors, and end of last one. */
+    private final IntBuffer starts;
+    /** Vocabulary indexes of components of all vectors. */
+    private final IntBuffer indexes;
+    /** Values of components of all vectors. */
+    private final DoubleBuffer values;
+    /** Norms of vectors. */
+    private final DoubleBuffer norms;
+
+    /**
+     * Creates new {@code VectorStore} holding copies of specified vectors, in
+     * the same order. Missing vector, given as {@code null}, is stored as
+     * vector without components.
+     * 
+     * @param vectors
+     *            Vectors which are stored
+     * @param size
+     *            Size of vectors, i.e. size of vocabulary
+     * @throws IllegalArgumentException
+     *             If vectors have too many components to be stored
+     */
+    public VectorStore(List<TfIdfVector> vectors, int size) {
+        this.size = size;
+
+        long total = 0;
+        for (TfIdfVector vector : vectors) {
+            if (vector != null) {
+                total += vector.nonZeroCount();
+            }
+        }
+        if (total * Double.BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "Vectors have too many components to be stored.");
+        }
+
+        starts = allocate(vectors.size() + 1, Integer.BYTES).asIntBuffer();
+        indexes = allocate((int) total, Integer.BYTES).asIntBuffer();
+        values = allocate((int) total, Double.BYTES).asDoubleBuffer();
+        norms = allocate(vectors.size(), Double.BYTES).asDoubleBuffer();
+
+        int position = 0;
+        for (int i = 0; i < vectors.size(); i++) {
+            starts.put(i, position);
+
+            TfIdfVector vector = vectors.get(i);
+            if (vector == null) {
+                continue;
+            }
+
+            for (int j = 0; j < vector.nonZeroCount(); j++) {
+                indexes.put(position, vector.indexAt(j));
+                values.put(position, vector.valueAt(j));
+                position++;
+            }
+            norms.put(i, vector.norm());
+        }
+        starts.put(vectors.size(), position);
+    }
+
+    /**
+     * Returns number of stored vectors.
+     * 
+     * @return Number of vectors
+     */
+    public int count() {
+        return norms.capacity();
+    }
+
+    /**
+     * Returns norm of vector on specified position, without copying vector.
+     * 
+     * @param vector
+     *            Position of vector
+     * @return Norm of vector
+     */
+    public double norm(int vector) {
+        return norms.get(vector);
+    }
+
+    /**
+     * Returns copy of vector on specified position on heap.
+     * 
+     * @param vector
+     *            Position of vector
+     * @return Copy of vector
+     */
+    public TfIdfVector get(int vector) {
+        int start = starts.get(vector);
+        int length = starts.get(vector + 1) - start;
+
+        int[] vectorIndexes = new int[length];
+        double[] vectorValues = new double[length];
+        for (int i = 0; i < length; i++) {
+            vectorIndexes[i] = indexes.get(start + i);
+            vectorValues[i] = values.get(start + i);
+        }
+
+        return new TfIdfVector(size, vectorIndexes, vectorValues,
+                norms.get(vector));
+    }
+
+    /**
+     * Returns number of bytes of all buffers of this store.
+     * 
+     * @return Size of buffers
+     */
+    public long getBufferSize() {
+        return (long) (starts.capacity() + indexes.capacity()) * Integer.BYTES
+                + (long) (values.capacity() + norms.capacity()) * Double.BYTES;
+    }
+
+    /**
+     * Allocates direct buffer for specified number of elements of specified
+     * size, in native byte order, so elements are read without swapping bytes.
+     * 
+     * @param count
+     *            Number of elements
+     * @param elementSize
+     *            Size of element, in bytes
+     * @return Allocated buffer
+     */
+    private static ByteBuffer allocate(int count, int elementSize) {
+        return ByteBuffer.allocateDirect(count * elementSize).order(
+                ByteOrder.nativeOrder());
+    }
+
+}
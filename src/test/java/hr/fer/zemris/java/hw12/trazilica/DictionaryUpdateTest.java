@@ -0,0 +1,369 @@
+package hr.fer.zemris.java.hw12.trazilica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import hr.fer.zemris.java.hw12.trazilica.index.TermDictionary;
+import hr.fer.zemris.java.hw12.trazilica.tfidf.CorpusStatistics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of incremental updates of {@link Dictionary}. Documents are added,
+ * replaced and removed, and the updated {@code Dictionary} must give the same
+ * search results, document frequencies and document vectors as
+ * {@code Dictionary} created again from final files, although document
+ * identifiers are never reused and removed documents are only marked as
+ * such.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class DictionaryUpdateTest {
+
+    /** Number of documents created at first. */
+    private static final int DOCUMENTS = 40;
+    /** Number of words of generated vocabulary. */
+    private static final int WORDS = 150;
+    /** Number of compared queries. */
+    private static final int QUERIES = 300;
+    /** Number of results of every query. */
+    private static final int RESULTS = 10;
+    /** Allowed difference of similarities, which are summed in other order. */
+    private static final double DELTA = 1e-12;
+
+    /** Stop-words of all dictionaries. */
+    private static final String STOP_WORDS = "i\nje\nu\n";
+    /** Phrase which occurs only in removed document. */
+    private static final String REMOVED_PHRASE = "zeleni kaput";
+    /** Phrase which occurs only in replaced document. */
+    private static final String REPLACED_PHRASE = "plavi šešir";
+
+    /** Folder holding documents and stop-words. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Checks updates of dictionary with single index, with positions of words
+     * created before documents are changed.
+     * 
+     * @throws IOException
+     *             If files can not be written or read
+     */
+    @Test
+    public void updatesSingleIndexWithPositions() throws IOException {
+        checkUpdates(1, true);
+    }
+
+    /**
+     * Checks updates of dictionary with single index, with positions of words
+     * created only after documents are changed.
+     * 
+     * @throws IOException
+     *             If files can not be written or read
+     */
+    @Test
+    public void updatesSingleIndexWithoutPositions() throws IOException {
+        checkUpdates(1, false);
+    }
+
+    /**
+     * Checks updates of dictionary with sharded index, with positions of
+     * words created before documents are changed.
+     * 
+     * @throws IOException
+     *             If files can not be written or read
+     */
+    @Test
+    public void updatesShardedIndexWithPositions() throws IOException {
+        checkUpdates(3, true);
+    }
+
+    /**
+     * Checks updates of dictionary with sharded index, with positions of
+     * words created only after documents are changed.
+     * 
+     * @throws IOException
+     *             If files can not be written or read
+     */
+    @Test
+    public void updatesShardedIndexWithoutPositions() throws IOException {
+        checkUpdates(3, false);
+    }
+
+    /**
+     * Creates dictionary with specified number of shards, adds, replaces and
+     * removes documents, and compares it with dictionary created from final
+     * files.
+     * 
+     * @param shards
+     *            Number of shards of index
+     * @param positionsFirst
+     *            Whether positions of words are created before documents
+     *            are changed
+     * @throws IOException
+     *             If files can not be written or read
+     */
+    private void checkUpdates(int shards, boolean positionsFirst)
+            throws IOException {
+        Random random = new Random(6);
+        String[] vocabulary = createVocabulary(random);
+        Path root = folder.newFolder("documents").toPath();
+        Path stopWords = folder.newFile("stop.txt").toPath();
+        Files.write(stopWords, STOP_WORDS.getBytes(StandardCharsets.UTF_8));
+
+        for (int i = 0; i < DOCUMENTS; i++) {
+            write(root.resolve("document" + i), createText(random, vocabulary,
+                    ""));
+        }
+        Path replaced = root.resolve("document3");
+        Path removed = root.resolve("document7");
+        write(removed, createText(random, vocabulary, REMOVED_PHRASE));
+
+        Dictionary dictionary = new Dictionary(root.toString(),
+                stopWords.toString(), 1, shards);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            dictionary.getVector(root.resolve("document" + i));
+        }
+        if (positionsFirst) {
+            assertResults(Arrays.asList(removed), dictionary.search("\""
+                    + REMOVED_PHRASE + "\"", RESULTS));
+        }
+
+        Path added = root.resolve("document" + DOCUMENTS);
+        write(added, createText(random, vocabulary, "nova riječ"));
+        dictionary.addDocument(added);
+
+        write(replaced, createText(random, vocabulary, REPLACED_PHRASE));
+        dictionary.replaceDocument(replaced);
+
+        Files.delete(removed);
+        assertTrue(dictionary.removeDocument(removed));
+
+        Dictionary created = new Dictionary(root.toString(),
+                stopWords.toString(), 1, shards);
+
+        assertStatistics(created, dictionary);
+        assertVectors(created, dictionary);
+        assertNull(dictionary.getVector(removed));
+        for (int query = 0; query < QUERIES; query++) {
+            String queryText = createQuery(random, vocabulary);
+            assertSameResults(created.search(queryText, RESULTS),
+                    dictionary.search(queryText, RESULTS));
+        }
+
+        assertResults(Arrays.asList(), dictionary.search("\""
+                + REMOVED_PHRASE + "\"", RESULTS));
+        assertResults(Arrays.asList(replaced), dictionary.search("\""
+                + REPLACED_PHRASE + "\"", RESULTS));
+        assertResults(Arrays.asList(added), dictionary.search("nova riječ",
+                RESULTS));
+    }
+
+    /**
+     * Checks that document frequencies and total counts of every word, and
+     * number of documents, are the same in both dictionaries. Words which no
+     * longer occur in any document may stay in vocabulary of updated
+     * dictionary, but must occur in no document.
+     * 
+     * @param expected
+     *            Dictionary created from final files
+     * @param actual
+     *            Updated dictionary
+     */
+    private static void assertStatistics(Dictionary expected,
+            Dictionary actual) {
+        TermDictionary expectedTerms = expected.getVocabulary();
+        TermDictionary actualTerms = actual.getVocabulary();
+        CorpusStatistics expectedStatistics = expected.getStatistics();
+        CorpusStatistics actualStatistics = actual.getStatistics();
+
+        assertEquals(expectedStatistics.getDocumentCount(),
+                actualStatistics.getDocumentCount());
+
+        for (int term = 0; term < actualTerms.size(); term++) {
+            String word = actualTerms.getTerm(term);
+            int expectedTerm = expectedTerms.find(word);
+
+            if (expectedTerm < 0) {
+                assertEquals(word, 0,
+                        actualStatistics.getDocumentFrequency(term));
+                continue;
+            }
+            assertEquals(word,
+                    expectedStatistics.getDocumentFrequency(expectedTerm),
+                    actualStatistics.getDocumentFrequency(term));
+            assertEquals(word, expectedStatistics.getTotalCount(expectedTerm),
+                    actualStatistics.getTotalCount(term));
+        }
+
+        for (int term = 0; term < expectedTerms.size(); term++) {
+            assertTrue(actualTerms.find(expectedTerms.getTerm(term)) >= 0);
+        }
+    }
+
+    /**
+     * Checks that vectors of every document have the same norm in both
+     * dictionaries, so vectors created before documents were changed are no
+     * longer used.
+     * 
+     * @param expected
+     *            Dictionary created from final files
+     * @param actual
+     *            Updated dictionary
+     */
+    private static void assertVectors(Dictionary expected, Dictionary actual) {
+        for (Path file : expected.getDocuments().keySet()) {
+            assertEquals(file.toString(), expected.getVector(file).norm(),
+                    actual.getVector(file).norm(), DELTA);
+        }
+    }
+
+    /**
+     * Checks that both results have the same documents in the same order, and
+     * the same similarities.
+     * 
+     * @param expected
+     *            Results of dictionary created from final files
+     * @param actual
+     *            Results of updated dictionary
+     */
+    private static void assertSameResults(SearchResults expected,
+            SearchResults actual) {
+        List<Path> documents = new ArrayList<>();
+        for (int rank = 0; rank < expected.size(); rank++) {
+            documents.add(expected.getDocument(rank));
+        }
+        assertResults(documents, actual);
+
+        for (int rank = 0; rank < expected.size(); rank++) {
+            assertEquals(expected.getSimilarity(rank),
+                    actual.getSimilarity(rank), DELTA);
+        }
+    }
+
+    /**
+     * Checks that specified results have specified documents, in the same
+     * order.
+     * 
+     * @param expected
+     *            Expected documents
+     * @param results
+     *            Results which are checked
+     */
+    private static void assertResults(List<Path> expected,
+            SearchResults results) {
+        List<Path> documents = new ArrayList<>();
+        for (int rank = 0; rank < results.size(); rank++) {
+            documents.add(results.getDocument(rank));
+        }
+
+        assertEquals(expected, documents);
+    }
+
+    /**
+     * Creates vocabulary of random words made of lower case letters.
+     * 
+     * @param random
+     *            Random generator
+     * @return Words of vocabulary
+     */
+    private static String[] createVocabulary(Random random) {
+        String[] vocabulary = new String[WORDS];
+
+        for (int i = 0; i < vocabulary.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int length = 4 + random.nextInt(6); length > 0; length--) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            vocabulary[i] = word.toString();
+        }
+
+        return vocabulary;
+    }
+
+    /**
+     * Creates text of random words of vocabulary and stop-words, with
+     * specified text in the middle. Words are skewed, so some of them occur
+     * in most documents.
+     * 
+     * @param random
+     *            Random generator
+     * @param vocabulary
+     *            Words of vocabulary
+     * @param middle
+     *            Text inserted in the middle
+     * @return Created text
+     */
+    private static String createText(Random random, String[] vocabulary,
+            String middle) {
+        StringBuilder text = new StringBuilder();
+        int length = 20 + random.nextInt(200);
+
+        for (int i = 0; i < length; i++) {
+            if (i == length / 2) {
+                text.append(middle).append(' ');
+            }
+            if (random.nextInt(8) == 0) {
+                text.append("je, ");
+            }
+            int word = (int) (vocabulary.length * Math.pow(random.nextDouble(),
+                    2));
+            text.append(vocabulary[word]).append(i % 12 == 11 ? ".\n" : " ");
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Creates query of one to three random words of vocabulary, or of word
+     * which is not part of it.
+     * 
+     * @param random
+     *            Random generator
+     * @param vocabulary
+     *            Words of vocabulary
+     * @return Text of query
+     */
+    private static String createQuery(Random random, String[] vocabulary) {
+        StringBuilder query = new StringBuilder();
+
+        for (int length = 1 + random.nextInt(3); length > 0; length--) {
+            query.append(vocabulary[random.nextInt(vocabulary.length)]).append(
+                    ' ');
+        }
+        if (random.nextInt(10) == 0) {
+            query.append("nepoznata");
+        }
+
+        return query.toString();
+    }
+
+    /**
+     * Writes specified text into file with specified path.
+     * 
+     * @param file
+     *            Path of file
+     * @param text
+     *            Written text
+     * @throws IOException
+     *             If file can not be written
+     */
+    private static void write(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
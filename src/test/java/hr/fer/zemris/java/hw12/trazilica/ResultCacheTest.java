@@ -0,0 +1,206 @@
+package hr.fer.zemris.java.hw12.trazilica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of {@link ResultCache}: results of {@link Dictionary} are not served
+ * from cache once documents are changed, and cache evicts the least recently
+ * used results and counts hits, misses, evictions and invalidations.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class ResultCacheTest {
+
+    /** Folder holding documents and stop-words. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Checks that repeated search is answered from cache, but that search
+     * after document was added or removed finds documents as they are now.
+     * 
+     * @throws IOException
+     *             If files can not be written or read
+     */
+    @Test
+    public void changedDocumentsAreNotServedFromCache() throws IOException {
+        Path root = folder.newFolder("documents").toPath();
+        Path stopWords = folder.newFile("stop.txt").toPath();
+        write(stopWords, "i\nje\n");
+        write(root.resolve("first"), "jabuka i kruška");
+        write(root.resolve("second"), "kruška je slatka");
+        write(root.resolve("third"), "šljiva");
+
+        Dictionary dictionary = new Dictionary(root.toString(),
+                stopWords.toString());
+        ResultCache cache = dictionary.getResultCache();
+
+        SearchResults results = dictionary.search("kruška", 10);
+        assertDocuments(results, root, "first", "second");
+        assertSame(results, dictionary.search("kruška", 10));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        Path added = root.resolve("fourth");
+        write(added, "kruška kruška kruška");
+        dictionary.addDocument(added);
+
+        assertDocuments(dictionary.search("kruška", 10), root, "fourth",
+                "first", "second");
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.getInvalidations());
+
+        dictionary.removeDocument(root.resolve("first"));
+        assertDocuments(dictionary.search("kruška", 10), root, "fourth",
+                "second");
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(2, cache.getInvalidations());
+    }
+
+    /**
+     * Checks that the least recently used results are evicted from full
+     * cache, where both keeping and getting results count as use.
+     */
+    @Test
+    public void evictsLeastRecentlyUsedResults() {
+        ResultCache cache = new ResultCache(2);
+        SearchResults first = createResults("first");
+        SearchResults second = createResults("second");
+        SearchResults third = createResults("third");
+
+        cache.put(new int[] { 1 }, 10, 0, first);
+        cache.put(new int[] { 2 }, 10, 0, second);
+        assertSame(first, cache.get(new int[] { 1 }, 10, 0));
+        cache.put(new int[] { 3 }, 10, 0, third);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get(new int[] { 2 }, 10, 0));
+        assertSame(first, cache.get(new int[] { 1 }, 10, 0));
+        assertSame(third, cache.get(new int[] { 3 }, 10, 0));
+
+        // Now the first results are the least recently used ones
+        cache.put(new int[] { 2 }, 10, 0, second);
+        assertEquals(2, cache.getEvictions());
+        assertNull(cache.get(new int[] { 1 }, 10, 0));
+        assertSame(second, cache.get(new int[] { 2 }, 10, 0));
+
+        assertEquals(4, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getInvalidations());
+    }
+
+    /**
+     * Checks that order of query words does not matter, while number of
+     * requested results does.
+     */
+    @Test
+    public void identifiesQueryBySortedWordsAndCount() {
+        ResultCache cache = new ResultCache(4);
+        SearchResults results = createResults("first");
+
+        cache.put(new int[] { 5, 1, 3 }, 10, 0, results);
+        assertSame(results, cache.get(new int[] { 3, 5, 1 }, 10, 0));
+        assertNull(cache.get(new int[] { 3, 5, 1 }, 20, 0));
+        assertNull(cache.get(new int[] { 3, 5 }, 10, 0));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    /**
+     * Checks that newer version of dictionary drops all kept results, and
+     * that results calculated for older version are not kept.
+     */
+    @Test
+    public void dropsResultsOfOlderVersions() {
+        ResultCache cache = new ResultCache(4);
+
+        cache.put(new int[] { 1 }, 10, 0, createResults("first"));
+        cache.put(new int[] { 2 }, 10, 0, createResults("second"));
+        assertNull(cache.get(new int[] { 1 }, 10, 1));
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getInvalidations());
+
+        cache.put(new int[] { 1 }, 10, 0, createResults("first"));
+        assertNull(cache.get(new int[] { 1 }, 10, 1));
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Checks that results have documents with specified names, in the same
+     * order.
+     * 
+     * @param results
+     *            Results which are checked
+     * @param root
+     *            Directory of documents
+     * @param names
+     *            Expected names of documents
+     */
+    private static void assertDocuments(SearchResults results, Path root,
+            String... names) {
+        List<Path> documents = new ArrayList<>();
+        for (int rank = 0; rank < results.size(); rank++) {
+            documents.add(results.getDocument(rank));
+        }
+
+        List<Path> expected = new ArrayList<>();
+        for (String name : names) {
+            expected.add(root.resolve(name));
+        }
+
+        assertEquals(expected, documents);
+        for (int rank = 1; rank < results.size(); rank++) {
+            assertTrue(results.getSimilarity(rank - 1) >= results
+                    .getSimilarity(rank));
+        }
+    }
+
+    /**
+     * Creates results with single document of specified name.
+     * 
+     * @param name
+     *            Name of document
+     * @return Created results
+     */
+    private static SearchResults createResults(String name) {
+        return new SearchResults(Collections.singletonList(name),
+                new Path[] { Paths.get(name) }, new double[] { 1 });
+    }
+
+    /**
+     * Writes specified text into file with specified path.
+     * 
+     * @param file
+     *            Path of file
+     * @param text
+     *            Written text
+     * @throws IOException
+     *             If file can not be written
+     */
+    private static void write(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,297 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link CompressedPostingList}: variable-byte encoding and decoding
+ * of postings, and skipping of postings by {@link PostingCursor#advance(int)}
+ * across boundaries of blocks and past the end of list.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class CompressedPostingListTest {
+
+    /** Number of postings in block. */
+    private static final int BLOCK = CompressedPostingList.BLOCK_SIZE;
+    /** Number of postings of lists spanning several blocks. */
+    private static final int SIZE = 5 * BLOCK + 17;
+    /** Difference between consecutive documents of regular lists. */
+    private static final int STEP = 3;
+
+    /**
+     * Checks that postings with values taking from one to five bytes are
+     * decoded as they were encoded.
+     */
+    @Test
+    public void roundTripPreservesPostings() {
+        Random random = new Random(42);
+        int[] documents = new int[SIZE];
+        int[] frequencies = new int[SIZE];
+
+        // Gaps and frequencies need from one up to five bytes
+        int document = 0;
+        for (int i = 0; i < SIZE; i++) {
+            int bits = 1 + random.nextInt(i < SIZE / 2 ? 21 : 24);
+            document += 1 + random.nextInt(1 << bits);
+            documents[i] = document;
+            frequencies[i] = i % 7 == 0 ? Integer.MAX_VALUE
+                    : 1 + random.nextInt(1 << bits);
+        }
+
+        CompressedPostingList list = new CompressedPostingList(documents,
+                frequencies, SIZE);
+        assertEquals(SIZE, list.size());
+
+        PostingCursor cursor = list.cursor();
+        for (int i = 0; i < SIZE; i++) {
+            assertTrue(cursor.next());
+            assertEquals(documents[i], cursor.document());
+            assertEquals(frequencies[i], cursor.frequency());
+        }
+        assertFalse(cursor.next());
+    }
+
+    /**
+     * Checks that postings of small values take single byte for difference
+     * and single byte for frequency.
+     */
+    @Test
+    public void roundTripOfSmallValuesTakesTwoBytesPerPosting() {
+        int[] documents = { 0, 1, 5, 127 };
+        int[] frequencies = { 1, 127, 3, 1 };
+
+        byte[] encoded = CompressedPostingList.encode(documents, frequencies,
+                documents.length);
+        assertEquals(Integer.BYTES + 2 * documents.length, encoded.length);
+
+        assertPostings(new CompressedPostingList(documents, frequencies,
+                documents.length), documents, frequencies);
+    }
+
+    /**
+     * Checks that list is read from specified offset of direct buffer, as
+     * from mapped index file.
+     */
+    @Test
+    public void readsListAtOffsetOfSharedBuffer() {
+        int[] documents = regularDocuments();
+        int[] frequencies = regularFrequencies();
+        byte[] encoded = CompressedPostingList.encode(documents, frequencies,
+                SIZE);
+
+        int offset = 13;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(offset + encoded.length);
+        buffer.position(offset);
+        buffer.put(encoded);
+
+        assertPostings(new CompressedPostingList(buffer, offset), documents,
+                frequencies);
+    }
+
+    /**
+     * Checks that cursor of empty list is never positioned on posting.
+     */
+    @Test
+    public void emptyListHasNoPostings() {
+        PostingList list = new CompressedPostingList(new int[0], new int[0],
+                0);
+
+        assertEquals(0, list.size());
+        assertFalse(list.cursor().next());
+        assertFalse(list.cursor().advance(0));
+    }
+
+    /**
+     * Checks advancing from the start of list to documents around first
+     * posting of every block.
+     */
+    @Test
+    public void advanceToBlockBoundaries() {
+        CompressedPostingList list = new CompressedPostingList(
+                regularDocuments(), regularFrequencies(), SIZE);
+
+        for (int first = BLOCK; first < SIZE; first += BLOCK) {
+
+            // Last posting of previous block, first of block and between them
+            assertAdvance(list.cursor(), (first - 1) * STEP, first - 1);
+            assertAdvance(list.cursor(), first * STEP, first);
+            assertAdvance(list.cursor(), first * STEP - 1, first);
+            assertAdvance(list.cursor(), first * STEP + 1, first + 1);
+        }
+    }
+
+    /**
+     * Checks advancing over several blocks from the middle of the first
+     * block, and reading postings after it.
+     */
+    @Test
+    public void advanceAcrossSeveralBlocksAfterNext() {
+        CompressedPostingList list = new CompressedPostingList(
+                regularDocuments(), regularFrequencies(), SIZE);
+        PostingCursor cursor = list.cursor();
+
+        assertTrue(cursor.next());
+        assertTrue(cursor.next());
+        assertAdvance(cursor, 3 * BLOCK * STEP + 1, 3 * BLOCK + 1);
+
+        // Following postings are read from the same position
+        assertTrue(cursor.next());
+        assertEquals((3 * BLOCK + 2) * STEP, cursor.document());
+    }
+
+    /**
+     * Checks that advancing to document not greater than current one moves
+     * to the next posting.
+     */
+    @Test
+    public void advanceDoesNotConsiderCurrentPosting() {
+        CompressedPostingList list = new CompressedPostingList(
+                regularDocuments(), regularFrequencies(), SIZE);
+        PostingCursor cursor = list.cursor();
+
+        assertAdvance(cursor, 10 * STEP, 10);
+        assertAdvance(cursor, 10 * STEP, 11);
+        assertAdvance(cursor, 0, 12);
+    }
+
+    /**
+     * Checks advancing by random targets on random lists against linear scan
+     * of their postings.
+     */
+    @Test
+    public void advanceMatchesLinearScan() {
+        Random random = new Random(7);
+
+        for (int test = 0; test < 200; test++) {
+            int size = random.nextInt(4 * BLOCK);
+            int[] documents = new int[size];
+            int[] frequencies = new int[size];
+            int document = -1;
+            for (int i = 0; i < size; i++) {
+                document += 1 + random.nextInt(10);
+                documents[i] = document;
+                frequencies[i] = 1 + random.nextInt(5);
+            }
+
+            PostingCursor cursor = new CompressedPostingList(documents,
+                    frequencies, size).cursor();
+            int expected = -1;
+            while (true) {
+                int target = random.nextInt(document + 20);
+                do {
+                    expected++;
+                } while (expected < size && documents[expected] < target);
+
+                if (expected >= size) {
+                    assertFalse(cursor.advance(target));
+                    break;
+                }
+                assertTrue(cursor.advance(target));
+                assertEquals(documents[expected], cursor.document());
+                assertEquals(frequencies[expected], cursor.frequency());
+            }
+        }
+    }
+
+    /**
+     * Checks that advancing past the last posting finds nothing and leaves
+     * cursor at the end of list.
+     */
+    @Test
+    public void advancePastEndOfList() {
+        CompressedPostingList list = new CompressedPostingList(
+                regularDocuments(), regularFrequencies(), SIZE);
+        int last = (SIZE - 1) * STEP;
+
+        PostingCursor cursor = list.cursor();
+        assertFalse(cursor.advance(last + 1));
+        assertFalse(cursor.next());
+        assertFalse(cursor.advance(0));
+
+        cursor = list.cursor();
+        assertAdvance(cursor, last, SIZE - 1);
+        assertFalse(cursor.advance(last));
+        assertFalse(cursor.next());
+
+        assertFalse(list.cursor().advance(Integer.MAX_VALUE));
+    }
+
+    /**
+     * Checks that specified cursor advances to posting with specified index
+     * of regular list.
+     * 
+     * @param cursor
+     *            Cursor of regular list
+     * @param target
+     *            Smallest accepted document identifier
+     * @param index
+     *            Index of expected posting
+     */
+    private static void assertAdvance(PostingCursor cursor, int target,
+            int index) {
+        assertTrue(cursor.advance(target));
+        assertEquals(index * STEP, cursor.document());
+        assertEquals(1 + index % 5, cursor.frequency());
+    }
+
+    /**
+     * Checks that specified list holds exactly specified postings.
+     * 
+     * @param list
+     *            Checked list
+     * @param documents
+     *            Expected document identifiers
+     * @param frequencies
+     *            Expected frequencies
+     */
+    private static void assertPostings(PostingList list, int[] documents,
+            int[] frequencies) {
+        assertEquals(documents.length, list.size());
+
+        PostingCursor cursor = list.cursor();
+        for (int i = 0; i < documents.length; i++) {
+            assertTrue(cursor.next());
+            assertEquals(documents[i], cursor.document());
+            assertEquals(frequencies[i], cursor.frequency());
+        }
+        assertFalse(cursor.next());
+    }
+
+    /**
+     * Returns documents of regular list, every {@value #STEP}-th document.
+     * 
+     * @return Document identifiers
+     */
+    private static int[] regularDocuments() {
+        int[] documents = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            documents[i] = i * STEP;
+        }
+
+        return documents;
+    }
+
+    /**
+     * Returns frequencies of regular list.
+     * 
+     * @return Frequencies of postings
+     */
+    private static int[] regularFrequencies() {
+        int[] frequencies = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            frequencies[i] = 1 + i % 5;
+        }
+
+        return frequencies;
+    }
+
+}
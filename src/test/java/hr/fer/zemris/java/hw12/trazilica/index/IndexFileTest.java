@@ -0,0 +1,266 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import hr.fer.zemris.java.hw12.trazilica.Dictionary;
+import hr.fer.zemris.java.hw12.trazilica.SearchResults;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of {@link IndexFile} written and opened through
+ * {@link Dictionary#open(String, String, int, String, boolean)}. Opened index
+ * must give the same results as index created from documents, and index file
+ * must no longer be valid once some document, stop-words or stemming setting
+ * changes, or if it was written in another format version, in which case it
+ * is created again.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class IndexFileTest {
+
+    /** Number of documents. */
+    private static final int DOCUMENTS = 30;
+    /** Number of words of generated vocabulary. */
+    private static final int WORDS = 100;
+    /** Number of compared queries. */
+    private static final int QUERIES = 200;
+    /** Number of results of every query. */
+    private static final int RESULTS = 10;
+    /** Allowed difference of similarities, which are summed in other order. */
+    private static final double DELTA = 1e-12;
+
+    /** Folder holding documents, stop-words and index file. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Root directory of documents. */
+    private Path root;
+    /** Path of stop-words file. */
+    private Path stopWords;
+    /** Path of index file. */
+    private Path indexFile;
+    /** Words of generated vocabulary. */
+    private String[] vocabulary;
+
+    /**
+     * Creates documents, stop-words and index file from them.
+     * 
+     * @throws IOException
+     *             If files can not be written
+     */
+    @Before
+    public void createIndex() throws IOException {
+        Random random = new Random(5);
+        root = folder.newFolder("documents").toPath();
+        stopWords = folder.newFile("stop.txt").toPath();
+        indexFile = folder.getRoot().toPath().resolve("index.bin");
+
+        vocabulary = new String[WORDS];
+        for (int i = 0; i < vocabulary.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int length = 4 + random.nextInt(6); length > 0; length--) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            vocabulary[i] = word.toString();
+        }
+        write(stopWords, "i\nje\n" + vocabulary[0] + "\n");
+
+        for (int document = 0; document < DOCUMENTS; document++) {
+            StringBuilder text = new StringBuilder();
+            for (int length = 10 + random.nextInt(100); length > 0; length--) {
+                int word = (int) (vocabulary.length * Math.pow(
+                        random.nextDouble(), 2));
+                text.append(vocabulary[word]).append(" je ");
+            }
+            write(root.resolve("document" + document), text.toString());
+        }
+
+        assertOpened(false, false);
+    }
+
+    /**
+     * Checks that index file is opened rather than created again while
+     * nothing changes, and that opened index gives the same results as index
+     * created from documents.
+     * 
+     * @throws IOException
+     *             If files can not be read
+     */
+    @Test
+    public void openedIndexGivesSameResults() throws IOException {
+        assertTrue(IndexFile.open(indexFile).isValidFor(root, stopWords));
+        assertFalse(IndexFile.open(indexFile).isStemmed());
+
+        assertOpened(false, true);
+        assertOpened(false, true);
+    }
+
+    /**
+     * Checks that index file is created again once modification time of
+     * single document changes.
+     * 
+     * @throws IOException
+     *             If files can not be read or written
+     */
+    @Test
+    public void changedDocumentInvalidatesIndex() throws IOException {
+        Path document = root.resolve("document" + DOCUMENTS / 2);
+        FileTime modified = Files.getLastModifiedTime(document);
+        Files.setLastModifiedTime(document,
+                FileTime.fromMillis(modified.toMillis() + 60_000));
+
+        assertFalse(IndexFile.open(indexFile).isValidFor(root, stopWords));
+        assertOpened(false, false);
+        assertOpened(false, true);
+    }
+
+    /**
+     * Checks that index file is created again once content of stop-words
+     * file changes, or stop-words are read from other file.
+     * 
+     * @throws IOException
+     *             If files can not be read or written
+     */
+    @Test
+    public void changedStopWordsInvalidateIndex() throws IOException {
+        FileTime modified = Files.getLastModifiedTime(stopWords);
+        write(stopWords, "i\nje\n" + vocabulary[1] + "\n");
+        Files.setLastModifiedTime(stopWords, modified);
+
+        assertFalse(IndexFile.open(indexFile).isValidFor(root, stopWords));
+        assertOpened(false, false);
+        assertOpened(false, true);
+
+        Path copy = folder.newFile("copy.txt").toPath();
+        Files.copy(stopWords, copy, StandardCopyOption.REPLACE_EXISTING);
+        assertFalse(IndexFile.open(indexFile).isValidFor(root, copy));
+    }
+
+    /**
+     * Checks that index file is created again once stemming setting changes.
+     * 
+     * @throws IOException
+     *             If files can not be read or written
+     */
+    @Test
+    public void changedStemmingInvalidatesIndex() throws IOException {
+        assertOpened(true, false);
+        assertTrue(IndexFile.open(indexFile).isStemmed());
+        assertOpened(true, true);
+        assertOpened(false, false);
+    }
+
+    /**
+     * Checks that index file written in other format version can not be
+     * opened and is created again.
+     * 
+     * @throws IOException
+     *             If files can not be read or written
+     */
+    @Test
+    public void otherVersionIsCreatedAgain() throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile,
+                StandardOpenOption.WRITE)) {
+            channel.write((ByteBuffer) ByteBuffer.allocate(Integer.BYTES)
+                    .putInt(IndexFile.VERSION - 1).flip(), Integer.BYTES);
+        }
+
+        try {
+            IndexFile.open(indexFile);
+            fail("Index file of other version was opened.");
+        } catch (IOException e) {
+            // Expected, version is not supported
+        }
+        assertOpened(false, false);
+        assertOpened(false, true);
+    }
+
+    /**
+     * Opens dictionary from index file, checks whether it was opened or
+     * created again, and compares its results with results of dictionary
+     * created from documents.
+     * 
+     * @param stemming
+     *            Whether words are reduced to their stems
+     * @param opened
+     *            Whether index file is expected to be opened
+     * @throws IOException
+     *             If files can not be read or written
+     */
+    private void assertOpened(boolean stemming, boolean opened)
+            throws IOException {
+        Dictionary dictionary = Dictionary.open(root.toString(),
+                stopWords.toString(), 1, indexFile.toString(), stemming);
+        Map<String, Long> phases = dictionary.getMetrics()
+                .getBuildPhaseMillis();
+        assertEquals(opened, phases.containsKey("open"));
+        assertEquals(!opened, phases.containsKey("save"));
+
+        Dictionary created = new Dictionary(root.toString(),
+                stopWords.toString(), 1, 1, stemming);
+        Random random = new Random(50);
+        for (int query = 0; query < QUERIES; query++) {
+            String queryText = vocabulary[random.nextInt(WORDS)] + " "
+                    + vocabulary[random.nextInt(WORDS)];
+            assertSameResults(created.search(queryText, RESULTS),
+                    dictionary.search(queryText, RESULTS));
+        }
+    }
+
+    /**
+     * Checks that both results have the same documents in the same order, and
+     * the same similarities.
+     * 
+     * @param expected
+     *            Results of dictionary created from documents
+     * @param actual
+     *            Results of dictionary opened from index file
+     */
+    private static void assertSameResults(SearchResults expected,
+            SearchResults actual) {
+        assertEquals(expected.getQuery(), actual.getQuery());
+        assertEquals(expected.size(), actual.size());
+
+        for (int rank = 0; rank < expected.size(); rank++) {
+            assertEquals(expected.getDocument(rank), actual.getDocument(rank));
+            assertEquals(expected.getSimilarity(rank),
+                    actual.getSimilarity(rank), DELTA);
+        }
+    }
+
+    /**
+     * Writes specified text into file with specified path.
+     * 
+     * @param file
+     *            Path of file
+     * @param text
+     *            Written text
+     * @throws IOException
+     *             If file can not be written
+     */
+    private static void write(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,246 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests of phrase matching by {@link PositionIndex#findPhrase(int[], int)}:
+ * exact phrases, phrases with slop, phrases repeating the same term and
+ * phrases with terms missing from documents. Results of random phrases are
+ * also compared with scan of all positions of documents.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class PositionIndexTest {
+
+    /** Term identifiers used by hand-written documents. */
+    private static final int A = 0, B = 1, C = 2, D = 3, E = 4;
+
+    /**
+     * Checks that exact phrase is found only where its terms follow each
+     * other in the same order.
+     */
+    @Test
+    public void findsExactPhrase() {
+        PositionIndex index = createIndex(
+                new int[] { A, B, C },
+                new int[] { B, A, C },
+                new int[] { A, C, B },
+                new int[] { D, D, A, B });
+
+        assertEquals(documents(0, 3), index.findPhrase(terms(A, B), 0));
+        assertEquals(documents(0), index.findPhrase(terms(A, B, C), 0));
+        assertEquals(documents(1), index.findPhrase(terms(B, A), 0));
+        assertEquals(documents(0, 1, 2, 3), index.findPhrase(terms(A), 0));
+    }
+
+    /**
+     * Checks that slop allows at most that many other words between every
+     * two consecutive terms, but never changes their order.
+     */
+    @Test
+    public void findsPhraseWithinSlop() {
+        PositionIndex index = createIndex(
+                new int[] { A, B },
+                new int[] { A, C, B },
+                new int[] { A, C, D, B },
+                new int[] { A, C, D, E, E, B },
+                new int[] { B, C, A });
+
+        int[] phrase = terms(A, B);
+        assertEquals(documents(0), index.findPhrase(phrase, 0));
+        assertEquals(documents(0, 1), index.findPhrase(phrase, 1));
+        assertEquals(documents(0, 1, 2), index.findPhrase(phrase, 2));
+        assertEquals(documents(0, 1, 2), index.findPhrase(phrase, 3));
+        assertEquals(documents(0, 1, 2, 3), index.findPhrase(phrase, 4));
+        assertEquals(documents(0, 1, 2, 3), index.findPhrase(phrase, 100));
+    }
+
+    /**
+     * Checks that slop applies to every pair of consecutive terms on its own.
+     */
+    @Test
+    public void appliesSlopToEveryPairOfTerms() {
+        PositionIndex index = createIndex(
+                new int[] { A, D, B, C },
+                new int[] { A, D, B, D, C },
+                new int[] { A, D, D, B, C });
+
+        assertEquals(documents(), index.findPhrase(terms(A, B, C), 0));
+        assertEquals(documents(0, 1), index.findPhrase(terms(A, B, C), 1));
+        assertEquals(documents(0, 1, 2), index.findPhrase(terms(A, B, C), 2));
+    }
+
+    /**
+     * Checks phrases which repeat the same term, which must occur that many
+     * times at different positions.
+     */
+    @Test
+    public void findsPhraseWithRepeatedTerms() {
+        PositionIndex index = createIndex(
+                new int[] { A, B, A },
+                new int[] { A, A, B },
+                new int[] { A, C, A, B },
+                new int[] { A });
+
+        assertEquals(documents(1), index.findPhrase(terms(A, A), 0));
+        assertEquals(documents(0, 1, 2), index.findPhrase(terms(A, A), 1));
+        assertEquals(documents(0), index.findPhrase(terms(A, B, A), 0));
+        assertEquals(documents(1), index.findPhrase(terms(A, A, B), 0));
+        assertEquals(documents(1, 2), index.findPhrase(terms(A, A, B), 1));
+        assertEquals(documents(), index.findPhrase(terms(A, A, A), 10));
+    }
+
+    /**
+     * Checks that phrase with term missing from document, or from all
+     * documents, is not found.
+     */
+    @Test
+    public void doesNotFindPhraseWithMissingTerm() {
+        PositionIndex index = createIndex(
+                new int[] { A, B },
+                new int[] { A, B, C });
+
+        assertEquals(documents(1), index.findPhrase(terms(A, B, C), 0));
+        assertEquals(documents(), index.findPhrase(terms(A, E), 5));
+        assertEquals(documents(), index.findPhrase(terms(E), 0));
+        assertEquals(documents(), index.findPhrase(terms(A, 1000), 0));
+        assertEquals(documents(), index.findPhrase(terms(-1, A), 0));
+    }
+
+    /**
+     * Checks that unknown words take positions, and that removed documents
+     * are no longer found.
+     */
+    @Test
+    public void countsUnknownWordsAndSkipsRemovedDocuments() {
+        PositionIndex index = createIndex(
+                new int[] { A, -1, B },
+                new int[] { A, B });
+
+        assertEquals(documents(1), index.findPhrase(terms(A, B), 0));
+        assertEquals(documents(0, 1), index.findPhrase(terms(A, B), 1));
+
+        index.removeDocument(1);
+        assertEquals(documents(0), index.findPhrase(terms(A, B), 1));
+    }
+
+    /**
+     * Compares phrases found in random documents with scan of positions of
+     * every document.
+     */
+    @Test
+    public void matchesScanOfRandomDocuments() {
+        Random random = new Random(21);
+        int[][] documents = new int[300][];
+        for (int document = 0; document < documents.length; document++) {
+            documents[document] = new int[random.nextInt(40)];
+            for (int i = 0; i < documents[document].length; i++) {
+                documents[document][i] = random.nextInt(6);
+            }
+        }
+        PositionIndex index = createIndex(documents);
+
+        for (int test = 0; test < 2000; test++) {
+            int[] phrase = new int[1 + random.nextInt(4)];
+            for (int i = 0; i < phrase.length; i++) {
+                phrase[i] = random.nextInt(7);
+            }
+            int slop = random.nextInt(4);
+
+            BitSet expected = new BitSet();
+            for (int document = 0; document < documents.length; document++) {
+                if (contains(documents[document], phrase, 0, -1, slop)) {
+                    expected.set(document);
+                }
+            }
+
+            assertEquals(expected, index.findPhrase(phrase, slop));
+        }
+    }
+
+    /**
+     * Checks whether terms of phrase starting with specified one occur in
+     * specified words in order, the first of them after specified position
+     * and every other at most {@code slop} words after previous one.
+     * 
+     * @param words
+     *            Words of document
+     * @param phrase
+     *            Terms of phrase
+     * @param term
+     *            Index of first checked term
+     * @param previous
+     *            Position of previous term, -1 if there is none
+     * @param slop
+     *            Maximal number of other words between consecutive terms
+     * @return {@code true} if remaining terms occur
+     */
+    private static boolean contains(int[] words, int[] phrase, int term,
+            int previous, int slop) {
+        if (term == phrase.length) {
+            return true;
+        }
+
+        int last = previous < 0 ? words.length - 1 : Math.min(
+                words.length - 1, previous + 1 + slop);
+        for (int position = previous + 1; position <= last; position++) {
+            if (words[position] == phrase[term]
+                    && contains(words, phrase, term + 1, position, slop)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Creates index of specified documents, identified by their order.
+     * 
+     * @param documents
+     *            Term identifiers of words of documents
+     * @return Created index
+     */
+    private static PositionIndex createIndex(int[]... documents) {
+        PositionIndex index = new PositionIndex();
+        for (int document = 0; document < documents.length; document++) {
+            index.addDocument(document, documents[document]);
+        }
+
+        return index;
+    }
+
+    /**
+     * Returns specified terms as phrase.
+     * 
+     * @param terms
+     *            Term identifiers
+     * @return Terms of phrase
+     */
+    private static int[] terms(int... terms) {
+        return terms;
+    }
+
+    /**
+     * Returns set of specified document identifiers.
+     * 
+     * @param identifiers
+     *            Document identifiers
+     * @return Set of documents
+     */
+    private static BitSet documents(int... identifiers) {
+        BitSet documents = new BitSet();
+        for (int document : identifiers) {
+            documents.set(document);
+        }
+
+        return documents;
+    }
+
+}
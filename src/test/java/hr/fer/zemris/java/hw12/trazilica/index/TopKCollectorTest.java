@@ -0,0 +1,184 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link TopKCollector}, mostly of documents with equal
+ * similarities: all of them are kept while there is room, documents with
+ * smaller identifiers are kept once there is not, and kept documents are
+ * returned sorted without changing heap of collector.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class TopKCollectorTest {
+
+    /** Similarity used for tied documents. */
+    private static final double TIE = 0.5;
+
+    /**
+     * Checks that all documents with equal similarity are kept while there
+     * are less of them than K, and that threshold stays 0.
+     */
+    @Test
+    public void keepsAllTiedDocumentsWhileThereIsRoom() {
+        TopKCollector collector = new TopKCollector(5);
+        collect(collector, TIE, 7, 3, 9, 1);
+
+        assertEquals(4, collector.size());
+        assertEquals(0, collector.getThreshold(), 0);
+        assertArrayEquals(new int[] { 1, 3, 7, 9 }, collector.getDocuments());
+        assertArrayEquals(new double[] { TIE, TIE, TIE, TIE },
+                collector.getSimilarities(), 0);
+    }
+
+    /**
+     * Checks that documents with smaller identifiers are kept once there are
+     * more tied documents than K, and that tied document with greater
+     * identifier does not pass threshold.
+     */
+    @Test
+    public void prefersSmallerIdentifiersAmongTies() {
+        TopKCollector collector = new TopKCollector(3);
+        collect(collector, TIE, 5, 2, 8, 1, 7);
+
+        assertEquals(3, collector.size());
+        assertEquals(TIE, collector.getThreshold(), 0);
+        assertArrayEquals(new int[] { 1, 2, 5 }, collector.getDocuments());
+
+        collect(collector, TIE, 9, 0);
+        assertArrayEquals(new int[] { 0, 1, 2 }, collector.getDocuments());
+
+        collect(collector, 0.75, 9);
+        assertArrayEquals(new int[] { 9, 0, 1 }, collector.getDocuments());
+        assertArrayEquals(new double[] { 0.75, TIE, TIE },
+                collector.getSimilarities(), 0);
+        assertEquals(TIE, collector.getThreshold(), 0);
+        assertEquals(8, collector.getScoredCount());
+    }
+
+    /**
+     * Checks that threshold is 0 until K documents are kept, and then
+     * similarity of the worst kept document.
+     */
+    @Test
+    public void thresholdIsSimilarityOfWorstKeptDocument() {
+        TopKCollector collector = new TopKCollector(2);
+        collector.collect(4, 0.25);
+        assertEquals(0, collector.getThreshold(), 0);
+
+        collector.collect(2, 0.75);
+        assertEquals(0.25, collector.getThreshold(), 0);
+
+        collector.collect(3, 0.5);
+        assertEquals(0.5, collector.getThreshold(), 0);
+
+        collector.collect(1, 0.25);
+        assertEquals(0.5, collector.getThreshold(), 0);
+        assertArrayEquals(new int[] { 2, 3 }, collector.getDocuments());
+    }
+
+    /**
+     * Checks kept documents against sorting of all documents, with many ties
+     * among similarities. Kept documents are also read while they are being
+     * collected, so reading must leave heap intact.
+     */
+    @Test
+    public void matchesSortingOfAllDocuments() {
+        Random random = new Random(7);
+
+        for (int test = 0; test < 200; test++) {
+            int k = 1 + random.nextInt(20);
+            TopKCollector collector = new TopKCollector(k);
+            List<double[]> all = new ArrayList<>();
+
+            List<Integer> order = new ArrayList<>();
+            for (int document = 0; document < 100; document++) {
+                order.add(document);
+            }
+            Collections.shuffle(order, random);
+
+            for (int document : order) {
+                double similarity = random.nextInt(4) / 4.0;
+                collector.collect(document, similarity);
+                all.add(new double[] { document, similarity });
+
+                if (random.nextInt(10) == 0) {
+                    assertTopK(all, collector);
+                }
+            }
+
+            assertTopK(all, collector);
+            assertEquals(order.size(), collector.getScoredCount());
+        }
+    }
+
+    /**
+     * Checks that collector which keeps less than one document can not be
+     * created.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveK() {
+        new TopKCollector(0);
+    }
+
+    /**
+     * Checks that specified collector keeps best K of specified documents,
+     * sorted by similarity and then by identifier, and that reading them
+     * twice gives the same result.
+     * 
+     * @param all
+     *            Pairs of identifiers and similarities of all documents
+     * @param collector
+     *            Collector which is checked
+     */
+    private static void assertTopK(List<double[]> all,
+            TopKCollector collector) {
+        List<double[]> expected = new ArrayList<>(all);
+        expected.sort((first, second) -> first[1] != second[1] ? Double
+                .compare(second[1], first[1]) : Double.compare(first[0],
+                second[0]));
+        expected = expected.subList(0,
+                Math.min(expected.size(), collector.getCapacity()));
+
+        int[] documents = new int[expected.size()];
+        double[] similarities = new double[expected.size()];
+        for (int i = 0; i < documents.length; i++) {
+            documents[i] = (int) expected.get(i)[0];
+            similarities[i] = expected.get(i)[1];
+        }
+
+        for (int read = 0; read < 2; read++) {
+            assertEquals(documents.length, collector.size());
+            assertArrayEquals(documents, collector.getDocuments());
+            assertArrayEquals(similarities, collector.getSimilarities(), 0);
+        }
+    }
+
+    /**
+     * Collects specified documents with the same specified similarity.
+     * 
+     * @param collector
+     *            Collector of documents
+     * @param similarity
+     *            Similarity of all documents
+     * @param documents
+     *            Identifiers of documents
+     */
+    private static void collect(TopKCollector collector, double similarity,
+            int... documents) {
+        for (int document : documents) {
+            collector.collect(document, similarity);
+        }
+    }
+
+}
@@ -0,0 +1,227 @@
+package hr.fer.zemris.java.hw12.trazilica.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import hr.fer.zemris.java.hw12.trazilica.tfidf.CorpusStatistics;
+import hr.fer.zemris.java.hw12.trazilica.tfidf.TermCounts;
+import hr.fer.zemris.java.hw12.trazilica.tfidf.TfIdfVector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Regression tests of {@link InvertedIndex#scoreTopK(TfIdfVector,
+ * TopKCollector)}: documents kept by MaxScore must be exactly the K best
+ * documents found by exhaustive term-at-a-time scoring, with equal
+ * similarities and with ties ordered by document identifiers. Corpus is
+ * generated with skewed word frequencies and with repeated documents, so
+ * there are both long posting lists and equal similarities.
+ * 
+ * @author Domagoj Penic
+ * @version 2.6.2015.
+ *
+ */
+public class TopKScoringTest {
+
+    /** Number of generated documents. */
+    private static final int DOCUMENTS = 3000;
+    /** Number of words of generated vocabulary. */
+    private static final int VOCABULARY = 400;
+    /** Numbers of kept documents which are checked. */
+    private static final int[] COUNTS = { 1, 3, 10, 100 };
+    /** Number of checked queries. */
+    private static final int QUERIES = 300;
+
+    /** Generated documents, as identifiers of their words. */
+    private final List<int[]> documents = new ArrayList<>();
+    /** Statistics of generated documents. */
+    private CorpusStatistics statistics;
+
+    /**
+     * Generates corpus. Every tenth document repeats one of previous ones.
+     */
+    public TopKScoringTest() {
+        Random random = new Random(2015);
+
+        for (int document = 0; document < DOCUMENTS; document++) {
+            if (document > 0 && document % 10 == 0) {
+                documents.add(documents.get(random.nextInt(document)));
+                continue;
+            }
+
+            int[] words = new int[5 + random.nextInt(100)];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = skewedWord(random);
+            }
+            documents.add(words);
+        }
+
+        statistics = new CorpusStatistics(documents);
+    }
+
+    /**
+     * Checks MaxScore against exhaustive scoring on single index.
+     */
+    @Test
+    public void maxScoreMatchesExhaustiveScoring() {
+        MemoryIndex index = createIndex(new MemoryIndex());
+
+        checkQueries(index, index, new Random(1));
+    }
+
+    /**
+     * Checks MaxScore against exhaustive scoring after some documents are
+     * removed, so posting lists contain removed documents.
+     */
+    @Test
+    public void maxScoreMatchesExhaustiveScoringAfterRemoval() {
+        MemoryIndex index = createIndex(new MemoryIndex());
+        for (int document = 0; document < DOCUMENTS; document += 7) {
+            index.removeDocument(document);
+        }
+
+        checkQueries(index, index, new Random(2));
+    }
+
+    /**
+     * Checks MaxScore of every shard of sharded index against exhaustive
+     * scoring of single index holding the same documents.
+     */
+    @Test
+    public void shardedMaxScoreMatchesExhaustiveScoring() {
+        MemoryIndex index = createIndex(new MemoryIndex());
+        ShardedIndex sharded = createIndex(new ShardedIndex(3));
+
+        checkQueries(sharded, index, new Random(3));
+    }
+
+    /**
+     * Scores random queries by MaxScore on specified index and compares
+     * results with exhaustive scoring on reference index.
+     * 
+     * @param index
+     *            Index scored by MaxScore
+     * @param reference
+     *            Index holding the same documents, scored exhaustively
+     * @param random
+     *            Generator of queries
+     */
+    private void checkQueries(InvertedIndex index, InvertedIndex reference,
+            Random random) {
+        int pruned = 0;
+
+        for (int q = 0; q < QUERIES; q++) {
+            // Words can repeat, so some query words have TF greater than 1
+            int[] words = new int[1 + random.nextInt(8)];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = random.nextBoolean() ? skewedWord(random) : random
+                        .nextInt(VOCABULARY);
+            }
+            TfIdfVector query = new TfIdfVector(words, VOCABULARY, statistics);
+
+            for (int count : COUNTS) {
+                TopKCollector collector = new TopKCollector(count);
+                index.scoreTopK(query, collector);
+
+                List<double[]> expected = exhaustive(reference, query, count);
+                int[] expectedDocuments = new int[expected.size()];
+                double[] expectedSimilarities = new double[expected.size()];
+                for (int i = 0; i < expected.size(); i++) {
+                    expectedDocuments[i] = (int) expected.get(i)[0];
+                    expectedSimilarities[i] = expected.get(i)[1];
+                }
+
+                String message = "Query " + Arrays.toString(words) + ", K "
+                        + count;
+                assertArrayEquals(message, expectedDocuments,
+                        collector.getDocuments());
+                assertArrayEquals(message, expectedSimilarities,
+                        collector.getSimilarities(), 0);
+
+                if (collector.getScoredCount() < allScored(reference, query)) {
+                    pruned++;
+                }
+            }
+        }
+
+        // Otherwise pruning itself would not be tested
+        assertTrue("No query was pruned.", pruned > 0);
+    }
+
+    /**
+     * Returns K best documents found by exhaustive scoring, as pairs of
+     * document identifier and similarity, ordered by similarity and then by
+     * document identifier.
+     * 
+     * @param index
+     *            Scored index
+     * @param query
+     *            Query vector
+     * @param count
+     *            Number of returned documents
+     * @return Best documents with their similarities
+     */
+    private static List<double[]> exhaustive(InvertedIndex index,
+            TfIdfVector query, int count) {
+        List<double[]> all = new ArrayList<>();
+        index.score(query, (document, similarity) -> all.add(new double[] {
+                document, similarity }));
+
+        all.sort((first, second) -> first[1] != second[1] ? Double.compare(
+                second[1], first[1]) : Double.compare(first[0], second[0]));
+
+        return all.subList(0, Math.min(count, all.size()));
+    }
+
+    /**
+     * Returns number of documents scored by exhaustive scoring.
+     * 
+     * @param index
+     *            Scored index
+     * @param query
+     *            Query vector
+     * @return Number of scored documents
+     */
+    private static long allScored(InvertedIndex index, TfIdfVector query) {
+        long[] count = new long[1];
+        index.score(query, (document, similarity) -> count[0]++);
+
+        return count[0];
+    }
+
+    /**
+     * Adds all generated documents to specified index and compresses it.
+     * 
+     * @param index
+     *            Index to be filled
+     * @return Filled index
+     */
+    private <T extends MutableIndex> T createIndex(T index) {
+        for (int[] words : documents) {
+            TermCounts counts = new TermCounts(words);
+            index.addDocument(counts.getTerms(), counts.getCounts());
+        }
+        index.compress();
+
+        return index;
+    }
+
+    /**
+     * Returns random word, words with smaller identifiers being much more
+     * frequent.
+     * 
+     * @param random
+     *            Random generator
+     * @return Word identifier
+     */
+    private static int skewedWord(Random random) {
+        double uniform = random.nextDouble();
+
+        return (int) (VOCABULARY * uniform * uniform * uniform);
+    }
+
+}